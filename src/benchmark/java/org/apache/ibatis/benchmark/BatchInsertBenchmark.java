@@ -0,0 +1,78 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Inserts authors with a batch executor, then rolls back so that the table does not grow.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchInsertBenchmark {
+
+  @Param({ "10", "100" })
+  public int batchSize;
+
+  private List<Author> authors;
+
+  @Setup
+  public void setup() {
+    authors = new ArrayList<Author>(batchSize);
+    for (int i = 0; i < batchSize; i++) {
+      authors.add(BlogDatabase.newAuthor(0));
+    }
+  }
+
+  @Benchmark
+  public List<BatchResult> batchInsert(BlogDatabase database) {
+    SqlSession session = database.getSqlSessionFactory().openSession(ExecutorType.BATCH);
+    try {
+      BlogBenchmarkMapper mapper = session.getMapper(BlogBenchmarkMapper.class);
+      for (Author author : authors) {
+        mapper.insertAuthor(author);
+      }
+      List<BatchResult> results = session.flushStatements();
+      session.rollback(true);
+      return results;
+    } finally {
+      session.close();
+    }
+  }
+
+}
@@ -0,0 +1,41 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+
+public interface BlogBenchmarkMapper {
+
+  Author selectAuthor(int id);
+
+  List<Author> selectAuthors(@Param("ids") List<Integer> ids);
+
+  List<Author> selectAllAuthors();
+
+  Blog selectBlogWithPosts(int id);
+
+  int insertAuthor(Author author);
+
+  int insertAuthorWithId(Author author);
+
+  int insertPost(@Param("id") int id, @Param("blogId") int blogId, @Param("authorId") int authorId,
+      @Param("subject") String subject);
+
+}
@@ -0,0 +1,112 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The blog database of the tests, in an in-memory Derby database, with AUTHOR_COUNT more authors
+ * and POST_COUNT more posts in blog 1.
+ */
+@State(Scope.Benchmark)
+public class BlogDatabase {
+
+  public static final int AUTHOR_COUNT = 1000;
+  public static final int FIRST_AUTHOR_ID = 1000;
+  public static final int POST_COUNT = 100;
+
+  // settings to compare, e.g. -p compileResultMaps=false,true
+  @Param("false")
+  public boolean compileResultMaps;
+
+  @Param("false")
+  public boolean compileDynamicSql;
+
+  private PooledDataSource dataSource;
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    dataSource = new PooledDataSource("org.apache.derby.jdbc.EmbeddedDriver", "jdbc:derby:memory:benchmark;create=true",
+        "", "");
+    BaseDataTest.runScript(dataSource, BaseDataTest.BLOG_DDL);
+    BaseDataTest.runScript(dataSource, BaseDataTest.BLOG_DATA);
+    Configuration configuration = new Configuration(new Environment("benchmark", new JdbcTransactionFactory(), dataSource));
+    configuration.setCompileResultMaps(compileResultMaps);
+    configuration.setCompileDynamicSql(compileDynamicSql);
+    configuration.addMapper(BlogBenchmarkMapper.class);
+    configuration.addMapper(CachedAuthorMapper.class);
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+    SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      BlogBenchmarkMapper mapper = session.getMapper(BlogBenchmarkMapper.class);
+      for (int i = 0; i < AUTHOR_COUNT; i++) {
+        mapper.insertAuthorWithId(newAuthor(FIRST_AUTHOR_ID + i));
+      }
+      for (int i = 0; i < POST_COUNT; i++) {
+        mapper.insertPost(1000 + i, 1, 101, "Post " + i);
+      }
+      session.commit();
+    } finally {
+      session.close();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    dataSource.forceCloseAll();
+  }
+
+  public SqlSessionFactory getSqlSessionFactory() {
+    return sqlSessionFactory;
+  }
+
+  public PooledDataSource getDataSource() {
+    return dataSource;
+  }
+
+  public static Author newAuthor(int id) {
+    return new Author(id, "user" + id, "********", "user" + id + "@mybatis.org", "bio of user " + id, Section.NEWS);
+  }
+
+  public static List<Integer> authorIds(int count) {
+    List<Integer> ids = new ArrayList<Integer>(count);
+    for (int i = 0; i < count; i++) {
+      ids.add(FIRST_AUTHOR_ID + i * (AUTHOR_COUNT / count));
+    }
+    return ids;
+  }
+
+}
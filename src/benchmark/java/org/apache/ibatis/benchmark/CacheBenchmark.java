@@ -0,0 +1,65 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.session.SqlSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads an author from the second-level cache, and twice in one session from the local cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheBenchmark {
+
+  @Benchmark
+  public Author secondLevelCacheHit(BlogDatabase database) {
+    SqlSession session = database.getSqlSessionFactory().openSession();
+    try {
+      return session.getMapper(CachedAuthorMapper.class).selectAuthor(BlogDatabase.FIRST_AUTHOR_ID);
+    } finally {
+      session.close();
+    }
+  }
+
+  @Benchmark
+  public Author localCacheHit(BlogDatabase database) {
+    SqlSession session = database.getSqlSessionFactory().openSession();
+    try {
+      BlogBenchmarkMapper mapper = session.getMapper(BlogBenchmarkMapper.class);
+      mapper.selectAuthor(BlogDatabase.FIRST_AUTHOR_ID);
+      return mapper.selectAuthor(BlogDatabase.FIRST_AUTHOR_ID);
+    } finally {
+      session.close();
+    }
+  }
+
+}
@@ -0,0 +1,115 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds and looks up the key of a statement with an IN list of the given number of parameters,
+ * as {@link org.apache.ibatis.executor.BaseExecutor#createCacheKey} does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheKeyBenchmark {
+
+  @Param({ "1", "10", "1000" })
+  public int parameterCount;
+
+  @Param({ "false", "true" })
+  public boolean compact;
+
+  private String sql;
+  private Object[] parameters;
+  private CacheKey key;
+  private Map<CacheKey, Object> cache;
+
+  @Setup
+  public void setup() {
+    StringBuilder builder = new StringBuilder("select * from author where id in (");
+    parameters = new Object[parameterCount];
+    for (int i = 0; i < parameterCount; i++) {
+      builder.append(i == 0 ? "?" : ", ?");
+      // distinct instances, as parameters of different queries are
+      parameters[i] = new Integer(i + 1000);
+    }
+    sql = builder.append(')').toString();
+    cache = new HashMap<CacheKey, Object>();
+    for (int i = 0; i < 100; i++) {
+      cache.put(createKey("other" + i, copy(parameters)), Boolean.TRUE);
+    }
+    cache.put(createKey("selectAuthors", parameters), Boolean.TRUE);
+    key = createKey("selectAuthors", copy(parameters));
+  }
+
+  @Benchmark
+  public CacheKey create() {
+    return createKey("selectAuthors", parameters);
+  }
+
+  @Benchmark
+  public Object lookup() {
+    return cache.get(key);
+  }
+
+  @Benchmark
+  public Object createAndLookup() {
+    return cache.get(createKey("selectAuthors", parameters));
+  }
+
+  private CacheKey createKey(String id, Object[] values) {
+    CacheKey cacheKey = new CacheKey(values.length + 5);
+    cacheKey.update(id);
+    cacheKey.update(0);
+    cacheKey.update(Integer.MAX_VALUE);
+    cacheKey.update(sql);
+    for (Object value : values) {
+      cacheKey.update(value);
+    }
+    cacheKey.update("development");
+    if (compact) {
+      cacheKey.compact();
+    }
+    return cacheKey;
+  }
+
+  private static Object[] copy(Object[] values) {
+    Object[] copy = new Object[values.length];
+    for (int i = 0; i < values.length; i++) {
+      copy[i] = new Integer((Integer) values[i]);
+    }
+    return copy;
+  }
+
+}
@@ -0,0 +1,108 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sets the parameters of an insert of an author, given as a bean or as a map, on a statement that does nothing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParameterHandlerBenchmark {
+
+  private static final String[] PROPERTIES = { "id", "username", "password", "email", "bio", "favouriteSection" };
+
+  @Param({ "bean", "map" })
+  public String parameter;
+
+  private MappedStatement mappedStatement;
+  private Object parameterObject;
+  private BoundSql boundSql;
+  private PreparedStatement ps;
+
+  @Setup
+  public void setup() {
+    Configuration configuration = new Configuration();
+    mappedStatement = new MappedStatement.Builder(configuration, "insertAuthor",
+        new StaticSqlSource(configuration, "insert into author values (?,?,?,?,?,?)"), SqlCommandType.INSERT).build();
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "bio", Section.NEWS);
+    if ("bean".equals(parameter)) {
+      parameterObject = author;
+    } else {
+      Map<String, Object> map = new HashMap<String, Object>();
+      map.put("id", author.getId());
+      map.put("username", author.getUsername());
+      map.put("password", author.getPassword());
+      map.put("email", author.getEmail());
+      map.put("bio", author.getBio());
+      map.put("favouriteSection", author.getFavouriteSection());
+      parameterObject = map;
+    }
+    List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>();
+    for (String property : PROPERTIES) {
+      Class<?> javaType = "id".equals(property) ? Integer.class : "favouriteSection".equals(property) ? Section.class : String.class;
+      parameterMappings.add(new ParameterMapping.Builder(configuration, property, javaType).build());
+    }
+    boundSql = new StaticSqlSource(configuration, "insert into author values (?,?,?,?,?,?)", parameterMappings).getBoundSql(parameterObject);
+    ps = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            return null;
+          }
+        });
+  }
+
+  @Benchmark
+  public void setParameters() {
+    new DefaultParameterHandler(mappedStatement, parameterObject, boundSql).setParameters(ps);
+  }
+
+}
@@ -0,0 +1,78 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSource;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checks a connection out of the pool and returns it. Run it with several threads (-t) to measure contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PoolCheckoutBenchmark {
+
+  @Param({ "POOLED", "CONCURRENT" })
+  public String pool;
+
+  private PooledDataSource dataSource;
+
+  @Setup(Level.Trial)
+  public void setup(BlogDatabase database) {
+    PooledDataSource blogDataSource = database.getDataSource();
+    if ("CONCURRENT".equals(pool)) {
+      dataSource = new ConcurrentPooledDataSource(blogDataSource.getDriver(), blogDataSource.getUrl(),
+          blogDataSource.getUsername(), blogDataSource.getPassword());
+    } else {
+      dataSource = new PooledDataSource(blogDataSource.getDriver(), blogDataSource.getUrl(),
+          blogDataSource.getUsername(), blogDataSource.getPassword());
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    dataSource.forceCloseAll();
+  }
+
+  @Benchmark
+  public Connection checkout() throws SQLException {
+    Connection connection = dataSource.getConnection();
+    connection.close();
+    return connection;
+  }
+
+}
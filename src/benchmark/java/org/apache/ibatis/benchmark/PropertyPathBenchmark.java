@@ -0,0 +1,83 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.reflection.property.PropertyPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads and writes a property of a blog by name, as a parameter or result mapping does,
+ * tokenizing the name on every call or using its parsed path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyPathBenchmark {
+
+  @Param({ "title", "author.username" })
+  public String property;
+
+  private PropertyPath path;
+  private MetaObject blog;
+
+  @Setup
+  public void setup() {
+    path = new PropertyPath(property);
+    Blog value = new Blog(1, "Jim Business", new Author(101, "jim", "********", "jim@ibatis.apache.org", "bio", Section.NEWS), null);
+    blog = SystemMetaObject.forObject(value);
+  }
+
+  @Benchmark
+  public Object getByName() {
+    return blog.getValue(property);
+  }
+
+  @Benchmark
+  public Object getByPath() {
+    return blog.getValue(path);
+  }
+
+  @Benchmark
+  public void setByName() {
+    blog.setValue(property, "jim");
+  }
+
+  @Benchmark
+  public void setByPath() {
+    blog.setValue(path, "jim");
+  }
+
+}
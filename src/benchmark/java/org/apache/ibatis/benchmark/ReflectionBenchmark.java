@@ -0,0 +1,136 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.GeneratedReflectorFactory;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.factory.GeneratedObjectFactory;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creates an author and reads and writes its properties as result and parameter mapping do,
+ * through reflection or through generated accessors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReflectionBenchmark {
+
+  @Param({ "false", "true" })
+  public boolean generated;
+
+  private ObjectFactory objectFactory;
+  private ReflectorFactory reflectorFactory;
+  private MetaObject author;
+  private Invoker[] getters;
+  private Invoker[] setters;
+  private Object[][] arguments;
+
+  @Setup
+  public void setup() {
+    objectFactory = generated ? new GeneratedObjectFactory() : new DefaultObjectFactory();
+    reflectorFactory = generated ? new GeneratedReflectorFactory() : new DefaultReflectorFactory();
+    author = newMetaObject(new Author(101, "jim", "********", "jim@ibatis.apache.org", "bio", Section.NEWS));
+    Reflector reflector = reflectorFactory.findForClass(Author.class);
+    String[] properties = { "id", "username", "password", "email", "bio", "favouriteSection" };
+    Object[] values = { 101, "jim", "********", "jim@ibatis.apache.org", "bio", Section.NEWS };
+    getters = new Invoker[properties.length];
+    setters = new Invoker[properties.length];
+    arguments = new Object[properties.length][];
+    for (int i = 0; i < properties.length; i++) {
+      getters[i] = reflector.getGetInvoker(properties[i]);
+      setters[i] = reflector.getSetInvoker(properties[i]);
+      arguments[i] = new Object[] { values[i] };
+    }
+  }
+
+  @Benchmark
+  public Object invokeSetters() throws Exception {
+    Object row = objectFactory.create(Author.class);
+    for (int i = 0; i < setters.length; i++) {
+      setters[i].invoke(row, arguments[i]);
+    }
+    return row;
+  }
+
+  @Benchmark
+  public Object invokeGetters() throws Exception {
+    Object[] values = new Object[getters.length];
+    Object target = author.getOriginalObject();
+    for (int i = 0; i < getters.length; i++) {
+      values[i] = getters[i].invoke(target, null);
+    }
+    return values;
+  }
+
+  @Benchmark
+  public Object create() {
+    return objectFactory.create(Author.class);
+  }
+
+  @Benchmark
+  public Object mapRow() {
+    MetaObject row = newMetaObject(objectFactory.create(Author.class));
+    row.setValue("id", 101);
+    row.setValue("username", "jim");
+    row.setValue("password", "********");
+    row.setValue("email", "jim@ibatis.apache.org");
+    row.setValue("bio", "bio");
+    row.setValue("favouriteSection", Section.NEWS);
+    return row.getOriginalObject();
+  }
+
+  @Benchmark
+  public Object getValues() {
+    Object[] values = new Object[6];
+    values[0] = author.getValue("id");
+    values[1] = author.getValue("username");
+    values[2] = author.getValue("password");
+    values[3] = author.getValue("email");
+    values[4] = author.getValue("bio");
+    values[5] = author.getValue("favouriteSection");
+    return values;
+  }
+
+  private MetaObject newMetaObject(Object object) {
+    return MetaObject.forObject(object, objectFactory, new DefaultObjectWrapperFactory(), reflectorFactory);
+  }
+
+}
@@ -43,6 +43,24 @@ public @interface CacheNamespace {
   // 刷新间隔时间
   long flushInterval() default 0;
 
+  /**
+   * Milliseconds after which each cached object expires once put, 0 for never.
+   * @since 3.4.7
+   */
+  long expireAfterWrite() default 0;
+
+  /**
+   * Milliseconds after which each cached object expires once last read, 0 for never.
+   * @since 3.4.7
+   */
+  long expireAfterAccess() default 0;
+
+  /**
+   * Milliseconds before the write expiry during which the first read of an object misses so that it is reloaded, 0 for never.
+   * @since 3.4.7
+   */
+  long refreshAhead() default 0;
+
   // 缓存大小
   int size() default 1024;
 
@@ -63,4 +63,13 @@ public @interface Options {
   String keyColumn() default "";
   
   String resultSets() default "";
+
+  /**
+   * Whether the rows of each result object are returned together, as by the <code>resultOrdered</code> attribute
+   * of a select statement. With nested result maps, each object is then handed to the result handler as soon as
+   * its rows have been read, and forgotten.
+   *
+   * @since 3.4.7
+   */
+  boolean resultOrdered() default false;
 }
@@ -0,0 +1,89 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.AsyncSqlSession;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionCallback;
+
+/**
+ * Runs the methods of a mapper that return a {@link java.util.concurrent.Future} with an {@link AsyncSqlSession},
+ * each in a session and transaction of its own.
+ *
+ * @since 3.4.7
+ */
+public class AsyncMapperProxy<T> implements InvocationHandler {
+
+  private final AsyncSqlSession asyncSqlSession;
+  private final Class<T> mapperInterface;
+  private final Configuration configuration;
+  private final ConcurrentMap<Method, MapperMethod> methodCache = new ConcurrentHashMap<Method, MapperMethod>();
+
+  public AsyncMapperProxy(AsyncSqlSession asyncSqlSession, Class<T> mapperInterface, Configuration configuration) {
+    this.asyncSqlSession = asyncSqlSession;
+    this.mapperInterface = mapperInterface;
+    this.configuration = configuration;
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> T newInstance(AsyncSqlSession asyncSqlSession, Class<T> mapperInterface, Configuration configuration) {
+    if (!configuration.hasMapper(mapperInterface)) {
+      throw new BindingException("Type " + mapperInterface + " is not known to the MapperRegistry.");
+    }
+    return (T) Proxy.newProxyInstance(mapperInterface.getClassLoader(), new Class[] { mapperInterface },
+        new AsyncMapperProxy<T>(asyncSqlSession, mapperInterface, configuration));
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, final Object[] args) throws Throwable {
+    if (Object.class.equals(method.getDeclaringClass())) {
+      try {
+        return method.invoke(this, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+    final MapperMethod mapperMethod = cachedMapperMethod(method);
+    if (!mapperMethod.returnsFuture()) {
+      throw new BindingException("Mapper method '" + mapperInterface.getName() + "." + method.getName()
+          + "' must return a Future to be called on a mapper of an AsyncSqlSession.");
+    }
+    return asyncSqlSession.execute(new SqlSessionCallback<Object>() {
+      @Override
+      public Object doInSession(SqlSession sqlSession) {
+        return mapperMethod.executeInSession(sqlSession, args);
+      }
+    });
+  }
+
+  private MapperMethod cachedMapperMethod(Method method) {
+    MapperMethod mapperMethod = methodCache.get(method);
+    if (mapperMethod == null) {
+      mapperMethod = new MapperMethod(mapperInterface, method, configuration);
+      methodCache.put(method, mapperMethod);
+    }
+    return mapperMethod;
+  }
+
+}
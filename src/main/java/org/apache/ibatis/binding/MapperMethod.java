@@ -34,6 +34,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.Future;
 
 /**
  * @author Clinton Begin
@@ -58,6 +59,22 @@ public class MapperMethod {
    * @return
    */
   public Object execute(SqlSession sqlSession, Object[] args) {
+    if (method.returnsFuture()) {
+      // run in another thread, the statement could not be part of the transaction of the session
+      throw new BindingException("Mapper method '" + command.getName() + "' returns a Future, so it can only be called"
+          + " on a mapper of an AsyncSqlSession, where it runs in a session and transaction of its own.");
+    }
+    return executeInSession(sqlSession, args);
+  }
+
+  boolean returnsFuture() {
+    return method.returnsFuture();
+  }
+
+  /*
+   * Runs the statement in the session, returning what the future of a method returning a Future holds
+   */
+  Object executeInSession(SqlSession sqlSession, Object[] args) {
     Object result;
     switch (command.getType()) {
       case INSERT: {
@@ -283,6 +300,7 @@ public class MapperMethod {
     private final boolean returnsMap;     // 返回Map集合
     private final boolean returnsVoid;    // 无返回值
     private final boolean returnsCursor;  // 返回游标（暂未遇到）
+    private final boolean returnsFuture;
     private final Class<?> returnType;    // 返回值类型
     private final String mapKey;
     private final Integer resultHandlerIndex;
@@ -291,17 +309,22 @@ public class MapperMethod {
 
     public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method) {
       Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, mapperInterface);
-      if (resolvedReturnType instanceof Class<?>) {
-        this.returnType = (Class<?>) resolvedReturnType;
-      } else if (resolvedReturnType instanceof ParameterizedType) {
-        this.returnType = (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType();
+      this.returnsFuture = Future.class.equals(toClass(resolvedReturnType, method.getReturnType()));
+      if (this.returnsFuture) {
+        // the statement returns the type of the result of the future
+        Type resultType = resolvedReturnType instanceof ParameterizedType
+            ? ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0] : Object.class;
+        this.returnType = toClass(resultType, Object.class);
       } else {
-        this.returnType = method.getReturnType();
+        this.returnType = toClass(resolvedReturnType, method.getReturnType());
       }
-      this.returnsVoid = void.class.equals(this.returnType);
+      this.returnsVoid = void.class.equals(this.returnType) || (this.returnsFuture && Void.class.equals(this.returnType));
       this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
       this.returnsCursor = Cursor.class.equals(this.returnType);
-      this.mapKey = getMapKey(method);
+      if (this.returnsFuture && this.returnsCursor) {
+        throw new BindingException(method.getName() + " cannot return a Cursor in a Future, as the cursor is closed with its session");
+      }
+      this.mapKey = getMapKey(method, this.returnType);
       this.returnsMap = this.mapKey != null;
       this.rowBoundsIndex = getUniqueParamIndex(method, RowBounds.class);
       this.resultHandlerIndex = getUniqueParamIndex(method, ResultHandler.class);
@@ -352,6 +375,23 @@ public class MapperMethod {
       return returnsCursor;
     }
 
+    /**
+     * @return true if the method runs asynchronously, {@link #getReturnType()} being then the type of the result of the future
+     * @since 3.4.7
+     */
+    public boolean returnsFuture() {
+      return returnsFuture;
+    }
+
+    private static Class<?> toClass(Type type, Class<?> defaultType) {
+      if (type instanceof Class<?>) {
+        return (Class<?>) type;
+      } else if (type instanceof ParameterizedType) {
+        return (Class<?>) ((ParameterizedType) type).getRawType();
+      }
+      return defaultType;
+    }
+
     private Integer getUniqueParamIndex(Method method, Class<?> paramType) {
       Integer index = null;
       final Class<?>[] argTypes = method.getParameterTypes();
@@ -367,9 +407,9 @@ public class MapperMethod {
       return index;
     }
 
-    private String getMapKey(Method method) {
+    private String getMapKey(Method method, Class<?> returnType) {
       String mapKey = null;
-      if (Map.class.isAssignableFrom(method.getReturnType())) {
+      if (Map.class.isAssignableFrom(returnType)) {
         final MapKey mapKeyAnnotation = method.getAnnotation(MapKey.class);
         if (mapKeyAnnotation != null) {
           mapKey = mapKeyAnnotation.value();
@@ -159,10 +159,29 @@ public class MapperBuilderAssistant extends BaseBuilder {
       boolean readWrite,
       boolean blocking,
       Properties props) {
+    return useNewCache(typeClass, evictionClass, flushInterval, null, null, null, size, readWrite, blocking, props);
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public Cache useNewCache(Class<? extends Cache> typeClass,
+      Class<? extends Cache> evictionClass,
+      Long flushInterval,
+      Long expireAfterWrite,
+      Long expireAfterAccess,
+      Long refreshAhead,
+      Integer size,
+      boolean readWrite,
+      boolean blocking,
+      Properties props) {
     Cache cache = new CacheBuilder(currentNamespace)
         .implementation(valueOrDefault(typeClass, PerpetualCache.class))
         .addDecorator(valueOrDefault(evictionClass, LruCache.class))
         .clearInterval(flushInterval)
+        .expireAfterWrite(expireAfterWrite)
+        .expireAfterAccess(expireAfterAccess)
+        .refreshAhead(refreshAhead)
         .size(size)
         .readWrite(readWrite)
         .blocking(blocking)
@@ -462,6 +481,30 @@ public class MapperBuilderAssistant extends BaseBuilder {
       String resultSet,
       String foreignColumn,
       boolean lazy) {
+    return buildResultMapping(resultType, property, column, javaType, jdbcType, nestedSelect, nestedResultMap, notNullColumn,
+        columnPrefix, typeHandler, flags, resultSet, foreignColumn, lazy, false);
+  }
+
+  /**
+   * @param lazyBatch whether loading the property lazily loads it for the other results of the statement too
+   * @since 3.4.7
+   */
+  public ResultMapping buildResultMapping(
+      Class<?> resultType,
+      String property,
+      String column,
+      Class<?> javaType,
+      JdbcType jdbcType,
+      String nestedSelect,
+      String nestedResultMap,
+      String notNullColumn,
+      String columnPrefix,
+      Class<? extends TypeHandler<?>> typeHandler,
+      List<ResultFlag> flags,
+      String resultSet,
+      String foreignColumn,
+      boolean lazy,
+      boolean lazyBatch) {
     // 获取对应字段的java反射类型
     Class<?> javaTypeClass = resolveResultJavaType(resultType, property, javaType);
     // 获取对应字段的类型处理器
@@ -481,6 +524,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .columnPrefix(columnPrefix)
         .foreignColumn(foreignColumn)
         .lazy(lazy)
+        .lazyBatch(lazyBatch)
         .build();   // 构建一个ResultMapping
   }
 
@@ -54,6 +54,40 @@ public class SqlSourceBuilder extends BaseBuilder {
     return new StaticSqlSource(configuration, sql, handler.getParameterMappings());   // 返回静态的sqlSource（普通sql，而非动态sql）
   }
 
+  /**
+   * Same as {@link #parse(String, Class, Map)}, for a sql whose parameters were already replaced by <code>?</code>
+   * with {@link #parseParameters(String, List)}.
+   *
+   * @param sql the sql, with a <code>?</code> for each parameter
+   * @param parameters the parsed parameters, in order
+   * @since 3.4.7
+   */
+  public SqlSource build(String sql, List<Map<String, String>> parameters, Class<?> parameterType, Map<String, Object> additionalParameters) {
+    ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(configuration, parameterType, additionalParameters);
+    List<ParameterMapping> parameterMappings = handler.getParameterMappings();
+    for (Map<String, String> parameter : parameters) {
+      parameterMappings.add(handler.buildParameterMapping(parameter, String.valueOf(parameter)));
+    }
+    return new StaticSqlSource(configuration, sql, parameterMappings);
+  }
+
+  /**
+   * Replaces the <code>#{}</code> parameters of a sql by <code>?</code> and adds them, parsed, to the given list.
+   *
+   * @return the sql, with a <code>?</code> for each parameter
+   * @since 3.4.7
+   */
+  public static String parseParameters(String originalSql, final List<Map<String, String>> parameters) {
+    GenericTokenParser parser = new GenericTokenParser("#{", "}", new TokenHandler() {
+      @Override
+      public String handleToken(String content) {
+        parameters.add(ParameterMappingTokenHandler.parseParameterMapping(content));
+        return "?";
+      }
+    });
+    return parser.parse(originalSql);
+  }
+
   /**
    * 参数映射Token处理器
    */
@@ -93,6 +127,10 @@ public class SqlSourceBuilder extends BaseBuilder {
      */
     private ParameterMapping buildParameterMapping(String content) {
       Map<String, String> propertiesMap = parseParameterMapping(content);   // 解析入参对应的实体类字段，解析jdbc的类型
+      return buildParameterMapping(propertiesMap, content);
+    }
+
+    private ParameterMapping buildParameterMapping(Map<String, String> propertiesMap, String content) {
       String property = propertiesMap.get("property");    // 取出属性的名称
       Class<?> propertyType;
       if (metaParameters.hasGetter(property)) { // issue #448 get type from additional params
@@ -152,7 +190,7 @@ public class SqlSourceBuilder extends BaseBuilder {
      * @param content
      * @return
      */
-    private Map<String, String> parseParameterMapping(String content) {
+    private static Map<String, String> parseParameterMapping(String content) {
       try {
         return new ParameterExpression(content);    // 这个对象是HashMap的子类
       } catch (BuilderException ex) {
@@ -20,6 +20,7 @@ import java.util.List;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.defaults.ParameterBinders;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -30,6 +31,7 @@ public class StaticSqlSource implements SqlSource {
   private final String sql;
   private final List<ParameterMapping> parameterMappings;
   private final Configuration configuration;
+  private final ParameterBinders parameterBinders;
 
   public StaticSqlSource(Configuration configuration, String sql) {
     this(configuration, sql, null);
@@ -39,11 +41,12 @@ public class StaticSqlSource implements SqlSource {
     this.sql = sql;
     this.parameterMappings = parameterMappings;
     this.configuration = configuration;
+    this.parameterBinders = parameterMappings == null ? null : new ParameterBinders(configuration, parameterMappings);
   }
 
   @Override
   public BoundSql getBoundSql(Object parameterObject) {
-    return new BoundSql(configuration, sql, parameterMappings, parameterObject);
+    return new BoundSql(configuration, sql, parameterMappings, parameterObject, parameterBinders);
   }
 
 }
@@ -33,6 +33,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 import org.apache.ibatis.annotations.Arg;
 import org.apache.ibatis.annotations.CacheNamespace;
@@ -204,9 +205,13 @@ public class MapperAnnotationBuilder {
     if (cacheDomain != null) {
       Integer size = cacheDomain.size() == 0 ? null : cacheDomain.size();
       Long flushInterval = cacheDomain.flushInterval() == 0 ? null : cacheDomain.flushInterval();
+      Long expireAfterWrite = cacheDomain.expireAfterWrite() == 0 ? null : cacheDomain.expireAfterWrite();
+      Long expireAfterAccess = cacheDomain.expireAfterAccess() == 0 ? null : cacheDomain.expireAfterAccess();
+      Long refreshAhead = cacheDomain.refreshAhead() == 0 ? null : cacheDomain.refreshAhead();
       // 注解转换为对象
       Properties props = convertToProperties(cacheDomain.properties());
-      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(), cacheDomain.blocking(), props);
+      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, expireAfterWrite, expireAfterAccess,
+          refreshAhead, size, cacheDomain.readWrite(), cacheDomain.blocking(), props);
     }
   }
 
@@ -337,6 +342,7 @@ public class MapperAnnotationBuilder {
       boolean isSelect = sqlCommandType == SqlCommandType.SELECT;
       boolean flushCache = !isSelect;
       boolean useCache = isSelect;
+      boolean resultOrdered = false;
 
       KeyGenerator keyGenerator;
       String keyProperty = "id";
@@ -371,6 +377,7 @@ public class MapperAnnotationBuilder {
         timeout = options.timeout() > -1 ? options.timeout() : null;
         statementType = options.statementType();
         resultSetType = options.resultSetType();
+        resultOrdered = options.resultOrdered();
       }
 
       String resultMapId = null;
@@ -404,8 +411,7 @@ public class MapperAnnotationBuilder {
           resultSetType,
           flushCache,
           useCache,
-          // TODO gcode issue #577
-          false,
+          resultOrdered,
           keyGenerator,
           keyProperty,
           keyColumn,
@@ -451,6 +457,15 @@ public class MapperAnnotationBuilder {
   private Class<?> getReturnType(Method method) {
     Class<?> returnType = method.getReturnType();
     Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, type);
+    if (resolvedReturnType instanceof ParameterizedType
+        && Future.class.equals(((ParameterizedType) resolvedReturnType).getRawType())) {
+      // the statement returns the result of the future
+      resolvedReturnType = ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0];
+      returnType = Object.class;
+      if (Void.class.equals(resolvedReturnType)) {
+        resolvedReturnType = void.class;
+      }
+    }
     if (resolvedReturnType instanceof Class) {
       returnType = (Class<?>) resolvedReturnType;
       if (returnType.isArray()) {
@@ -623,7 +638,8 @@ public class MapperAnnotationBuilder {
           flags,
           null,
           null,
-          isLazy(result));
+          isLazy(result),
+          getFetchType(result) == FetchType.BATCH);
       resultMappings.add(resultMapping);
     }
   }
@@ -640,13 +656,20 @@ public class MapperAnnotationBuilder {
   }
 
   private boolean isLazy(Result result) {
-    boolean isLazy = configuration.isLazyLoadingEnabled();
-    if (result.one().select().length() > 0 && FetchType.DEFAULT != result.one().fetchType()) {
-      isLazy = result.one().fetchType() == FetchType.LAZY;
-    } else if (result.many().select().length() > 0 && FetchType.DEFAULT != result.many().fetchType()) {
-      isLazy = result.many().fetchType() == FetchType.LAZY;
+    FetchType fetchType = getFetchType(result);
+    if (fetchType == FetchType.DEFAULT) {
+      return configuration.isLazyLoadingEnabled();
+    }
+    return fetchType == FetchType.LAZY || fetchType == FetchType.BATCH;
+  }
+
+  private FetchType getFetchType(Result result) {
+    if (result.one().select().length() > 0) {
+      return result.one().fetchType();
+    } else if (result.many().select().length() > 0) {
+      return result.many().fetchType();
     }
-    return isLazy;
+    return FetchType.DEFAULT;
   }
 
   private boolean hasNestedSelect(Result result) {
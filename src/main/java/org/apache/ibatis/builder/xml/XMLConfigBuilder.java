@@ -25,6 +25,7 @@ import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.datasource.DataSourceFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.loader.ProxyFactory;
+import org.apache.ibatis.executor.pagination.PaginationDialect;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
@@ -286,6 +287,16 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setAutoMappingBehavior(AutoMappingBehavior.valueOf(props.getProperty("autoMappingBehavior", "PARTIAL")));
     configuration.setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior.valueOf(props.getProperty("autoMappingUnknownColumnBehavior", "NONE")));
     configuration.setCacheEnabled(booleanValueOf(props.getProperty("cacheEnabled"), true));
+    configuration.setCoalesceCacheMisses(booleanValueOf(props.getProperty("coalesceCacheMisses"), false));
+    configuration.setCompactCacheKeys(booleanValueOf(props.getProperty("compactCacheKeys"), false));
+    configuration.setCompileResultMaps(booleanValueOf(props.getProperty("compileResultMaps"), false));
+    configuration.setPhysicalPagination(booleanValueOf(props.getProperty("physicalPagination"), false));
+    configuration.setPaginationDialect((PaginationDialect) createInstance(props.getProperty("paginationDialect")));
+    configuration.setNestedSelectBatchSize(integerValueOf(props.getProperty("nestedSelectBatchSize"), 0));
+    configuration.setLazyLoadBatchSize(integerValueOf(props.getProperty("lazyLoadBatchSize"), 0));
+    configuration.setDynamicSqlCacheSize(integerValueOf(props.getProperty("dynamicSqlCacheSize"), 64));
+    configuration.setCompileDynamicSql(booleanValueOf(props.getProperty("compileDynamicSql"), false));
+    configuration.setAsyncExecutorThreads(integerValueOf(props.getProperty("asyncExecutorThreads"), 10));
     configuration.setProxyFactory((ProxyFactory) createInstance(props.getProperty("proxyFactory")));
     configuration.setLazyLoadingEnabled(booleanValueOf(props.getProperty("lazyLoadingEnabled"), false));
     configuration.setAggressiveLazyLoading(booleanValueOf(props.getProperty("aggressiveLazyLoading"), false));
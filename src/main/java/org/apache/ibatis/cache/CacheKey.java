@@ -16,8 +16,7 @@
 package org.apache.ibatis.cache;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import org.apache.ibatis.reflection.ArrayUtil;
 
@@ -26,46 +25,56 @@ import org.apache.ibatis.reflection.ArrayUtil;
  */
 public class CacheKey implements Cloneable, Serializable {
 
-  private static final long serialVersionUID = 1146682552656046210L;
+  private static final long serialVersionUID = -1390208618417519826L;
 
   public static final CacheKey NULL_CACHE_KEY = new NullCacheKey();
 
-  private static final int DEFAULT_MULTIPLYER = 37;
-  private static final int DEFAULT_HASHCODE = 17;
+  private static final long DEFAULT_HASH = 0xCBF29CE484222325L;
+  private static final int DEFAULT_CAPACITY = 8;
 
-  private final int multiplier;
-  private int hashcode;
-  private long checksum;
+  // 64 bit hash updated with each object, so that keys rarely collide even with many updates
+  private long hash;
   private int count;
   // 8/21/2017 - Sonarlint flags this as needing to be marked transient.  While true if content is not serializable, this is not always true and thus should not be marked transient.
-  private List<Object> updateList;
+  private Object[] updates;
+  // the updates encoded by compact(), in which case updates is null
+  private byte[] compactUpdates;
 
   public CacheKey() {
-    this.hashcode = DEFAULT_HASHCODE;
-    this.multiplier = DEFAULT_MULTIPLYER;
+    this(DEFAULT_CAPACITY);
+  }
+
+  /*
+   * @param expectedUpdateCount the number of updates the key will likely get
+   * @since 3.4.7
+   */
+  public CacheKey(int expectedUpdateCount) {
+    this.hash = DEFAULT_HASH;
     this.count = 0;
-    this.updateList = new ArrayList<Object>();
+    this.updates = new Object[Math.max(expectedUpdateCount, 1)];
   }
 
   public CacheKey(Object[] objects) {
-    this();
+    this(objects.length);
     updateAll(objects);
   }
 
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   public void update(Object object) {
-    int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object); 
-
-    count++;
-    checksum += baseHashCode;
-    baseHashCode *= count;
+    int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
 
-    hashcode = multiplier * hashcode + baseHashCode;
+    hash = (Long.rotateLeft(hash, 31) ^ (baseHashCode * 0x9E3779B97F4A7C15L)) * 0xBF58476D1CE4E5B9L;
 
-    updateList.add(object);
+    if (compactUpdates != null) {
+      updates = CacheKeyCodec.decode(compactUpdates, count + 1);
+      compactUpdates = null;
+    } else if (count == updates.length) {
+      updates = Arrays.copyOf(updates, count << 1);
+    }
+    updates[count++] = object;
   }
 
   public void updateAll(Object[] objects) {
@@ -74,6 +83,24 @@ public class CacheKey implements Cloneable, Serializable {
     }
   }
 
+  /*
+   * Encodes the updates into a single byte array when they are all strings, primitive wrappers,
+   * byte arrays or nulls. A compact key takes less memory and compares faster; it is equal to the
+   * same key not compacted.
+   *
+   * @return true if the key is compact
+   * @since 3.4.7
+   */
+  public boolean compact() {
+    if (compactUpdates == null) {
+      compactUpdates = CacheKeyCodec.encode(updates, count);
+      if (compactUpdates != null) {
+        updates = null;
+      }
+    }
+    return compactUpdates != null;
+  }
+
   @Override
   public boolean equals(Object object) {
     if (this == object) {
@@ -85,20 +112,24 @@ public class CacheKey implements Cloneable, Serializable {
 
     final CacheKey cacheKey = (CacheKey) object;
 
-    if (hashcode != cacheKey.hashcode) {
-      return false;
-    }
-    if (checksum != cacheKey.checksum) {
+    if (hash != cacheKey.hash) {
       return false;
     }
     if (count != cacheKey.count) {
       return false;
     }
 
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
-      if (!ArrayUtil.equals(thisObject, thatObject)) {
+    if (compactUpdates != null || cacheKey.compactUpdates != null) {
+      byte[] thisBytes = compactUpdates != null ? compactUpdates : CacheKeyCodec.encode(updates, count);
+      byte[] thatBytes = cacheKey.compactUpdates != null ? cacheKey.compactUpdates : CacheKeyCodec.encode(cacheKey.updates, count);
+      // an update that cannot be encoded cannot equal one that can
+      return thisBytes != null && Arrays.equals(thisBytes, thatBytes);
+    }
+    for (int i = 0; i < count; i++) {
+      Object thisObject = updates[i];
+      Object thatObject = cacheKey.updates[i];
+      // statement ids and static SQL are shared instances
+      if (thisObject != thatObject && !ArrayUtil.equals(thisObject, thatObject)) {
         return false;
       }
     }
@@ -107,14 +138,15 @@ public class CacheKey implements Cloneable, Serializable {
 
   @Override
   public int hashCode() {
-    return hashcode;
+    return (int) (hash ^ (hash >>> 32));
   }
 
   @Override
   public String toString() {
-    StringBuilder returnValue = new StringBuilder().append(hashcode).append(':').append(checksum);
-    for (Object object : updateList) {
-      returnValue.append(':').append(ArrayUtil.toString(object));
+    StringBuilder returnValue = new StringBuilder().append(hashCode()).append(':').append(hash);
+    Object[] objects = compactUpdates != null ? CacheKeyCodec.decode(compactUpdates, count) : updates;
+    for (int i = 0; i < count; i++) {
+      returnValue.append(':').append(ArrayUtil.toString(objects[i]));
     }
     return returnValue.toString();
   }
@@ -122,7 +154,9 @@ public class CacheKey implements Cloneable, Serializable {
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<Object>(updateList);
+    if (updates != null) {
+      clonedCacheKey.updates = updates.clone();
+    }
     return clonedCacheKey;
   }
 
@@ -0,0 +1,273 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Arrays;
+
+/**
+ * Encodes the updates of a {@link CacheKey} into a byte array, and back.
+ * <p>
+ * Each update is written as a type tag followed by its value, so that two encodings are equal
+ * exactly when the updates are equal.
+ */
+final class CacheKeyCodec {
+
+  private static final byte NULL = 0;
+  private static final byte ASCII_STRING = 1;
+  private static final byte STRING = 2;
+  private static final byte INTEGER = 3;
+  private static final byte LONG = 4;
+  private static final byte SHORT = 5;
+  private static final byte BYTE = 6;
+  private static final byte TRUE = 7;
+  private static final byte FALSE = 8;
+  private static final byte CHARACTER = 9;
+  private static final byte FLOAT = 10;
+  private static final byte DOUBLE = 11;
+  private static final byte BYTES = 12;
+
+  private static final int INITIAL_BUFFER = 1024;
+  private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+  // encoders reuse their buffer, so that encoding a key only allocates its result
+  private static final ThreadLocal<CacheKeyCodec> ENCODERS = new ThreadLocal<CacheKeyCodec>() {
+    @Override
+    protected CacheKeyCodec initialValue() {
+      return new CacheKeyCodec(INITIAL_BUFFER);
+    }
+  };
+
+  private byte[] buffer;
+  private int position;
+
+  private CacheKeyCodec(int capacity) {
+    this.buffer = new byte[capacity];
+  }
+
+  /*
+   * @return the encoded updates, or null if one of them cannot be encoded
+   */
+  static byte[] encode(Object[] updates, int count) {
+    CacheKeyCodec codec = ENCODERS.get();
+    codec.position = 0;
+    for (int i = 0; i < count; i++) {
+      if (!codec.write(updates[i])) {
+        return null;
+      }
+    }
+    byte[] bytes = Arrays.copyOf(codec.buffer, codec.position);
+    if (codec.buffer.length > MAX_RETAINED_BUFFER) {
+      codec.buffer = new byte[INITIAL_BUFFER];
+    }
+    return bytes;
+  }
+
+  /*
+   * @return an array of capacity elements starting with the count decoded updates
+   */
+  static Object[] decode(byte[] bytes, int capacity) {
+    CacheKeyCodec codec = new CacheKeyCodec(0);
+    codec.buffer = bytes;
+    Object[] updates = new Object[capacity];
+    for (int i = 0; codec.position < bytes.length; i++) {
+      updates[i] = codec.read();
+    }
+    return updates;
+  }
+
+  private boolean write(Object object) {
+    // room for the tag and any fixed size value
+    ensureCapacity(9);
+    if (object == null) {
+      writeByte(NULL);
+      return true;
+    }
+    // exact classes only: none of them is equal to an instance of another class
+    Class<?> type = object.getClass();
+    if (type == String.class) {
+      writeString((String) object);
+    } else if (type == Integer.class) {
+      writeByte(INTEGER);
+      writeInt((Integer) object);
+    } else if (type == Long.class) {
+      writeByte(LONG);
+      writeLong((Long) object);
+    } else if (type == Short.class) {
+      writeByte(SHORT);
+      writeChar((Short) object);
+    } else if (type == Byte.class) {
+      writeByte(BYTE);
+      writeByte((Byte) object);
+    } else if (type == Boolean.class) {
+      writeByte((Boolean) object ? TRUE : FALSE);
+    } else if (type == Character.class) {
+      writeByte(CHARACTER);
+      writeChar((Character) object);
+    } else if (type == Float.class) {
+      writeByte(FLOAT);
+      writeInt(Float.floatToIntBits((Float) object));
+    } else if (type == Double.class) {
+      writeByte(DOUBLE);
+      writeLong(Double.doubleToLongBits((Double) object));
+    } else if (type == byte[].class) {
+      byte[] bytes = (byte[]) object;
+      writeByte(BYTES);
+      writeLength(bytes.length);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, position, bytes.length);
+      position += bytes.length;
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  private void writeString(String value) {
+    int length = value.length();
+    char[] chars = new char[length];
+    value.getChars(0, length, chars, 0);
+    boolean ascii = true;
+    for (int i = 0; i < length && ascii; i++) {
+      ascii = chars[i] < 0x80;
+    }
+    writeByte(ascii ? ASCII_STRING : STRING);
+    writeLength(length);
+    ensureCapacity(ascii ? length : length * 2);
+    byte[] b = buffer;
+    int p = position;
+    if (ascii) {
+      for (int i = 0; i < length; i++) {
+        b[p++] = (byte) chars[i];
+      }
+    } else {
+      for (int i = 0; i < length; i++) {
+        b[p++] = (byte) (chars[i] >>> 8);
+        b[p++] = (byte) chars[i];
+      }
+    }
+    position = p;
+  }
+
+  private void writeLength(int length) {
+    ensureCapacity(5);
+    while ((length & ~0x7F) != 0) {
+      writeByte((length & 0x7F) | 0x80);
+      length >>>= 7;
+    }
+    writeByte(length);
+  }
+
+  // the writers of fixed size values rely on the capacity ensured by write()
+
+  private void writeLong(long value) {
+    writeInt((int) (value >>> 32));
+    writeInt((int) value);
+  }
+
+  private void writeInt(int value) {
+    byte[] b = buffer;
+    int p = position;
+    b[p] = (byte) (value >>> 24);
+    b[p + 1] = (byte) (value >>> 16);
+    b[p + 2] = (byte) (value >>> 8);
+    b[p + 3] = (byte) value;
+    position = p + 4;
+  }
+
+  private void writeChar(int value) {
+    buffer[position++] = (byte) (value >>> 8);
+    buffer[position++] = (byte) value;
+  }
+
+  private void writeByte(int value) {
+    buffer[position++] = (byte) value;
+  }
+
+  private void ensureCapacity(int length) {
+    if (position + length > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+    }
+  }
+
+  private Object read() {
+    byte tag = buffer[position++];
+    switch (tag) {
+      case NULL:
+        return null;
+      case ASCII_STRING:
+      case STRING:
+        return readString(tag == ASCII_STRING);
+      case INTEGER:
+        return readInt();
+      case LONG:
+        return readLong();
+      case SHORT:
+        return (short) readChar();
+      case BYTE:
+        return buffer[position++];
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case CHARACTER:
+        return (char) readChar();
+      case FLOAT:
+        return Float.intBitsToFloat(readInt());
+      case DOUBLE:
+        return Double.longBitsToDouble(readLong());
+      case BYTES:
+        int length = readLength();
+        byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+        position += length;
+        return bytes;
+      default:
+        throw new CacheException("Unknown cache key update type " + tag + ".");
+    }
+  }
+
+  private String readString(boolean ascii) {
+    int length = readLength();
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = ascii ? (char) (buffer[position++] & 0xFF) : (char) readChar();
+    }
+    return new String(chars);
+  }
+
+  private int readLength() {
+    int length = 0;
+    for (int shift = 0;; shift += 7) {
+      byte b = buffer[position++];
+      length |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return length;
+      }
+    }
+  }
+
+  private long readLong() {
+    return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+  }
+
+  private int readInt() {
+    return (readChar() << 16) | readChar();
+  }
+
+  private int readChar() {
+    return ((buffer[position++] & 0xFF) << 8) | (buffer[position++] & 0xFF);
+  }
+
+}
@@ -0,0 +1,217 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+
+/**
+ * Coalesces concurrent second-level cache misses on the same key into a single database load.
+ * <p>
+ * The first session that misses runs the load; sessions missing the same key meanwhile wait for it and get
+ * a copy of its result, made by serialization as a read-write cache does, without waiting for the loading
+ * session to commit. The result is serialized by the loading session before it gets it back, so that waiting
+ * sessions never see the changes it makes to it. The entry of a load is removed as soon as it completes. If the load fails or its result
+ * is not serializable, waiting sessions run their own load. Nested queries run by a load never wait, and a
+ * session waits for a bounded time only: past it, it runs its own load rather than risk waiting on a load
+ * that is itself blocked by a lock the waiting session holds.
+ * <p>
+ * One instance is shared by all the sessions of a {@link org.apache.ibatis.session.Configuration}.
+ */
+public class CacheLoadCoalescer {
+
+  private static final Object NOT_SHARED = new Object();
+  private static final long DEFAULT_WAIT_TIMEOUT = 10000;
+
+  private final ConcurrentMap<LoadKey, Load> loads = new ConcurrentHashMap<LoadKey, Load>();
+  private final ThreadLocal<Boolean> loading = new ThreadLocal<Boolean>();
+  private final long waitTimeout;
+
+  public CacheLoadCoalescer() {
+    this(DEFAULT_WAIT_TIMEOUT);
+  }
+
+  /**
+   * @param waitTimeout the milliseconds a session waits for the load of another one before running its own
+   */
+  public CacheLoadCoalescer(long waitTimeout) {
+    this.waitTimeout = waitTimeout;
+  }
+
+  /*
+   * Returns the result of the load in progress for this key, or runs the given one
+   *
+   * @param cache the cache the key belongs to
+   * @param key the key that missed
+   * @param loader the database load
+   * @return the loaded object
+   */
+  public <T> T load(Cache cache, CacheKey key, Callable<T> loader) throws Exception {
+    if (loading.get() != null) {
+      // nested query of a load: waiting could deadlock with a load waiting for ours
+      return loader.call();
+    }
+    LoadKey loadKey = new LoadKey(cache, key);
+    Load load = new Load();
+    Load inProgress = loads.putIfAbsent(loadKey, load);
+    if (inProgress != null) {
+      Object shared = inProgress.awaitCopy(waitTimeout);
+      if (shared != NOT_SHARED) {
+        @SuppressWarnings("unchecked")
+        T result = (T) shared;
+        return result;
+      }
+      return call(loader);
+    }
+    try {
+      T result = call(loader);
+      load.complete(result);
+      return result;
+    } finally {
+      // waiters that did not get the result run their own load
+      load.complete(NOT_SHARED);
+      loads.remove(loadKey, load);
+    }
+  }
+
+  private <T> T call(Callable<T> loader) throws Exception {
+    loading.set(Boolean.TRUE);
+    try {
+      return loader.call();
+    } finally {
+      loading.remove();
+    }
+  }
+
+  /*
+   * The number of loads in progress
+   */
+  public int getLoadCount() {
+    return loads.size();
+  }
+
+  private static final class LoadKey {
+
+    private final Cache cache;
+    private final CacheKey key;
+
+    LoadKey(Cache cache, CacheKey key) {
+      this.cache = cache;
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof LoadKey)) {
+        return false;
+      }
+      LoadKey other = (LoadKey) o;
+      return cache == other.cache && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(cache) + key.hashCode();
+    }
+
+  }
+
+  private static final class Load {
+
+    private final CountDownLatch done = new CountDownLatch(1);
+    private int waiterCount;
+    // the result serialized when the load completed, or null when it is not shared
+    private byte[] serializedResult;
+
+    /*
+     * Runs on the loading thread, before the result is handed back to the loading session and can be changed
+     */
+    void complete(Object result) {
+      synchronized (this) {
+        if (done.getCount() == 0) {
+          return;
+        }
+        if (waiterCount > 0 && result != NOT_SHARED && (result == null || result instanceof Serializable)) {
+          try {
+            serializedResult = serialize(result);
+          } catch (Exception e) {
+            serializedResult = null;
+          }
+        }
+        done.countDown();
+      }
+    }
+
+    Object awaitCopy(long timeout) {
+      synchronized (this) {
+        // a load that already completed without waiters kept no copy
+        waiterCount++;
+      }
+      try {
+        if (!done.await(timeout, TimeUnit.MILLISECONDS)) {
+          return NOT_SHARED;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return NOT_SHARED;
+      }
+      byte[] bytes;
+      synchronized (this) {
+        bytes = serializedResult;
+      }
+      if (bytes == null) {
+        return NOT_SHARED;
+      }
+      try {
+        return deserialize(bytes);
+      } catch (Exception e) {
+        return NOT_SHARED;
+      }
+    }
+
+    private static byte[] serialize(Object value) throws Exception {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      ObjectOutputStream oos = new ObjectOutputStream(bos);
+      oos.writeObject(value);
+      oos.close();
+      return bos.toByteArray();
+    }
+
+    private static Object deserialize(byte[] value) throws Exception {
+      ObjectInputStream ois = new SerializedCache.CustomObjectInputStream(new ByteArrayInputStream(value));
+      try {
+        return ois.readObject();
+      } finally {
+        ois.close();
+      }
+    }
+
+  }
+
+}
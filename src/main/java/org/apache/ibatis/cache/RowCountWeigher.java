@@ -0,0 +1,43 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Weighs query results by their number of rows: the size of a list (or of any collection or map),
+ * 1 for a single object.
+ * <p>
+ * Read-write caches store serialized results, which this weigher cannot count the rows of, so it is meant
+ * for read-only caches (<code>readOnly="true"</code>). Use {@link SerializedSizeWeigher} otherwise.
+ */
+public class RowCountWeigher implements Weigher {
+
+  @Override
+  public int weigh(Object key, Object value) {
+    int rows = 1;
+    if (value instanceof Collection) {
+      rows = ((Collection<?>) value).size();
+    } else if (value instanceof Map) {
+      rows = ((Map<?, ?>) value).size();
+    } else if (value instanceof Object[]) {
+      rows = ((Object[]) value).length;
+    }
+    return Math.max(rows, 1);
+  }
+
+}
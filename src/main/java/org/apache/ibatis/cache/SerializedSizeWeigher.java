@@ -0,0 +1,67 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+/**
+ * Weighs objects by their serialized size in bytes, a good estimate of the memory they take.
+ * <p>
+ * Read-write caches already store serialized objects, which are weighed by their length for free;
+ * objects of read-only caches are serialized, without being copied, to count their bytes.
+ * Objects that are not serializable weigh 1.
+ */
+public class SerializedSizeWeigher implements Weigher {
+
+  @Override
+  public int weigh(Object key, Object value) {
+    if (value instanceof byte[]) {
+      return Math.max(((byte[]) value).length, 1);
+    }
+    if (!(value instanceof Serializable)) {
+      return 1;
+    }
+    CountingOutputStream counter = new CountingOutputStream();
+    try {
+      ObjectOutputStream oos = new ObjectOutputStream(counter);
+      oos.writeObject(value);
+      oos.close();
+    } catch (IOException e) {
+      throw new CacheException("Error weighing object.  Cause: " + e, e);
+    }
+    return (int) Math.min(Math.max(counter.count, 1), Integer.MAX_VALUE);
+  }
+
+  private static class CountingOutputStream extends OutputStream {
+
+    private long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+
+  }
+
+}
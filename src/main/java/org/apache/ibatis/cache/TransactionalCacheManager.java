@@ -56,6 +56,15 @@ public class TransactionalCacheManager {
     getTransactionalCache(cache).putObject(key, value);
   }
 
+  /**
+   * @param cache
+   * @return True if the cache has been cleared in this transaction
+   */
+  public boolean isCleared(Cache cache) {
+    TransactionalCache txCache = transactionalCaches.get(cache);
+    return txCache != null && txCache.isClearOnCommit();
+  }
+
   /**
    * 提交事务时清除缓存
    */
@@ -0,0 +1,34 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Tells how much of a weight-bounded cache an object takes, see
+ * {@link org.apache.ibatis.cache.decorators.WeightedCache}.
+ * <p>
+ * Implementations must be thread-safe and should be cheap, they are called for every put.
+ */
+public interface Weigher {
+
+  /**
+   * @param key The key
+   * @param value The object to be cached, as stored by the cache. Read-write caches store the serialized
+   *     object, a <code>byte[]</code>.
+   * @return The weight of the entry, at least 1
+   */
+  int weigh(Object key, Object value);
+
+}
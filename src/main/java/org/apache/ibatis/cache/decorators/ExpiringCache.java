@@ -0,0 +1,204 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+
+/**
+ * Expires each object on its own, expireAfterWrite milliseconds after it was put and/or expireAfterAccess
+ * milliseconds after it was last read, instead of clearing the whole cache like {@link ScheduledCache}.
+ * <p>
+ * Expired objects are removed when they are read and, a few at a time, by puts and reads, so the cleanup
+ * cost is spread over the operations and no thread is needed.
+ * <p>
+ * With refreshAhead, the first read of an object during the last refreshAhead milliseconds before its write
+ * expiry is answered with a miss, so that the statement is executed again and the cache refreshed, while
+ * other reads keep getting the cached object. Hot objects are thus reloaded before they expire and never
+ * miss for every thread at once.
+ * <p>
+ * Reads do not lock, so the delegate alone decides if the cache must be synchronized.
+ */
+public class ExpiringCache implements Cache {
+
+  private static final Object NULL_KEY = new Object();
+  private static final int CLEANUP_BATCH_SIZE = 16;
+  private static final int READS_PER_CLEANUP = 64;
+
+  private final Cache delegate;
+  private final ConcurrentMap<Object, Expiry> expiries = new ConcurrentHashMap<Object, Expiry>();
+  private final ReentrantLock cleanupLock = new ReentrantLock();
+  // guarded by cleanupLock
+  private Iterator<Map.Entry<Object, Expiry>> cleanupCursor;
+  // not atomic, a lost increment only delays a cleanup
+  private int reads;
+  private long expireAfterWrite;
+  private long expireAfterAccess;
+  private long refreshAhead;
+
+  public ExpiringCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  public void setExpireAfterWrite(long expireAfterWrite) {
+    this.expireAfterWrite = expireAfterWrite;
+  }
+
+  public long getExpireAfterWrite() {
+    return expireAfterWrite;
+  }
+
+  public void setExpireAfterAccess(long expireAfterAccess) {
+    this.expireAfterAccess = expireAfterAccess;
+  }
+
+  public long getExpireAfterAccess() {
+    return expireAfterAccess;
+  }
+
+  public void setRefreshAhead(long refreshAhead) {
+    this.refreshAhead = refreshAhead;
+  }
+
+  public long getRefreshAhead() {
+    return refreshAhead;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    // a read between the two puts must not expire the new object with the expiry of the old one
+    expiries.put(maskNull(key), new Expiry(System.currentTimeMillis()));
+    delegate.putObject(key, value);
+    cleanUp();
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    if (++reads % READS_PER_CLEANUP == 0) {
+      cleanUp();
+    }
+    Object k = maskNull(key);
+    Expiry expiry = expiries.get(k);
+    if (expiry != null) {
+      long now = System.currentTimeMillis();
+      if (isExpired(expiry, now)) {
+        expire(k, expiry);
+        return null;
+      }
+      if (isDueForRefresh(expiry, now) && expiry.refreshing.compareAndSet(false, true)) {
+        return null;
+      }
+      if (expireAfterAccess > 0) {
+        expiry.lastAccess = now;
+      }
+    }
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    expiries.remove(maskNull(key));
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    expiries.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private boolean isExpired(Expiry expiry, long now) {
+    return (expireAfterWrite > 0 && now - expiry.written >= expireAfterWrite)
+        || (expireAfterAccess > 0 && now - expiry.lastAccess >= expireAfterAccess);
+  }
+
+  private boolean isDueForRefresh(Expiry expiry, long now) {
+    return refreshAhead > 0 && expireAfterWrite > 0 && now - expiry.written >= expireAfterWrite - refreshAhead;
+  }
+
+  private void expire(Object k, Expiry expiry) {
+    // only if it has not been put again meanwhile
+    if (expiries.remove(k, expiry)) {
+      delegate.removeObject(k == NULL_KEY ? null : k);
+    }
+  }
+
+  /*
+   * Checks the next few objects for expiry
+   */
+  private void cleanUp() {
+    if (!cleanupLock.tryLock()) {
+      return;
+    }
+    try {
+      long now = System.currentTimeMillis();
+      for (int i = 0; i < CLEANUP_BATCH_SIZE; i++) {
+        if (cleanupCursor == null || !cleanupCursor.hasNext()) {
+          cleanupCursor = expiries.entrySet().iterator();
+          if (!cleanupCursor.hasNext()) {
+            return;
+          }
+        }
+        Map.Entry<Object, Expiry> entry = cleanupCursor.next();
+        if (isExpired(entry.getValue(), now)) {
+          expire(entry.getKey(), entry.getValue());
+        }
+      }
+    } finally {
+      cleanupLock.unlock();
+    }
+  }
+
+  private static Object maskNull(Object key) {
+    return key == null ? NULL_KEY : key;
+  }
+
+  private static final class Expiry {
+
+    final long written;
+    volatile long lastAccess;
+    final AtomicBoolean refreshing = new AtomicBoolean();
+
+    Expiry(long now) {
+      this.written = now;
+      this.lastAccess = now;
+    }
+
+  }
+
+}
@@ -114,6 +114,13 @@ public class TransactionalCache implements Cache {
     entriesToAddOnCommit.clear();
   }
 
+  /**
+   * @return True if the cache will be cleared on commit, in which case it is not read
+   */
+  public boolean isClearOnCommit() {
+    return clearOnCommit;
+  }
+
   /**
    * 提交事务时清除缓存
    */
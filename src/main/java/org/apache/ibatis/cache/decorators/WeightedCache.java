@@ -0,0 +1,158 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.RowCountWeigher;
+import org.apache.ibatis.cache.SerializedSizeWeigher;
+import org.apache.ibatis.cache.Weigher;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * Weight-bounded cache decorator: evicts the least recently used objects once the total weight of the
+ * cached objects, as told by a {@link Weigher}, exceeds maxWeight. Objects heavier than maxWeight on their
+ * own are not cached.
+ * <p>
+ * Configured from the cache element:
+ * <pre>
+ * &lt;cache eviction="WEIGHTED"&gt;
+ *   &lt;property name="weigherType" value="BYTES"/&gt;
+ *   &lt;property name="maxWeight" value="67108864"/&gt;
+ * &lt;/cache&gt;
+ * </pre>
+ */
+public class WeightedCache implements Cache {
+
+  private final Cache delegate;
+  private final Map<Object, Integer> keyMap = new LinkedHashMap<Object, Integer>(16, .75F, true);
+  private Weigher weigher = new SerializedSizeWeigher();
+  private long maxWeight = 64 * 1024 * 1024;
+  private long totalWeight;
+
+  public WeightedCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  public void setWeigher(Weigher weigher) {
+    this.weigher = weigher;
+  }
+
+  public Weigher getWeigher() {
+    return weigher;
+  }
+
+  /*
+   * Sets the weigher from its class name, or ROWS for a {@link RowCountWeigher} and BYTES for a
+   * {@link SerializedSizeWeigher}, the default.
+   */
+  public void setWeigherType(String type) {
+    if ("ROWS".equalsIgnoreCase(type)) {
+      setWeigher(new RowCountWeigher());
+    } else if ("BYTES".equalsIgnoreCase(type)) {
+      setWeigher(new SerializedSizeWeigher());
+    } else {
+      try {
+        setWeigher((Weigher) Resources.classForName(type).newInstance());
+      } catch (Exception e) {
+        throw new CacheException("Error creating weigher " + type + ".  Cause: " + e, e);
+      }
+    }
+  }
+
+  /*
+   * The maximum total weight, in the unit of the weigher: bytes by default
+   */
+  public void setMaxWeight(long maxWeight) {
+    this.maxWeight = maxWeight;
+    evict();
+  }
+
+  public long getMaxWeight() {
+    return maxWeight;
+  }
+
+  public long getTotalWeight() {
+    return totalWeight;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    int weight = weigher.weigh(key, value);
+    if (weight > maxWeight) {
+      // would evict everything else and then itself
+      removeObject(key);
+      return;
+    }
+    delegate.putObject(key, value);
+    Integer previous = keyMap.put(key, weight);
+    totalWeight += previous == null ? weight : weight - previous;
+    evict();
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    keyMap.get(key); // touch
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Integer weight = keyMap.remove(key);
+    if (weight != null) {
+      totalWeight -= weight;
+    }
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    keyMap.clear();
+    totalWeight = 0;
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<Object, Integer>> eldest = keyMap.entrySet().iterator();
+    while (totalWeight > maxWeight && eldest.hasNext()) {
+      Map.Entry<Object, Integer> entry = eldest.next();
+      eldest.remove();
+      totalWeight -= entry.getValue();
+      delegate.removeObject(entry.getKey());
+    }
+  }
+
+}
@@ -0,0 +1,323 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+
+/**
+ * Thread-safe, size-bounded cache that needs neither a {@link org.apache.ibatis.cache.decorators.SynchronizedCache}
+ * nor an eviction decorator.
+ * <p>
+ * Reads do not lock: entries live in a {@link ConcurrentHashMap} and a read only refreshes the access time
+ * of the entry. Writes lock one of up to 16 segments chosen by the hash of the key, each segment holding
+ * its share of the size (at least 64 entries). When a segment is full it evicts the least recently used of a few randomly
+ * sampled entries (sampled LRU), which keeps eviction cost constant however big the cache is.
+ * <p>
+ * Select it with <code>&lt;cache type="CONCURRENT"/&gt;</code> or
+ * <code>@CacheNamespace(implementation = ConcurrentCache.class)</code>; the <code>eviction</code> setting
+ * is ignored.
+ */
+public class ConcurrentCache implements Cache {
+
+  private static final int MAX_SEGMENTS = 16;
+  private static final int MIN_SEGMENT_SIZE = 64;
+  private static final int SAMPLE_SIZE = 8;
+  private static final Object NULL_KEY = new Object();
+
+  private final String id;
+
+  private final ConcurrentMap<Object, Node> cache = new ConcurrentHashMap<Object, Node>(16, .75F, MAX_SEGMENTS);
+  // logical time, advanced by writes only so that reads of hot entries rarely write to them
+  private final AtomicLong clock = new AtomicLong();
+  private volatile Segment[] segments;
+  private int size;
+
+  public ConcurrentCache(String id) {
+    this.id = id;
+    setSize(1024);
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    return cache.size();
+  }
+
+  /*
+   * The maximum number of entries. Changing it empties the cache.
+   */
+  public void setSize(int size) {
+    if (size < 1) {
+      throw new CacheException("The size of cache " + id + " must be positive but was " + size + ".");
+    }
+    Segment[] oldSegments = segments;
+    if (oldSegments != null) {
+      lockAll(oldSegments);
+    }
+    try {
+      // small caches keep a single segment so that they hold exactly size entries
+      int segmentCount = Math.min(MAX_SEGMENTS, Integer.highestOneBit(Math.max(size / MIN_SEGMENT_SIZE, 1)));
+      Segment[] newSegments = new Segment[segmentCount];
+      for (int i = 0; i < segmentCount; i++) {
+        newSegments[i] = new Segment(size / segmentCount + (i < size % segmentCount ? 1 : 0), i);
+      }
+      cache.clear();
+      this.size = size;
+      this.segments = newSegments;
+    } finally {
+      if (oldSegments != null) {
+        unlockAll(oldSegments);
+      }
+    }
+  }
+
+  public int getMaximumSize() {
+    return size;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    Object k = maskNull(key);
+    for (;;) {
+      Segment[] current = segments;
+      Segment segment = segmentFor(current, k);
+      segment.lock.lock();
+      try {
+        if (segments != current) {
+          // resized meanwhile
+          continue;
+        }
+        segment.put(cache, k, value, clock.incrementAndGet());
+        return;
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Node node = cache.get(maskNull(key));
+    if (node == null) {
+      return null;
+    }
+    node.touch(clock.get());
+    return node.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Object k = maskNull(key);
+    for (;;) {
+      Segment[] current = segments;
+      Segment segment = segmentFor(current, k);
+      segment.lock.lock();
+      try {
+        if (segments != current) {
+          continue;
+        }
+        Node node = cache.remove(k);
+        if (node == null) {
+          return null;
+        }
+        segment.unlink(node);
+        return node.value;
+      } finally {
+        segment.lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    Segment[] current = segments;
+    lockAll(current);
+    try {
+      cache.clear();
+      for (Segment segment : current) {
+        segment.nodes.clear();
+      }
+    } finally {
+      unlockAll(current);
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private static Object maskNull(Object key) {
+    return key == null ? NULL_KEY : key;
+  }
+
+  private static Segment segmentFor(Segment[] segments, Object key) {
+    int h = key.hashCode();
+    // spread the high bits, as HashMap does
+    h ^= (h >>> 20) ^ (h >>> 12);
+    h ^= (h >>> 7) ^ (h >>> 4);
+    return segments[h & (segments.length - 1)];
+  }
+
+  private static void lockAll(Segment[] segments) {
+    for (Segment segment : segments) {
+      segment.lock.lock();
+    }
+  }
+
+  private static void unlockAll(Segment[] segments) {
+    for (int i = segments.length - 1; i >= 0; i--) {
+      segments[i].lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private static final class Node {
+
+    final Object key;
+    volatile Object value;
+    volatile long accessTime;
+    // position in the node list of the segment, guarded by the segment lock
+    int index;
+
+    Node(Object key, Object value, long accessTime) {
+      this.key = key;
+      this.value = value;
+      this.accessTime = accessTime;
+    }
+
+    void touch(long now) {
+      if (accessTime != now) {
+        accessTime = now;
+      }
+    }
+
+  }
+
+  /*
+   * The nodes of one stripe, kept in a list to pick eviction candidates at random
+   */
+  private static final class Segment {
+
+    final ReentrantLock lock = new ReentrantLock();
+    final List<Node> nodes = new ArrayList<Node>();
+    final int capacity;
+    // xorshift state, guarded by the lock
+    int seed;
+
+    Segment(int capacity, int index) {
+      this.capacity = capacity;
+      this.seed = (int) System.nanoTime() ^ (index * 0x9E3779B9) | 1;
+    }
+
+    void put(ConcurrentMap<Object, Node> cache, Object key, Object value, long now) {
+      Node node = cache.get(key);
+      if (node != null) {
+        node.value = value;
+        node.touch(now);
+        return;
+      }
+      node = new Node(key, value, now);
+      node.index = nodes.size();
+      nodes.add(node);
+      cache.put(key, node);
+      if (nodes.size() > capacity) {
+        Node victim = sampleVictim();
+        cache.remove(victim.key);
+        unlink(victim);
+      }
+    }
+
+    void unlink(Node node) {
+      int last = nodes.size() - 1;
+      Node moved = nodes.remove(last);
+      if (moved != node) {
+        moved.index = node.index;
+        nodes.set(node.index, moved);
+      }
+    }
+
+    /*
+     * Picks the least recently used of SAMPLE_SIZE random nodes, or of all of them in small segments.
+     * The node just added is the last one and is never picked.
+     */
+    private Node sampleVictim() {
+      int candidates = nodes.size() - 1;
+      Node victim = null;
+      if (candidates <= SAMPLE_SIZE) {
+        for (int i = 0; i < candidates; i++) {
+          victim = older(victim, nodes.get(i));
+        }
+      } else {
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+          victim = older(victim, nodes.get(nextIndex(candidates)));
+        }
+      }
+      return victim;
+    }
+
+    private static Node older(Node victim, Node candidate) {
+      return victim == null || candidate.accessTime < victim.accessTime ? candidate : victim;
+    }
+
+    private int nextIndex(int bound) {
+      int x = seed;
+      x ^= x << 13;
+      x ^= x >>> 17;
+      x ^= x << 5;
+      seed = x;
+      return (x & Integer.MAX_VALUE) % bound;
+    }
+
+  }
+
+}
@@ -0,0 +1,96 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool statistics of a {@link ConcurrentPooledDataSource}. Counters are atomic so that they can be
+ * updated by concurrent checkouts and returns without a pool-wide lock.
+ */
+class ConcurrentPoolState extends PoolState {
+
+  private final ConnectionBag bag;
+
+  final AtomicLong requestCount = new AtomicLong();
+  final AtomicLong accumulatedRequestTime = new AtomicLong();
+  final AtomicLong accumulatedCheckoutTime = new AtomicLong();
+  final AtomicLong claimedOverdueConnectionCount = new AtomicLong();
+  final AtomicLong accumulatedCheckoutTimeOfOverdueConnections = new AtomicLong();
+  final AtomicLong accumulatedWaitTime = new AtomicLong();
+  final AtomicLong hadToWaitCount = new AtomicLong();
+  final AtomicLong badConnectionCount = new AtomicLong();
+
+  public ConcurrentPoolState(ConcurrentPooledDataSource dataSource, ConnectionBag bag) {
+    super(dataSource);
+    this.bag = bag;
+  }
+
+  @Override
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  @Override
+  public long getAverageRequestTime() {
+    long requests = requestCount.get();
+    return requests == 0 ? 0 : accumulatedRequestTime.get() / requests;
+  }
+
+  @Override
+  public long getAverageWaitTime() {
+    long waits = hadToWaitCount.get();
+    return waits == 0 ? 0 : accumulatedWaitTime.get() / waits;
+  }
+
+  @Override
+  public long getHadToWaitCount() {
+    return hadToWaitCount.get();
+  }
+
+  @Override
+  public long getBadConnectionCount() {
+    return badConnectionCount.get();
+  }
+
+  @Override
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnectionCount.get();
+  }
+
+  @Override
+  public long getAverageOverdueCheckoutTime() {
+    long claimed = claimedOverdueConnectionCount.get();
+    return claimed == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections.get() / claimed;
+  }
+
+  @Override
+  public long getAverageCheckoutTime() {
+    long requests = requestCount.get();
+    return requests == 0 ? 0 : accumulatedCheckoutTime.get() / requests;
+  }
+
+  @Override
+  public int getIdleConnectionCount() {
+    return bag.getCount(ConnectionBag.Entry.STATE_NOT_IN_USE);
+  }
+
+  @Override
+  public int getActiveConnectionCount() {
+    return bag.getCount(ConnectionBag.Entry.STATE_IN_USE);
+  }
+
+}
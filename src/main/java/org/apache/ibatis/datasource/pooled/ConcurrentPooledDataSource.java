@@ -0,0 +1,419 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * A {@link PooledDataSource} that never serializes checkouts and returns on a pool-wide lock.
+ * <p>
+ * Connections are kept in a {@link ConnectionBag}: threads get back the connection they used last
+ * when it is still idle, otherwise they take any idle connection, create a new one or, when the pool
+ * is exhausted, wait on a fair hand-off queue that returning threads feed directly. It accepts the same
+ * configuration as the {@link PooledDataSource} and keeps the same {@link PoolState} statistics.
+ */
+public class ConcurrentPooledDataSource extends PooledDataSource {
+
+  private static final Log log = LogFactory.getLog(ConcurrentPooledDataSource.class);
+
+  private final ConnectionBag bag = new ConnectionBag();
+
+  private final ConcurrentPoolState state = new ConcurrentPoolState(this, bag);
+
+  private final AtomicInteger totalConnections = new AtomicInteger();
+
+  public ConcurrentPooledDataSource() {
+    super();
+  }
+
+  public ConcurrentPooledDataSource(UnpooledDataSource dataSource) {
+    super(dataSource);
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, String username, String password) {
+    super(driver, url, username, password);
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, Properties driverProperties) {
+    super(driver, url, driverProperties);
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, String username, String password) {
+    super(driverClassLoader, driver, url, username, password);
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, Properties driverProperties) {
+    super(driverClassLoader, driver, url, driverProperties);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return popConnection(dataSource.getUsername(), dataSource.getPassword()).getProxyConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return popConnection(username, password).getProxyConnection();
+  }
+
+  @Override
+  public PoolState getPoolState() {
+    return state;
+  }
+
+  /*
+   * Closes all active and idle connections in the pool
+   */
+  @Override
+  public void forceCloseAll() {
+    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+    for (ConnectionBag.Entry entry : bag.values()) {
+      PooledConnection owner = entry.getOwner();
+      if (owner != null && entry.compareAndSetOwner(owner, null)) {
+        owner.invalidate();
+      }
+      discard(entry);
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("ConcurrentPooledDataSource forcefully closed/removed all connections.");
+    }
+  }
+
+  @Override
+  protected void pushConnection(PooledConnection conn) throws SQLException {
+    ConnectionBag.Entry entry = conn.getBagEntry();
+    if (entry == null || !entry.compareAndSetOwner(conn, null)) {
+      // claimed as an overdue connection or removed by forceCloseAll
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.badConnectionCount.incrementAndGet();
+      return;
+    }
+    recordUsage(conn);
+    if (!conn.isValid()) {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.badConnectionCount.incrementAndGet();
+      discard(entry);
+      return;
+    }
+    state.accumulatedCheckoutTime.addAndGet(conn.getCheckoutTime());
+    conn.invalidate();
+    entry.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+    Connection realConn = conn.getRealConnection();
+    try {
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+    } catch (SQLException e) {
+      discard(entry);
+      throw e;
+    }
+    if (conn.getConnectionTypeCode() == expectedConnectionTypeCode
+        && !isLifetimeExceeded(entry.getCreatedTimestamp())
+        && (bag.getWaitingThreadCount() > 0 || state.getIdleConnectionCount() < poolMaximumIdleConnections)
+        && bag.requite(entry)) {
+      if (log.isDebugEnabled()) {
+        log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+      }
+    } else {
+      discard(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Closed connection " + conn.getRealHashCode() + ".");
+      }
+    }
+  }
+
+  private PooledConnection popConnection(String username, String password) throws SQLException {
+    boolean countedWait = false;
+    PooledConnection conn = null;
+    long t = System.currentTimeMillis();
+    long startNanos = poolMetricsEnabled ? System.nanoTime() : 0;
+    int localBadConnectionCount = 0;
+
+    startMaintenanceIfNeeded();
+
+    while (conn == null) {
+      ConnectionBag.Entry entry = bag.poll();
+      if (entry != null) {
+        // Pool has available connection
+        conn = checkout(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+        }
+      } else if ((entry = createEntry(ConnectionBag.Entry.STATE_IN_USE)) != null) {
+        // Can create new connection
+        conn = checkout(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Created connection " + conn.getRealHashCode() + ".");
+        }
+      } else if (poolReclaimOverdueConnections && (conn = claimOverdueConnection()) != null) {
+        if (log.isDebugEnabled()) {
+          log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+        }
+      } else {
+        // Must wait
+        if (!poolReclaimOverdueConnections && countedWait && System.currentTimeMillis() - t >= poolTimeToWait) {
+          if (log.isDebugEnabled()) {
+            log.debug("ConcurrentPooledDataSource: Could not get a connection within " + poolTimeToWait + " milliseconds.");
+          }
+          throw new SQLException("ConcurrentPooledDataSource: Could not get a connection within " + poolTimeToWait + " milliseconds.");
+        }
+        if (!countedWait) {
+          state.hadToWaitCount.incrementAndGet();
+          countedWait = true;
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+        }
+        long wt = System.currentTimeMillis();
+        metrics.waitStarted();
+        try {
+          entry = bag.borrow(poolTimeToWait);
+        } catch (InterruptedException e) {
+          break;
+        } finally {
+          metrics.waitEnded();
+          state.accumulatedWaitTime.addAndGet(System.currentTimeMillis() - wt);
+        }
+        if (entry != null) {
+          conn = checkout(entry);
+        }
+      }
+      if (conn != null) {
+        // ping to server and check the connection is valid or not
+        if (conn.isValid()) {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+          conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          recordCheckoutSite(conn);
+          state.requestCount.incrementAndGet();
+          state.accumulatedRequestTime.addAndGet(System.currentTimeMillis() - t);
+          if (poolMetricsEnabled) {
+            conn.setCheckoutNanoTime(System.nanoTime());
+            metrics.recordCheckout(conn.getCheckoutNanoTime() - startNanos);
+          }
+        } else {
+          if (log.isDebugEnabled()) {
+            log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+          }
+          if (conn.getBagEntry().compareAndSetOwner(conn, null)) {
+            discard(conn.getBagEntry());
+          }
+          state.badConnectionCount.incrementAndGet();
+          localBadConnectionCount++;
+          conn = null;
+          if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+            if (log.isDebugEnabled()) {
+              log.debug("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+            }
+            throw new SQLException("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+          }
+        }
+      }
+    }
+
+    if (conn == null) {
+      if (log.isDebugEnabled()) {
+        log.debug("ConcurrentPooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+      }
+      throw new SQLException("ConcurrentPooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+    }
+
+    return conn;
+  }
+
+  /*
+   * Wraps a borrowed entry in a new proxy that becomes its owner
+   */
+  private PooledConnection checkout(ConnectionBag.Entry entry) {
+    PooledConnection conn = new PooledConnection(entry.getRealConnection(), this);
+    conn.setCreatedTimestamp(entry.getCreatedTimestamp());
+    conn.setLastUsedTimestamp(entry.getLastUsedTimestamp());
+    conn.setCheckoutTimestamp(System.currentTimeMillis());
+    conn.setBagEntry(entry);
+    entry.setOwner(conn);
+    return conn;
+  }
+
+  /*
+   * Opens a new connection if the pool has not reached poolMaximumActiveConnections
+   */
+  private ConnectionBag.Entry createEntry(int initialState) throws SQLException {
+    for (;;) {
+      int total = totalConnections.get();
+      if (total >= poolMaximumActiveConnections) {
+        return null;
+      }
+      if (totalConnections.compareAndSet(total, total + 1)) {
+        break;
+      }
+    }
+    ConnectionBag.Entry entry;
+    try {
+      entry = new ConnectionBag.Entry(dataSource.getConnection(), initialState);
+    } catch (SQLException e) {
+      totalConnections.decrementAndGet();
+      throw e;
+    } catch (RuntimeException e) {
+      totalConnections.decrementAndGet();
+      throw e;
+    }
+    metrics.connectionCreated();
+    bag.add(entry);
+    return entry;
+  }
+
+  /*
+   * Takes over a connection that has been checked out for longer than poolMaximumCheckoutTime
+   */
+  private PooledConnection claimOverdueConnection() {
+    for (ConnectionBag.Entry entry : bag.values()) {
+      PooledConnection oldConn = entry.getOwner();
+      if (oldConn == null) {
+        continue;
+      }
+      long checkoutTime = oldConn.getCheckoutTime();
+      if (checkoutTime > poolMaximumCheckoutTime) {
+        PooledConnection conn = new PooledConnection(entry.getRealConnection(), this);
+        conn.setCreatedTimestamp(oldConn.getCreatedTimestamp());
+        conn.setLastUsedTimestamp(oldConn.getLastUsedTimestamp());
+        conn.setCheckoutTimestamp(System.currentTimeMillis());
+        conn.setBagEntry(entry);
+        if (entry.compareAndSetOwner(oldConn, conn)) {
+          state.claimedOverdueConnectionCount.incrementAndGet();
+          state.accumulatedCheckoutTimeOfOverdueConnections.addAndGet(checkoutTime);
+          state.accumulatedCheckoutTime.addAndGet(checkoutTime);
+          oldConn.invalidate();
+          try {
+            if (!entry.getRealConnection().getAutoCommit()) {
+              entry.getRealConnection().rollback();
+            }
+          } catch (SQLException e) {
+            // the new owner will find it out when validating the connection
+            log.debug("Bad connection. Could not roll back");
+          }
+          return conn;
+        }
+      }
+    }
+    return null;
+  }
+
+  @Override
+  int sampleActiveConnectionCount() {
+    return state.getActiveConnectionCount();
+  }
+
+  @Override
+  int sampleIdleConnectionCount() {
+    return state.getIdleConnectionCount();
+  }
+
+  @Override
+  List<PooledConnection> sampleActiveConnections() {
+    List<PooledConnection> activeConnections = new ArrayList<PooledConnection>();
+    for (ConnectionBag.Entry entry : bag.values()) {
+      PooledConnection owner = entry.getOwner();
+      if (owner != null) {
+        activeConnections.add(owner);
+      }
+    }
+    return activeConnections;
+  }
+
+  @Override
+  protected void maintainPool() {
+    int minimumIdle = getMinimumIdleTarget();
+    for (ConnectionBag.Entry entry : bag.values()) {
+      if (!bag.reserve(entry)) {
+        continue;
+      }
+      if (isLifetimeExceeded(entry.getCreatedTimestamp())
+          || (isIdleTimeExceeded(entry.getLastUsedTimestamp()) && state.getIdleConnectionCount() >= minimumIdle)) {
+        discard(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Retired idle connection " + entry.getRealConnection().hashCode() + ".");
+        }
+      } else if (isValidationDue(entry.getLastUsedTimestamp())) {
+        if (validateIdleConnection(entry.getRealConnection())) {
+          entry.setLastUsedTimestamp(System.currentTimeMillis());
+          bag.unreserve(entry);
+        } else {
+          discard(entry);
+          state.badConnectionCount.incrementAndGet();
+        }
+      } else {
+        bag.unreserve(entry);
+      }
+    }
+    while (state.getIdleConnectionCount() < minimumIdle) {
+      ConnectionBag.Entry entry;
+      try {
+        entry = createEntry(ConnectionBag.Entry.STATE_RESERVED);
+      } catch (SQLException e) {
+        log.warn("Could not open a connection to fill the pool: " + e.getMessage());
+        return;
+      }
+      if (entry == null) {
+        return;
+      }
+      bag.unreserve(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Opened idle connection " + entry.getRealConnection().hashCode() + ".");
+      }
+    }
+  }
+
+  /*
+   * Removes an entry from the pool and closes its connection
+   */
+  private void discard(ConnectionBag.Entry entry) {
+    if (bag.remove(entry)) {
+      totalConnections.decrementAndGet();
+      metrics.connectionClosed();
+      closeQuietly(entry.getRealConnection());
+    }
+  }
+
+  private void closeQuietly(Connection realConn) {
+    try {
+      if (!realConn.isClosed()) {
+        if (!realConn.getAutoCommit()) {
+          realConn.rollback();
+        }
+        realConn.close();
+      }
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+}
@@ -0,0 +1,276 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free container of the connections owned by a {@link ConcurrentPooledDataSource}.
+ * <p>
+ * A borrowing thread first looks at the entries it returned itself (thread affinity), then scans
+ * the shared list, and finally waits on a fair hand-off queue. A returning thread hands its entry
+ * directly to a waiting thread when there is one. None of these paths takes a global lock; the
+ * shared list is only copied when connections are created or discarded.
+ */
+class ConnectionBag {
+
+  private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+
+  private final CopyOnWriteArrayList<Entry> sharedList = new CopyOnWriteArrayList<Entry>();
+  private final SynchronousQueue<Entry> handoffQueue = new SynchronousQueue<Entry>(true);
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final ThreadLocal<List<Entry>> threadList = new ThreadLocal<List<Entry>>() {
+    @Override
+    protected List<Entry> initialValue() {
+      return new ArrayList<Entry>(MAX_THREAD_LOCAL_ENTRIES);
+    }
+  };
+
+  /*
+   * Takes an idle entry without waiting
+   *
+   * @return an entry marked as in use, or null if every entry is in use
+   */
+  public Entry poll() {
+    List<Entry> local = threadList.get();
+    for (int i = local.size() - 1; i >= 0; i--) {
+      Entry entry = local.remove(i);
+      if (entry.compareAndSetState(Entry.STATE_NOT_IN_USE, Entry.STATE_IN_USE)) {
+        return entry;
+      }
+    }
+    for (Entry entry : sharedList) {
+      if (entry.compareAndSetState(Entry.STATE_NOT_IN_USE, Entry.STATE_IN_USE)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /*
+   * Waits for an entry to be returned to the bag
+   *
+   * @param timeout - the maximum time to wait in milliseconds
+   * @return an entry marked as in use, or null if none became available in time
+   */
+  public Entry borrow(long timeout) throws InterruptedException {
+    waiters.incrementAndGet();
+    try {
+      Entry entry = poll();
+      if (entry != null) {
+        return entry;
+      }
+      long remaining = TimeUnit.MILLISECONDS.toNanos(timeout);
+      long deadline = System.nanoTime() + remaining;
+      while (remaining > 0) {
+        entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (entry != null && entry.compareAndSetState(Entry.STATE_NOT_IN_USE, Entry.STATE_IN_USE)) {
+          return entry;
+        }
+        remaining = deadline - System.nanoTime();
+      }
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /*
+   * Returns a borrowed entry to the bag, handing it to a waiting thread if there is one
+   *
+   * @param entry - the entry to return
+   * @return false if the entry was removed from the bag while it was borrowed
+   */
+  public boolean requite(Entry entry) {
+    if (!entry.compareAndSetState(Entry.STATE_IN_USE, Entry.STATE_NOT_IN_USE)) {
+      return false;
+    }
+    if (!handOff(entry)) {
+      List<Entry> local = threadList.get();
+      if (local.size() < MAX_THREAD_LOCAL_ENTRIES) {
+        local.add(entry);
+      }
+    }
+    return true;
+  }
+
+  /*
+   * Reserves an idle entry so that it cannot be borrowed while the pool maintains it
+   *
+   * @param entry - the entry to reserve
+   * @return false if the entry was not idle
+   */
+  public boolean reserve(Entry entry) {
+    return entry.compareAndSetState(Entry.STATE_NOT_IN_USE, Entry.STATE_RESERVED);
+  }
+
+  /*
+   * Makes a reserved entry available again
+   *
+   * @param entry - the entry to release
+   * @return false if the entry was removed from the bag while it was reserved
+   */
+  public boolean unreserve(Entry entry) {
+    if (!entry.compareAndSetState(Entry.STATE_RESERVED, Entry.STATE_NOT_IN_USE)) {
+      return false;
+    }
+    handOff(entry);
+    return true;
+  }
+
+  private boolean handOff(Entry entry) {
+    for (int i = 0; waiters.get() > 0; i++) {
+      if (entry.getState() != Entry.STATE_NOT_IN_USE || handoffQueue.offer(entry)) {
+        return true;
+      } else if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+    return false;
+  }
+
+  /*
+   * Adds a new entry to the bag
+   *
+   * @param entry - the entry to add
+   */
+  public void add(Entry entry) {
+    sharedList.add(entry);
+  }
+
+  /*
+   * Removes an entry from the bag whatever its current state
+   *
+   * @param entry - the entry to remove
+   * @return false if the entry had already been removed by another thread
+   */
+  public boolean remove(Entry entry) {
+    if (entry.getAndSetState(Entry.STATE_REMOVED) == Entry.STATE_REMOVED) {
+      return false;
+    }
+    sharedList.remove(entry);
+    return true;
+  }
+
+  /*
+   * A snapshot of all the entries in the bag
+   *
+   * @return the entries
+   */
+  public List<Entry> values() {
+    return new ArrayList<Entry>(sharedList);
+  }
+
+  /*
+   * Counts the entries in a given state without locking the bag
+   *
+   * @param state - one of the Entry.STATE_* constants
+   * @return the number of entries in that state
+   */
+  public int getCount(int state) {
+    int count = 0;
+    for (Entry entry : sharedList) {
+      if (entry.getState() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  public int size() {
+    return sharedList.size();
+  }
+
+  public int getWaitingThreadCount() {
+    return waiters.get();
+  }
+
+  /*
+   * A physical connection held by the bag. The entry outlives the {@link PooledConnection} proxies that are
+   * handed out for it; the proxy of the current checkout is the owner of the entry.
+   */
+  static final class Entry {
+
+    static final int STATE_NOT_IN_USE = 0;
+    static final int STATE_IN_USE = 1;
+    static final int STATE_REMOVED = -1;
+    static final int STATE_RESERVED = -2;
+
+    private final AtomicInteger state;
+    private final AtomicReference<PooledConnection> owner = new AtomicReference<PooledConnection>();
+    private final Connection realConnection;
+    private final long createdTimestamp;
+    private volatile long lastUsedTimestamp;
+
+    Entry(Connection realConnection, int state) {
+      this.state = new AtomicInteger(state);
+      this.realConnection = realConnection;
+      this.createdTimestamp = System.currentTimeMillis();
+      this.lastUsedTimestamp = createdTimestamp;
+    }
+
+    int getState() {
+      return state.get();
+    }
+
+    boolean compareAndSetState(int expect, int update) {
+      return state.compareAndSet(expect, update);
+    }
+
+    int getAndSetState(int update) {
+      return state.getAndSet(update);
+    }
+
+    PooledConnection getOwner() {
+      return owner.get();
+    }
+
+    void setOwner(PooledConnection connection) {
+      owner.set(connection);
+    }
+
+    boolean compareAndSetOwner(PooledConnection expect, PooledConnection update) {
+      return owner.compareAndSet(expect, update);
+    }
+
+    Connection getRealConnection() {
+      return realConnection;
+    }
+
+    long getCreatedTimestamp() {
+      return createdTimestamp;
+    }
+
+    long getLastUsedTimestamp() {
+      return lastUsedTimestamp;
+    }
+
+    void setLastUsedTimestamp(long lastUsedTimestamp) {
+      this.lastUsedTimestamp = lastUsedTimestamp;
+    }
+  }
+
+}
@@ -0,0 +1,111 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * A connection that has been checked out for longer than the leak detection threshold, as reported by
+ * {@link PoolState#getOverdueConnections()}.
+ * <p>
+ * The stack trace of the checkout is only available when it was sampled, see
+ * <code>poolLeakDetectionSampleRate</code>.
+ */
+public class OverdueConnection {
+
+  private static final StackTraceElement[] NO_STACK_TRACE = new StackTraceElement[0];
+
+  private final int realHashCode;
+  private final long checkoutTimestamp;
+  private final long checkoutTime;
+  private final String threadName;
+  private final Throwable checkoutSite;
+
+  OverdueConnection(PooledConnection conn) {
+    this.realHashCode = conn.getRealHashCode();
+    this.checkoutTimestamp = conn.getCheckoutTimestamp();
+    this.checkoutTime = conn.getCheckoutTime();
+    this.threadName = conn.getCheckoutThreadName();
+    this.checkoutSite = conn.getCheckoutSite();
+  }
+
+  /*
+   * The hash code of the underlying connection, as printed in the pool debug messages
+   */
+  public int getRealHashCode() {
+    return realHashCode;
+  }
+
+  public long getCheckoutTimestamp() {
+    return checkoutTimestamp;
+  }
+
+  /*
+   * How long, in milliseconds, the connection had been checked out when it was reported
+   */
+  public long getCheckoutTime() {
+    return checkoutTime;
+  }
+
+  /*
+   * The name of the thread that checked out the connection
+   */
+  public String getThreadName() {
+    return threadName;
+  }
+
+  public boolean hasCheckoutStackTrace() {
+    return checkoutSite != null;
+  }
+
+  /*
+   * The stack trace of the getConnection() call, without the pool frames, or an empty array if it was not sampled
+   */
+  public StackTraceElement[] getCheckoutStackTrace() {
+    if (checkoutSite == null) {
+      return NO_STACK_TRACE;
+    }
+    StackTraceElement[] stackTrace = checkoutSite.getStackTrace();
+    int first = 0;
+    while (first < stackTrace.length - 1 && isPoolFrame(stackTrace[first])) {
+      first++;
+    }
+    StackTraceElement[] callerStackTrace = new StackTraceElement[stackTrace.length - first];
+    System.arraycopy(stackTrace, first, callerStackTrace, 0, callerStackTrace.length);
+    return callerStackTrace;
+  }
+
+  private static boolean isPoolFrame(StackTraceElement element) {
+    return PooledDataSource.class.getName().equals(element.getClassName())
+        || ConcurrentPooledDataSource.class.getName().equals(element.getClassName());
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("Connection ").append(realHashCode);
+    builder.append(" has been checked out for ").append(checkoutTime).append(" milliseconds");
+    builder.append(" by thread ").append(threadName);
+    if (checkoutSite == null) {
+      builder.append(" (checkout stack trace not sampled)");
+    } else {
+      builder.append(", checked out at:");
+      for (StackTraceElement element : getCheckoutStackTrace()) {
+        builder.append("\n\tat ").append(element);
+      }
+    }
+    return builder.toString();
+  }
+
+}
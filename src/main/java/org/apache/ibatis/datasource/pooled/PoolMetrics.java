@@ -0,0 +1,147 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live metrics of a pooled data source. Nothing here takes the pool lock: counters are atomic and the
+ * current connection counts are read without synchronization, so they may be slightly behind.
+ * <p>
+ * The latency histograms are only fed when <code>poolMetricsEnabled</code> is true.
+ */
+public class PoolMetrics {
+
+  private final PooledDataSource dataSource;
+
+  private final LatencyHistogram checkoutTime = new LatencyHistogram();
+  private final LatencyHistogram usageTime = new LatencyHistogram();
+  private final AtomicLong createdConnections = new AtomicLong();
+  private final AtomicLong closedConnections = new AtomicLong();
+  private final AtomicInteger pendingRequests = new AtomicInteger();
+
+  private long[] lastCheckoutCounts;
+  private long[] lastUsageCounts;
+  private long lastCreatedConnections;
+  private long lastClosedConnections;
+  private long lastSnapshotNanos = System.nanoTime();
+
+  public PoolMetrics(PooledDataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  /*
+   * Time spent in getConnection(), including waiting for a connection and validating it
+   */
+  public LatencyHistogram getCheckoutTime() {
+    return checkoutTime;
+  }
+
+  /*
+   * Time between getConnection() and close()
+   */
+  public LatencyHistogram getUsageTime() {
+    return usageTime;
+  }
+
+  public int getActiveConnectionCount() {
+    return dataSource.sampleActiveConnectionCount();
+  }
+
+  public int getIdleConnectionCount() {
+    return dataSource.sampleIdleConnectionCount();
+  }
+
+  /*
+   * Number of threads currently waiting for a connection
+   */
+  public int getPendingRequestCount() {
+    return pendingRequests.get();
+  }
+
+  public long getCreatedConnectionCount() {
+    return createdConnections.get();
+  }
+
+  /*
+   * Number of physical connections closed by the pool: surplus, retired or force-closed ones. Bad connections and
+   * connections reclaimed from overdue checkouts are not closed by the pool, and not counted.
+   */
+  public long getClosedConnectionCount() {
+    return closedConnections.get();
+  }
+
+  /*
+   * Takes a snapshot of the metrics. Latencies and rates of the snapshot cover the time elapsed since
+   * the previous call.
+   *
+   * @return the snapshot
+   */
+  public synchronized PoolMetricsSnapshot snapshot() {
+    long now = System.nanoTime();
+    long[] checkoutCounts = checkoutTime.getCounts();
+    long[] usageCounts = usageTime.getCounts();
+    long created = createdConnections.get();
+    long closed = closedConnections.get();
+    PoolMetricsSnapshot snapshot = new PoolMetricsSnapshot(System.currentTimeMillis(), now - lastSnapshotNanos,
+        getActiveConnectionCount(), getIdleConnectionCount(), getPendingRequestCount(),
+        subtract(checkoutCounts, lastCheckoutCounts), subtract(usageCounts, lastUsageCounts),
+        created - lastCreatedConnections, closed - lastClosedConnections);
+    lastSnapshotNanos = now;
+    lastCheckoutCounts = checkoutCounts;
+    lastUsageCounts = usageCounts;
+    lastCreatedConnections = created;
+    lastClosedConnections = closed;
+    return snapshot;
+  }
+
+  private static long[] subtract(long[] counts, long[] previous) {
+    if (previous == null) {
+      return counts;
+    }
+    long[] interval = new long[counts.length];
+    for (int i = 0; i < counts.length; i++) {
+      interval[i] = counts[i] - previous[i];
+    }
+    return interval;
+  }
+
+  void recordCheckout(long nanos) {
+    checkoutTime.record(nanos);
+  }
+
+  void recordUsage(long nanos) {
+    usageTime.record(nanos);
+  }
+
+  void connectionCreated() {
+    createdConnections.incrementAndGet();
+  }
+
+  void connectionClosed() {
+    closedConnections.incrementAndGet();
+  }
+
+  void waitStarted() {
+    pendingRequests.incrementAndGet();
+  }
+
+  void waitEnded() {
+    pendingRequests.decrementAndGet();
+  }
+
+}
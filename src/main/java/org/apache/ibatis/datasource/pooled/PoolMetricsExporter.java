@@ -0,0 +1,28 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * Receives the metrics of a pooled data source every <code>poolMetricsExportInterval</code> milliseconds.
+ * <p>
+ * Called from the pool maintenance thread, so implementations should hand the snapshot over
+ * to their monitoring system quickly.
+ */
+public interface PoolMetricsExporter {
+
+  void export(PooledDataSource dataSource, PoolMetricsSnapshot snapshot);
+
+}
@@ -0,0 +1,160 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * Immutable view of the pool metrics. Latencies are in nanoseconds and describe the interval since
+ * the previous snapshot; rates are per second over the same interval.
+ */
+public class PoolMetricsSnapshot {
+
+  private final long timestamp;
+  private final long intervalNanos;
+  private final int activeConnections;
+  private final int idleConnections;
+  private final int pendingRequests;
+  private final long checkoutCount;
+  private final long checkoutTimeP50;
+  private final long checkoutTimeP99;
+  private final long checkoutTimeP999;
+  private final long usageCount;
+  private final long usageTimeP50;
+  private final long usageTimeP99;
+  private final long usageTimeP999;
+  private final long createdConnections;
+  private final long closedConnections;
+
+  PoolMetricsSnapshot(long timestamp, long intervalNanos, int activeConnections, int idleConnections, int pendingRequests,
+      long[] checkoutCounts, long[] usageCounts, long createdConnections, long closedConnections) {
+    this.timestamp = timestamp;
+    this.intervalNanos = intervalNanos;
+    this.activeConnections = activeConnections;
+    this.idleConnections = idleConnections;
+    this.pendingRequests = pendingRequests;
+    this.checkoutCount = sum(checkoutCounts);
+    this.checkoutTimeP50 = LatencyHistogram.valueAtPercentile(checkoutCounts, 0.5);
+    this.checkoutTimeP99 = LatencyHistogram.valueAtPercentile(checkoutCounts, 0.99);
+    this.checkoutTimeP999 = LatencyHistogram.valueAtPercentile(checkoutCounts, 0.999);
+    this.usageCount = sum(usageCounts);
+    this.usageTimeP50 = LatencyHistogram.valueAtPercentile(usageCounts, 0.5);
+    this.usageTimeP99 = LatencyHistogram.valueAtPercentile(usageCounts, 0.99);
+    this.usageTimeP999 = LatencyHistogram.valueAtPercentile(usageCounts, 0.999);
+    this.createdConnections = createdConnections;
+    this.closedConnections = closedConnections;
+  }
+
+  private static long sum(long[] counts) {
+    long total = 0;
+    for (long c : counts) {
+      total += c;
+    }
+    return total;
+  }
+
+  /*
+   * When the snapshot was taken, in milliseconds since the epoch
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public long getIntervalNanos() {
+    return intervalNanos;
+  }
+
+  public int getActiveConnections() {
+    return activeConnections;
+  }
+
+  public int getIdleConnections() {
+    return idleConnections;
+  }
+
+  public int getPendingRequests() {
+    return pendingRequests;
+  }
+
+  public long getCheckoutCount() {
+    return checkoutCount;
+  }
+
+  public long getCheckoutTimeP50() {
+    return checkoutTimeP50;
+  }
+
+  public long getCheckoutTimeP99() {
+    return checkoutTimeP99;
+  }
+
+  public long getCheckoutTimeP999() {
+    return checkoutTimeP999;
+  }
+
+  public long getUsageCount() {
+    return usageCount;
+  }
+
+  public long getUsageTimeP50() {
+    return usageTimeP50;
+  }
+
+  public long getUsageTimeP99() {
+    return usageTimeP99;
+  }
+
+  public long getUsageTimeP999() {
+    return usageTimeP999;
+  }
+
+  public long getCreatedConnections() {
+    return createdConnections;
+  }
+
+  public long getClosedConnections() {
+    return closedConnections;
+  }
+
+  public double getCreationRate() {
+    return perSecond(createdConnections);
+  }
+
+  public double getClosingRate() {
+    return perSecond(closedConnections);
+  }
+
+  private double perSecond(long count) {
+    return intervalNanos <= 0 ? 0 : count * 1000000000.0 / intervalNanos;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("active=").append(activeConnections);
+    builder.append(", idle=").append(idleConnections);
+    builder.append(", pending=").append(pendingRequests);
+    builder.append(", checkouts=").append(checkoutCount);
+    builder.append(", checkoutTimeP50=").append(checkoutTimeP50);
+    builder.append(", checkoutTimeP99=").append(checkoutTimeP99);
+    builder.append(", checkoutTimeP999=").append(checkoutTimeP999);
+    builder.append(", usageTimeP50=").append(usageTimeP50);
+    builder.append(", usageTimeP99=").append(usageTimeP99);
+    builder.append(", usageTimeP999=").append(usageTimeP999);
+    builder.append(", created=").append(createdConnections);
+    builder.append(", closed=").append(closedConnections);
+    return builder.toString();
+  }
+
+}
@@ -82,6 +82,16 @@ public class PoolState {
     return activeConnections.size();
   }
 
+  /*
+   * Lists the connections checked out for longer than poolLeakDetectionThreshold or, when leak detection
+   * is disabled, poolMaximumCheckoutTime. The connections are not reclaimed.
+   *
+   * @since 3.4.7
+   */
+  public List<OverdueConnection> getOverdueConnections() {
+    return dataSource.getOverdueConnections();
+  }
+
   @Override
   public synchronized String toString() {
     StringBuilder builder = new StringBuilder();
@@ -97,6 +107,7 @@ public class PoolState {
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolLeakDetectionThreshold     ").append(dataSource.poolLeakDetectionThreshold);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
@@ -108,6 +119,7 @@ public class PoolState {
     builder.append("\n hadToWait                      ").append(getHadToWaitCount());
     builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
     builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+    builder.append("\n overdueConnections             ").append(getOverdueConnections().size());
     builder.append("\n===============================================================");
     return builder.toString();
   }
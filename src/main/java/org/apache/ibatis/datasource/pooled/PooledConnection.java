@@ -36,10 +36,15 @@ class PooledConnection implements InvocationHandler {
   private final Connection realConnection;
   private final Connection proxyConnection;
   private long checkoutTimestamp;
+  private long checkoutNanoTime;
   private long createdTimestamp;
   private long lastUsedTimestamp;
   private int connectionTypeCode;
   private boolean valid;
+  private ConnectionBag.Entry bagEntry;
+  private String checkoutThreadName;
+  private Throwable checkoutSite;
+  private volatile boolean leakReported;
 
   /*
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in
@@ -190,6 +195,24 @@ class PooledConnection implements InvocationHandler {
     this.checkoutTimestamp = timestamp;
   }
 
+  /*
+   * Getter for the System.nanoTime() of the checkout, only set when pool metrics are enabled
+   *
+   * @return the nano time
+   */
+  public long getCheckoutNanoTime() {
+    return checkoutNanoTime;
+  }
+
+  /*
+   * Setter for the System.nanoTime() of the checkout
+   *
+   * @param checkoutNanoTime the nano time
+   */
+  public void setCheckoutNanoTime(long checkoutNanoTime) {
+    this.checkoutNanoTime = checkoutNanoTime;
+  }
+
   /*
    * Getter for the time that this connection has been checked out
    *
@@ -199,6 +222,73 @@ class PooledConnection implements InvocationHandler {
     return System.currentTimeMillis() - checkoutTimestamp;
   }
 
+  /*
+   * Getter for the bag entry this connection was checked out from (only used by {@link ConcurrentPooledDataSource})
+   *
+   * @return the entry
+   */
+  ConnectionBag.Entry getBagEntry() {
+    return bagEntry;
+  }
+
+  /*
+   * Setter for the bag entry this connection was checked out from
+   *
+   * @param bagEntry - the entry
+   */
+  void setBagEntry(ConnectionBag.Entry bagEntry) {
+    this.bagEntry = bagEntry;
+  }
+
+  /*
+   * Getter for the name of the thread that checked out this connection, only set when leak detection is enabled
+   *
+   * @return the thread name
+   */
+  public String getCheckoutThreadName() {
+    return checkoutThreadName;
+  }
+
+  /*
+   * Setter for the name of the thread that checked out this connection
+   *
+   * @param checkoutThreadName - the thread name
+   */
+  public void setCheckoutThreadName(String checkoutThreadName) {
+    this.checkoutThreadName = checkoutThreadName;
+  }
+
+  /*
+   * Getter for the throwable recording where this connection was checked out, only set for sampled checkouts
+   *
+   * @return the checkout site
+   */
+  Throwable getCheckoutSite() {
+    return checkoutSite;
+  }
+
+  /*
+   * Setter for the throwable recording where this connection was checked out
+   *
+   * @param checkoutSite - the checkout site
+   */
+  void setCheckoutSite(Throwable checkoutSite) {
+    this.checkoutSite = checkoutSite;
+  }
+
+  /*
+   * Marks this connection as reported by the leak detection, so that it is reported only once
+   *
+   * @return True if the connection had not been reported yet
+   */
+  boolean markLeakReported() {
+    if (leakReported) {
+      return false;
+    }
+    leakReported = true;
+    return true;
+  }
+
   @Override
   public int hashCode() {
     return hashCode;
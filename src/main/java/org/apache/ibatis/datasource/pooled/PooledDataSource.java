@@ -16,6 +16,7 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
@@ -23,12 +24,21 @@ import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
 
+import org.apache.ibatis.datasource.DataSourceException;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -43,7 +53,7 @@ public class PooledDataSource implements DataSource {
 
   private final PoolState state = new PoolState(this);
 
-  private final UnpooledDataSource dataSource;
+  final UnpooledDataSource dataSource;
 
   // OPTIONAL CONFIGURATION FIELDS
   protected int poolMaximumActiveConnections = 10;
@@ -54,8 +64,27 @@ public class PooledDataSource implements DataSource {
   protected String poolPingQuery = "NO PING QUERY SET";
   protected boolean poolPingEnabled;
   protected int poolPingConnectionsNotUsedFor;
+  protected int poolMaintenanceInterval;
+  protected int poolMinimumIdleConnections;
+  protected int poolMaximumConnectionLifetime;
+  protected int poolMaximumIdleTime;
+  protected boolean poolValidateIdleConnections;
+  protected int poolValidationTimeout = 5;
+  protected boolean poolMetricsEnabled;
+  protected PoolMetricsExporter poolMetricsExporter;
+  protected int poolMetricsExportInterval = 60000;
+  protected int poolLeakDetectionThreshold;
+  protected int poolLeakDetectionSampleRate = 1;
+  protected boolean poolReclaimOverdueConnections = true;
 
-  private int expectedConnectionTypeCode;
+  volatile int expectedConnectionTypeCode;
+
+  final PoolMetrics metrics = new PoolMetrics(this);
+
+  private final AtomicLong checkoutSequence = new AtomicLong();
+
+  private final Object maintenanceLock = new Object();
+  private volatile ScheduledExecutorService maintenanceExecutor;
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -236,6 +265,167 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /*
+   * How often the background maintenance runs. The maintenance thread is started with the first
+   * connection request; 0 (the default) disables it.
+   *
+   * @param milliseconds the interval between two maintenance runs
+   *
+   * @since 3.4.7
+   */
+  public void setPoolMaintenanceInterval(int milliseconds) {
+    this.poolMaintenanceInterval = milliseconds;
+    stopMaintenance();
+  }
+
+  /*
+   * The number of idle connections the background maintenance keeps open ahead of demand,
+   * capped by poolMaximumIdleConnections and poolMaximumActiveConnections
+   *
+   * @param poolMinimumIdleConnections The minimum number of idle connections
+   *
+   * @since 3.4.7
+   */
+  public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+    this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+  }
+
+  /*
+   * The maximum time a connection stays open. Older connections are closed when they are returned
+   * to the pool or by the background maintenance; 0 (the default) means no limit.
+   *
+   * @param milliseconds the maximum lifetime of a connection
+   *
+   * @since 3.4.7
+   */
+  public void setPoolMaximumConnectionLifetime(int milliseconds) {
+    this.poolMaximumConnectionLifetime = milliseconds;
+  }
+
+  /*
+   * Idle connections that have not been used for this long are closed by the background maintenance,
+   * as long as more than poolMinimumIdleConnections remain; 0 (the default) means never.
+   *
+   * @param milliseconds the maximum idle time of a connection
+   *
+   * @since 3.4.7
+   */
+  public void setPoolMaximumIdleTime(int milliseconds) {
+    this.poolMaximumIdleTime = milliseconds;
+  }
+
+  /*
+   * Determines if the background maintenance validates idle connections that have not been used
+   * for poolPingConnectionsNotUsedFor, so that requests find them already checked. The ping query is
+   * used when poolPingEnabled is true, Connection.isValid() otherwise.
+   *
+   * @param poolValidateIdleConnections True to validate idle connections in the background
+   *
+   * @since 3.4.7
+   */
+  public void setPoolValidateIdleConnections(boolean poolValidateIdleConnections) {
+    this.poolValidateIdleConnections = poolValidateIdleConnections;
+  }
+
+  /*
+   * The timeout passed to Connection.isValid() by the background validation
+   *
+   * @param seconds the validation timeout
+   *
+   * @since 3.4.7
+   */
+  public void setPoolValidationTimeout(int seconds) {
+    this.poolValidationTimeout = seconds;
+  }
+
+  /*
+   * Determines if checkout and usage times are recorded in the {@link PoolMetrics} histograms
+   *
+   * @param poolMetricsEnabled True to record latencies
+   *
+   * @since 3.4.7
+   */
+  public void setPoolMetricsEnabled(boolean poolMetricsEnabled) {
+    this.poolMetricsEnabled = poolMetricsEnabled;
+  }
+
+  /*
+   * The exporter the pool maintenance thread sends a metrics snapshot to every poolMetricsExportInterval
+   *
+   * @param poolMetricsExporter The exporter
+   *
+   * @since 3.4.7
+   */
+  public void setPoolMetricsExporter(PoolMetricsExporter poolMetricsExporter) {
+    this.poolMetricsExporter = poolMetricsExporter;
+    stopMaintenance();
+  }
+
+  /*
+   * Instantiates the exporter from its class name, to configure it from a data source factory
+   *
+   * @param type The fully qualified name of a {@link PoolMetricsExporter} with a no-arg constructor
+   *
+   * @since 3.4.7
+   */
+  public void setPoolMetricsExporterType(String type) {
+    try {
+      setPoolMetricsExporter((PoolMetricsExporter) Resources.classForName(type).newInstance());
+    } catch (Exception e) {
+      throw new DataSourceException("Error creating pool metrics exporter " + type + ".  Cause: " + e, e);
+    }
+  }
+
+  /*
+   * How often, in milliseconds, metrics are sent to the poolMetricsExporter
+   *
+   * @param milliseconds The export interval
+   *
+   * @since 3.4.7
+   */
+  public void setPoolMetricsExportInterval(int milliseconds) {
+    this.poolMetricsExportInterval = milliseconds;
+    stopMaintenance();
+  }
+
+  /*
+   * Connections checked out for longer than this are reported as possible leaks by the pool maintenance
+   * thread and listed by {@link PoolState#getOverdueConnections()}; 0 (the default) disables leak detection.
+   *
+   * @param milliseconds the leak detection threshold
+   *
+   * @since 3.4.7
+   */
+  public void setPoolLeakDetectionThreshold(int milliseconds) {
+    this.poolLeakDetectionThreshold = milliseconds;
+    stopMaintenance();
+  }
+
+  /*
+   * Records the stack trace of one checkout out of this many when leak detection is enabled.
+   * 1 (the default) records every checkout, 0 only records the thread name.
+   *
+   * @param poolLeakDetectionSampleRate the sample rate
+   *
+   * @since 3.4.7
+   */
+  public void setPoolLeakDetectionSampleRate(int poolLeakDetectionSampleRate) {
+    this.poolLeakDetectionSampleRate = poolLeakDetectionSampleRate;
+  }
+
+  /*
+   * Determines if a request for a connection takes over the oldest connection checked out for longer than
+   * poolMaximumCheckoutTime when the pool is exhausted. When false, requests wait up to poolTimeToWait and
+   * then fail, leaving overdue connections to their threads.
+   *
+   * @param poolReclaimOverdueConnections False to never claim overdue connections
+   *
+   * @since 3.4.7
+   */
+  public void setPoolReclaimOverdueConnections(boolean poolReclaimOverdueConnections) {
+    this.poolReclaimOverdueConnections = poolReclaimOverdueConnections;
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -296,6 +486,54 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public int getPoolMaintenanceInterval() {
+    return poolMaintenanceInterval;
+  }
+
+  public int getPoolMinimumIdleConnections() {
+    return poolMinimumIdleConnections;
+  }
+
+  public int getPoolMaximumConnectionLifetime() {
+    return poolMaximumConnectionLifetime;
+  }
+
+  public int getPoolMaximumIdleTime() {
+    return poolMaximumIdleTime;
+  }
+
+  public boolean isPoolValidateIdleConnections() {
+    return poolValidateIdleConnections;
+  }
+
+  public int getPoolValidationTimeout() {
+    return poolValidationTimeout;
+  }
+
+  public boolean isPoolMetricsEnabled() {
+    return poolMetricsEnabled;
+  }
+
+  public PoolMetricsExporter getPoolMetricsExporter() {
+    return poolMetricsExporter;
+  }
+
+  public int getPoolMetricsExportInterval() {
+    return poolMetricsExportInterval;
+  }
+
+  public int getPoolLeakDetectionThreshold() {
+    return poolLeakDetectionThreshold;
+  }
+
+  public int getPoolLeakDetectionSampleRate() {
+    return poolLeakDetectionSampleRate;
+  }
+
+  public boolean isPoolReclaimOverdueConnections() {
+    return poolReclaimOverdueConnections;
+  }
+
   /*
    * Closes all active and idle connections in the pool
    */
@@ -311,6 +549,7 @@ public class PooledDataSource implements DataSource {
           if (!realConn.getAutoCommit()) {
             realConn.rollback();
           }
+          metrics.connectionClosed();
           realConn.close();
         } catch (Exception e) {
           // ignore
@@ -325,6 +564,7 @@ public class PooledDataSource implements DataSource {
           if (!realConn.getAutoCommit()) {
             realConn.rollback();
           }
+          metrics.connectionClosed();
           realConn.close();
         } catch (Exception e) {
           // ignore
@@ -340,7 +580,37 @@ public class PooledDataSource implements DataSource {
     return state;
   }
 
-  private int assembleConnectionTypeCode(String url, String username, String password) {
+  /*
+   * @since 3.4.7
+   */
+  public PoolMetrics getPoolMetrics() {
+    return metrics;
+  }
+
+  /*
+   * Reads the number of active connections without locking the pool
+   */
+  int sampleActiveConnectionCount() {
+    return state.activeConnections.size();
+  }
+
+  /*
+   * Reads the number of idle connections without locking the pool
+   */
+  int sampleIdleConnectionCount() {
+    return state.idleConnections.size();
+  }
+
+  /*
+   * Copies the list of checked out connections
+   */
+  List<PooledConnection> sampleActiveConnections() {
+    synchronized (state) {
+      return new ArrayList<PooledConnection>(state.activeConnections);
+    }
+  }
+
+  int assembleConnectionTypeCode(String url, String username, String password) {
     return ("" + url + username + password).hashCode();
   }
 
@@ -349,7 +619,9 @@ public class PooledDataSource implements DataSource {
     synchronized (state) {
       state.activeConnections.remove(conn);
       if (conn.isValid()) {
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+        recordUsage(conn);
+        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+            && !isLifetimeExceeded(conn.getCreatedTimestamp())) {
           state.accumulatedCheckoutTime += conn.getCheckoutTime();
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
@@ -369,6 +641,7 @@ public class PooledDataSource implements DataSource {
             conn.getRealConnection().rollback();
           }
           conn.getRealConnection().close();
+          metrics.connectionClosed();
           if (log.isDebugEnabled()) {
             log.debug("Closed connection " + conn.getRealHashCode() + ".");
           }
@@ -387,8 +660,11 @@ public class PooledDataSource implements DataSource {
     boolean countedWait = false;
     PooledConnection conn = null;
     long t = System.currentTimeMillis();
+    long startNanos = poolMetricsEnabled ? System.nanoTime() : 0;
     int localBadConnectionCount = 0;
 
+    startMaintenanceIfNeeded();
+
     while (conn == null) {
       synchronized (state) {
         if (!state.idleConnections.isEmpty()) {
@@ -402,6 +678,7 @@ public class PooledDataSource implements DataSource {
           if (state.activeConnections.size() < poolMaximumActiveConnections) {
             // Can create new connection
             conn = new PooledConnection(dataSource.getConnection(), this);
+            metrics.connectionCreated();
             if (log.isDebugEnabled()) {
               log.debug("Created connection " + conn.getRealHashCode() + ".");
             }
@@ -409,7 +686,7 @@ public class PooledDataSource implements DataSource {
             // Cannot create new connection
             PooledConnection oldestActiveConnection = state.activeConnections.get(0);
             long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
-            if (longestCheckoutTime > poolMaximumCheckoutTime) {
+            if (poolReclaimOverdueConnections && longestCheckoutTime > poolMaximumCheckoutTime) {
               // Can claim overdue connection
               state.claimedOverdueConnectionCount++;
               state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
@@ -439,6 +716,12 @@ public class PooledDataSource implements DataSource {
               }
             } else {
               // Must wait
+              if (!poolReclaimOverdueConnections && countedWait && System.currentTimeMillis() - t >= poolTimeToWait) {
+                if (log.isDebugEnabled()) {
+                  log.debug("PooledDataSource: Could not get a connection within " + poolTimeToWait + " milliseconds.");
+                }
+                throw new SQLException("PooledDataSource: Could not get a connection within " + poolTimeToWait + " milliseconds.");
+              }
               try {
                 if (!countedWait) {
                   state.hadToWaitCount++;
@@ -448,7 +731,12 @@ public class PooledDataSource implements DataSource {
                   log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
                 }
                 long wt = System.currentTimeMillis();
-                state.wait(poolTimeToWait);
+                metrics.waitStarted();
+                try {
+                  state.wait(poolTimeToWait);
+                } finally {
+                  metrics.waitEnded();
+                }
                 state.accumulatedWaitTime += System.currentTimeMillis() - wt;
               } catch (InterruptedException e) {
                 break;
@@ -465,9 +753,14 @@ public class PooledDataSource implements DataSource {
             conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
             conn.setCheckoutTimestamp(System.currentTimeMillis());
             conn.setLastUsedTimestamp(System.currentTimeMillis());
+            recordCheckoutSite(conn);
             state.activeConnections.add(conn);
             state.requestCount++;
             state.accumulatedRequestTime += System.currentTimeMillis() - t;
+            if (poolMetricsEnabled) {
+              conn.setCheckoutNanoTime(System.nanoTime());
+              metrics.recordCheckout(conn.getCheckoutNanoTime() - startNanos);
+            }
           } else {
             if (log.isDebugEnabled()) {
               log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
@@ -518,40 +811,219 @@ public class PooledDataSource implements DataSource {
     if (result) {
       if (poolPingEnabled) {
         if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
-          try {
-            if (log.isDebugEnabled()) {
-              log.debug("Testing connection " + conn.getRealHashCode() + " ...");
-            }
-            Connection realConn = conn.getRealConnection();
-            Statement statement = realConn.createStatement();
-            ResultSet rs = statement.executeQuery(poolPingQuery);
-            rs.close();
-            statement.close();
-            if (!realConn.getAutoCommit()) {
-              realConn.rollback();
-            }
-            result = true;
-            if (log.isDebugEnabled()) {
-              log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
-            }
-          } catch (Exception e) {
-            log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
-            try {
-              conn.getRealConnection().close();
-            } catch (Exception e2) {
-              //ignore
-            }
-            result = false;
-            if (log.isDebugEnabled()) {
-              log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
-            }
-          }
+          result = executePingQuery(conn.getRealConnection());
         }
       }
     }
     return result;
   }
 
+  private boolean executePingQuery(Connection realConn) {
+    int realHashCode = realConn.hashCode();
+    try {
+      if (log.isDebugEnabled()) {
+        log.debug("Testing connection " + realHashCode + " ...");
+      }
+      Statement statement = realConn.createStatement();
+      ResultSet rs = statement.executeQuery(poolPingQuery);
+      rs.close();
+      statement.close();
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + realHashCode + " is GOOD!");
+      }
+      return true;
+    } catch (Exception e) {
+      log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
+      try {
+        realConn.close();
+      } catch (Exception e2) {
+        //ignore
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + realHashCode + " is BAD: " + e.getMessage());
+      }
+      return false;
+    }
+  }
+
+  /*
+   * Validates an idle connection from the maintenance thread
+   *
+   * @param realConn - the connection to check
+   * @return True if the connection is still usable
+   */
+  boolean validateIdleConnection(Connection realConn) {
+    try {
+      if (realConn.isClosed()) {
+        return false;
+      }
+      if (poolPingEnabled) {
+        return executePingQuery(realConn);
+      }
+      return realConn.isValid(poolValidationTimeout);
+    } catch (SQLException e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + realConn.hashCode() + " is BAD: " + e.getMessage());
+      }
+      return false;
+    }
+  }
+
+  boolean isLifetimeExceeded(long createdTimestamp) {
+    return poolMaximumConnectionLifetime > 0 && System.currentTimeMillis() - createdTimestamp > poolMaximumConnectionLifetime;
+  }
+
+  boolean isIdleTimeExceeded(long lastUsedTimestamp) {
+    return poolMaximumIdleTime > 0 && System.currentTimeMillis() - lastUsedTimestamp > poolMaximumIdleTime;
+  }
+
+  boolean isValidationDue(long lastUsedTimestamp) {
+    return poolValidateIdleConnections && System.currentTimeMillis() - lastUsedTimestamp > poolPingConnectionsNotUsedFor;
+  }
+
+  /*
+   * The number of idle connections the maintenance should keep open
+   */
+  int getMinimumIdleTarget() {
+    return Math.min(poolMinimumIdleConnections, Math.min(poolMaximumIdleConnections, poolMaximumActiveConnections));
+  }
+
+  void startMaintenanceIfNeeded() {
+    if (maintenanceExecutor != null || (poolMaintenanceInterval <= 0 && !isMetricsExportEnabled() && poolLeakDetectionThreshold <= 0)) {
+      return;
+    }
+    synchronized (maintenanceLock) {
+      if (maintenanceExecutor == null) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "mybatis-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+        if (poolMaintenanceInterval > 0) {
+          executor.scheduleWithFixedDelay(new MaintenanceTask(this, executor, MaintenanceTask.MAINTAIN_POOL), 0, poolMaintenanceInterval, TimeUnit.MILLISECONDS);
+        }
+        if (isMetricsExportEnabled()) {
+          executor.scheduleAtFixedRate(new MaintenanceTask(this, executor, MaintenanceTask.EXPORT_METRICS), poolMetricsExportInterval, poolMetricsExportInterval, TimeUnit.MILLISECONDS);
+        }
+        if (poolLeakDetectionThreshold > 0) {
+          // a leak is reported at most 1.5 times the threshold after the checkout
+          long delay = Math.max(poolLeakDetectionThreshold / 2, 1);
+          executor.scheduleWithFixedDelay(new MaintenanceTask(this, executor, MaintenanceTask.DETECT_LEAKS), delay, delay, TimeUnit.MILLISECONDS);
+        }
+        maintenanceExecutor = executor;
+      }
+    }
+  }
+
+  private boolean isMetricsExportEnabled() {
+    return poolMetricsExporter != null && poolMetricsExportInterval > 0;
+  }
+
+  void stopMaintenance() {
+    synchronized (maintenanceLock) {
+      if (maintenanceExecutor != null) {
+        maintenanceExecutor.shutdownNow();
+        maintenanceExecutor = null;
+      }
+    }
+  }
+
+  /*
+   * Retires expired connections, closes connections idle for too long, validates idle connections and
+   * opens new ones up to poolMinimumIdleConnections. Runs on the maintenance thread.
+   */
+  protected void maintainPool() {
+    List<PooledConnection> toClose = new ArrayList<PooledConnection>();
+    List<PooledConnection> toValidate = new ArrayList<PooledConnection>();
+    int minimumIdle = getMinimumIdleTarget();
+    synchronized (state) {
+      for (int i = state.idleConnections.size(); i > 0; i--) {
+        PooledConnection conn = state.idleConnections.get(i - 1);
+        if (isLifetimeExceeded(conn.getCreatedTimestamp())
+            || (isIdleTimeExceeded(conn.getLastUsedTimestamp()) && state.idleConnections.size() > minimumIdle)) {
+          state.idleConnections.remove(i - 1);
+          toClose.add(conn);
+        } else if (isValidationDue(conn.getLastUsedTimestamp())) {
+          // taken out of the pool so no request gets it while it is validated
+          state.idleConnections.remove(i - 1);
+          toValidate.add(conn);
+        }
+      }
+    }
+    for (PooledConnection conn : toClose) {
+      closeIdleConnection(conn);
+      if (log.isDebugEnabled()) {
+        log.debug("Retired idle connection " + conn.getRealHashCode() + ".");
+      }
+    }
+    for (PooledConnection conn : toValidate) {
+      if (validateIdleConnection(conn.getRealConnection())) {
+        conn.setLastUsedTimestamp(System.currentTimeMillis());
+        synchronized (state) {
+          state.idleConnections.add(conn);
+          state.notifyAll();
+        }
+      } else {
+        closeIdleConnection(conn);
+        synchronized (state) {
+          state.badConnectionCount++;
+        }
+      }
+    }
+    while (true) {
+      synchronized (state) {
+        if (state.idleConnections.size() >= minimumIdle
+            || state.idleConnections.size() + state.activeConnections.size() >= poolMaximumActiveConnections) {
+          return;
+        }
+      }
+      PooledConnection conn;
+      try {
+        conn = new PooledConnection(dataSource.getConnection(), this);
+      } catch (SQLException e) {
+        log.warn("Could not open a connection to fill the pool: " + e.getMessage());
+        return;
+      }
+      metrics.connectionCreated();
+      conn.setConnectionTypeCode(expectedConnectionTypeCode);
+      boolean added = false;
+      synchronized (state) {
+        if (state.idleConnections.size() + state.activeConnections.size() < poolMaximumActiveConnections) {
+          state.idleConnections.add(conn);
+          state.notifyAll();
+          added = true;
+        }
+      }
+      if (!added) {
+        closeIdleConnection(conn);
+        return;
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Opened idle connection " + conn.getRealHashCode() + ".");
+      }
+    }
+  }
+
+  private void closeIdleConnection(PooledConnection conn) {
+    conn.invalidate();
+    metrics.connectionClosed();
+    try {
+      Connection realConn = conn.getRealConnection();
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
   /*
    * Unwraps a pooled connection to get to the 'real' connection
    *
@@ -569,6 +1041,7 @@ public class PooledDataSource implements DataSource {
   }
 
   protected void finalize() throws Throwable {
+    stopMaintenance();
     forceCloseAll();
     super.finalize();
   }
@@ -585,4 +1058,103 @@ public class PooledDataSource implements DataSource {
     return Logger.getLogger(Logger.GLOBAL_LOGGER_NAME); // requires JDK version 1.6
   }
 
+  void recordUsage(PooledConnection conn) {
+    if (poolMetricsEnabled && conn.getCheckoutNanoTime() != 0) {
+      metrics.recordUsage(System.nanoTime() - conn.getCheckoutNanoTime());
+    }
+  }
+
+  /*
+   * Remembers which thread checked out the connection and, for sampled checkouts, where. Creating the
+   * throwable only captures the stack; its elements are resolved when the connection is reported.
+   */
+  void recordCheckoutSite(PooledConnection conn) {
+    if (poolLeakDetectionThreshold > 0) {
+      conn.setCheckoutThreadName(Thread.currentThread().getName());
+      if (poolLeakDetectionSampleRate > 0 && checkoutSequence.getAndIncrement() % poolLeakDetectionSampleRate == 0) {
+        conn.setCheckoutSite(new Throwable("Connection checkout"));
+      }
+    }
+  }
+
+  /*
+   * Lists the connections checked out for longer than poolLeakDetectionThreshold or, when leak detection
+   * is disabled, poolMaximumCheckoutTime
+   */
+  List<OverdueConnection> getOverdueConnections() {
+    long threshold = poolLeakDetectionThreshold > 0 ? poolLeakDetectionThreshold : poolMaximumCheckoutTime;
+    List<OverdueConnection> overdueConnections = new ArrayList<OverdueConnection>();
+    for (PooledConnection conn : sampleActiveConnections()) {
+      if (conn.getCheckoutTime() > threshold) {
+        overdueConnections.add(new OverdueConnection(conn));
+      }
+    }
+    return overdueConnections;
+  }
+
+  /*
+   * Logs a warning, once, for each connection checked out for longer than poolLeakDetectionThreshold.
+   * The connections are left to their threads.
+   */
+  void detectLeaks() {
+    if (poolLeakDetectionThreshold <= 0) {
+      return;
+    }
+    for (PooledConnection conn : sampleActiveConnections()) {
+      if (conn.getCheckoutTime() > poolLeakDetectionThreshold && conn.markLeakReported()) {
+        log.warn("Possible connection leak. " + new OverdueConnection(conn));
+      }
+    }
+  }
+
+  /*
+   * Sends a metrics snapshot to the exporter
+   */
+  void exportMetrics() {
+    PoolMetricsExporter exporter = poolMetricsExporter;
+    if (exporter != null) {
+      exporter.export(this, metrics.snapshot());
+    }
+  }
+
+  /*
+   * Only holds a weak reference to the data source so that an unreachable pool stops its own maintenance
+   */
+  private static class MaintenanceTask implements Runnable {
+
+    static final int MAINTAIN_POOL = 0;
+    static final int EXPORT_METRICS = 1;
+    static final int DETECT_LEAKS = 2;
+
+    private final WeakReference<PooledDataSource> dataSourceRef;
+    private final ScheduledExecutorService executor;
+    private final int task;
+
+    MaintenanceTask(PooledDataSource dataSource, ScheduledExecutorService executor, int task) {
+      this.dataSourceRef = new WeakReference<PooledDataSource>(dataSource);
+      this.executor = executor;
+      this.task = task;
+    }
+
+    @Override
+    public void run() {
+      PooledDataSource dataSource = dataSourceRef.get();
+      if (dataSource == null) {
+        executor.shutdown();
+        return;
+      }
+      try {
+        if (task == EXPORT_METRICS) {
+          dataSource.exportMetrics();
+        } else if (task == DETECT_LEAKS) {
+          dataSource.detectLeaks();
+        } else {
+          dataSource.maintainPool();
+        }
+      } catch (Exception e) {
+        log.warn("Pool maintenance failed: " + e.getMessage());
+      }
+    }
+  }
+
 }
@@ -38,6 +38,7 @@ import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.KeysetRowBounds;
 import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -196,12 +197,18 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
-    CacheKey cacheKey = new CacheKey();
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();   // 入参类型
+    CacheKey cacheKey = new CacheKey(parameterMappings.size() + 5);
     cacheKey.update(ms.getId());    // 调用的方法名
     cacheKey.update(rowBounds.getOffset());   // 分页：起始页
     cacheKey.update(rowBounds.getLimit());    // 分页：每页条数
     cacheKey.update(boundSql.getSql());   // 执行的SQL语句
-    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();   // 入参类型
+    if (rowBounds instanceof KeysetRowBounds) {
+      KeysetRowBounds keysetRowBounds = (KeysetRowBounds) rowBounds;
+      cacheKey.update(keysetRowBounds.isDescending());
+      cacheKey.update(keysetRowBounds.getColumns());
+      cacheKey.update(keysetRowBounds.getLastValues());
+    }
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();   // 类型处理器
     // mimic DefaultParameterHandler logic    入参映射一般不用，跳过！！
     for (ParameterMapping parameterMapping : parameterMappings) {
@@ -225,6 +232,9 @@ public abstract class BaseExecutor implements Executor {
       // issue #176   // 数据库连接的环境id
       cacheKey.update(configuration.getEnvironment().getId());
     }
+    if (configuration.isCompactCacheKeys()) {
+      cacheKey.compact();
+    }
     return cacheKey;
   }
 
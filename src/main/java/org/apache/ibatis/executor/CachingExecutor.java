@@ -17,8 +17,10 @@ package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheLoadCoalescer;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cache.TransactionalCacheManager;
 import org.apache.ibatis.cursor.Cursor;
@@ -40,9 +42,22 @@ public class CachingExecutor implements Executor {
 
   private final Executor delegate;
   private final TransactionalCacheManager tcm = new TransactionalCacheManager();
+  private final CacheLoadCoalescer coalescer;
+  // uncommitted updates may hold locks that a shared load waits for
+  private boolean dirty;
 
   public CachingExecutor(Executor delegate) {
+    this(delegate, null);
+  }
+
+  /**
+   * @param delegate
+   * @param coalescer shares the loads of concurrent cache misses between sessions, or null
+   * @since 3.4.7
+   */
+  public CachingExecutor(Executor delegate, CacheLoadCoalescer coalescer) {
     this.delegate = delegate;
+    this.coalescer = coalescer;
     delegate.setExecutorWrapper(this);
   }
 
@@ -73,6 +88,7 @@ public class CachingExecutor implements Executor {
   @Override
   public int update(MappedStatement ms, Object parameterObject) throws SQLException {
     flushCacheIfRequired(ms);
+    dirty = true;
     return delegate.update(ms, parameterObject);
   }
 
@@ -102,7 +118,11 @@ public class CachingExecutor implements Executor {
         List<E> list = (List<E>) tcm.getObject(cache, key);     // 根据缓存实现类，缓存key，获取缓存的值
         // 如果没有获取到值，进行查询，并加入缓存/覆盖缓存
         if (list == null) {
-          list = delegate.<E> query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+          if (coalescer != null && !dirty && !tcm.isCleared(cache)) {
+            list = coalescedQuery(cache, ms, parameterObject, rowBounds, key, boundSql);
+          } else {
+            list = delegate.<E> query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+          }
           tcm.putObject(cache, key, list); // issue #578 and #116
         }
         return list;
@@ -111,6 +131,29 @@ public class CachingExecutor implements Executor {
     return delegate.<E> query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
   }
 
+  /*
+   * Shares the database load with the other sessions missing the same key. A session that modified the
+   * cache or updated anything in its transaction does not get here, so it never gets a result that ignores
+   * its own changes nor waits for a load blocked by its own locks.
+   */
+  private <E> List<E> coalescedQuery(Cache cache, final MappedStatement ms, final Object parameterObject,
+      final RowBounds rowBounds, final CacheKey key, final BoundSql boundSql) throws SQLException {
+    try {
+      return coalescer.load(cache, key, new Callable<List<E>>() {
+        @Override
+        public List<E> call() throws SQLException {
+          return delegate.<E> query(ms, parameterObject, rowBounds, Executor.NO_RESULT_HANDLER, key, boundSql);
+        }
+      });
+    } catch (SQLException e) {
+      throw e;
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ExecutorException("Error loading " + ms.getId() + ".  Cause: " + e, e);
+    }
+  }
+
   @Override
   public List<BatchResult> flushStatements() throws SQLException {
     return delegate.flushStatements();
@@ -120,6 +163,7 @@ public class CachingExecutor implements Executor {
   public void commit(boolean required) throws SQLException {
     delegate.commit(required);
     tcm.commit();
+    dirty = false;
   }
 
   @Override
@@ -130,6 +174,7 @@ public class CachingExecutor implements Executor {
       if (required) {
         tcm.rollback();
       }
+      dirty = false;
     }
   }
 
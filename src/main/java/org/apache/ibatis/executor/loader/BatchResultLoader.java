@@ -0,0 +1,328 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+/**
+ * Loads the results of many {@link ResultLoader}s of the same nested select with one query per batch.
+ * <p>
+ * Statements whose only condition compares a column with their only parameter, e.g.
+ * <code>select id, subject from post where blog_id = #{id}</code>, optionally followed by an ORDER BY of plain
+ * columns, are run once for the parameters of all the distinct loaders of a batch, with an <code>IN</code> list.
+ * The query adds a {@link #BATCH_INDEX_COLUMN} column telling the rows of each loader apart, which is then left
+ * out of the automatic mappings. Other statements are run one by one.
+ *
+ * @since 3.4.7
+ */
+public class BatchResultLoader {
+
+  public static final String BATCH_INDEX_COLUMN = "BATCH_INDEX_";
+
+  private static final String ORDER_BY_ITEM = "[\\w$.]+(\\s+(asc|desc))?(\\s+nulls\\s+(first|last))?";
+  // what follows the last WHERE of a batchable statement
+  private static final Pattern KEY_CONDITION = Pattern.compile("where\\s+([\\w$.]+)\\s*=\\s*\\?"
+      + "(\\s+order\\s+by\\s+" + ORDER_BY_ITEM + "(\\s*,\\s*" + ORDER_BY_ITEM + ")*)?\\s*", Pattern.CASE_INSENSITIVE);
+  private static final String[] SET_OPERATORS = { "union", "intersect", "except", "minus" };
+
+  private final MappedStatement mappedStatement;
+  private final int batchSize;
+  // loaders of the same query share its rows
+  private final Map<CacheKey, List<PendingResult>> pendingResults = new LinkedHashMap<CacheKey, List<PendingResult>>();
+  private MappedStatement batchStatement;
+
+  public BatchResultLoader(MappedStatement mappedStatement, int batchSize) {
+    this.mappedStatement = mappedStatement;
+    this.batchSize = batchSize;
+  }
+
+  /*
+   * Whether the rows of the statement can be read with those of other parameters: a plain select, whose rows are mapped
+   * one at a time and which does not use a second level cache
+   */
+  public static boolean isBatchable(MappedStatement ms) {
+    return ms.getSqlCommandType() == SqlCommandType.SELECT && ms.getStatementType() != StatementType.CALLABLE
+        && ms.getResultSets() == null && !ms.hasNestedResultMaps() && (ms.getCache() == null || !ms.isUseCache());
+  }
+
+  /*
+   * Adds a loader whose result is set to the property once the batch is loaded
+   */
+  public void addLoader(ResultLoader resultLoader, MetaObject metaResultObject, String property) {
+    addLoader(resultLoader, metaResultObject, property, false);
+  }
+
+  /*
+   * Adds a lazy loader, which sets the property even to null
+   */
+  void addLazyLoader(ResultLoader resultLoader, MetaObject metaResultObject, String property) {
+    addLoader(resultLoader, metaResultObject, property, true);
+  }
+
+  private void addLoader(ResultLoader resultLoader, MetaObject metaResultObject, String property, boolean lazy) {
+    if (resultLoader.mappedStatement != mappedStatement) {
+      throw new ExecutorException("Cannot load " + resultLoader.mappedStatement.getId() + " in a batch of " + mappedStatement.getId() + ".");
+    }
+    List<PendingResult> results = pendingResults.get(resultLoader.cacheKey);
+    if (results == null) {
+      results = new ArrayList<PendingResult>();
+      pendingResults.put(resultLoader.cacheKey, results);
+    }
+    results.add(new PendingResult(resultLoader, metaResultObject, property, lazy));
+  }
+
+  public boolean isEmpty() {
+    return pendingResults.isEmpty();
+  }
+
+  public void load() throws SQLException {
+    List<List<PendingResult>> queries = new ArrayList<List<PendingResult>>(pendingResults.values());
+    pendingResults.clear();
+    for (int start = 0; start < queries.size(); start += batchSize) {
+      load(queries.subList(start, Math.min(start + batchSize, queries.size())));
+    }
+  }
+
+  private void load(List<List<PendingResult>> queries) throws SQLException {
+    final ResultLoader firstLoader = queries.get(0).get(0).resultLoader;
+    final BoundSql batchBoundSql = queries.size() == 1 ? null : createBatchBoundSql(queries);
+    if (batchBoundSql == null) {
+      for (List<PendingResult> query : queries) {
+        final ResultLoader resultLoader = query.get(0).resultLoader;
+        List<Object> rows = resultLoader.query(mappedStatement, resultLoader.parameterObject, null, resultLoader.cacheKey, resultLoader.boundSql);
+        setResults(query, rows);
+      }
+      return;
+    }
+    final CacheKey batchKey = new CacheKey(queries.size() + 1);
+    batchKey.update(getBatchStatement().getId());
+    for (List<PendingResult> query : queries) {
+      batchKey.update(query.get(0).resultLoader.cacheKey);
+    }
+    final BatchResultHandler resultHandler = new BatchResultHandler(queries.size());
+    firstLoader.query(getBatchStatement(), null, resultHandler, batchKey, batchBoundSql);
+    for (int i = 0; i < queries.size(); i++) {
+      setResults(queries.get(i), resultHandler.rows.get(i));
+    }
+  }
+
+  private void setResults(List<PendingResult> results, List<Object> rows) {
+    for (PendingResult result : results) {
+      final Object value = result.resultLoader.loadResult(rows);
+      final MetaObject metaResultObject = result.metaResultObject;
+      // as ResultLoaderMap and the nested query mappings of DefaultResultSetHandler
+      if (result.lazy || value != null || (mappedStatement.getConfiguration().isCallSettersOnNulls() && !metaResultObject.getSetterType(result.property).isPrimitive())) {
+        metaResultObject.setValue(result.property, value);
+      }
+    }
+  }
+
+  /*
+   * SELECT ..., CASE WHEN key = ? THEN 0 WHEN key = ? THEN 1 ... END AS BATCH_INDEX_ FROM ... WHERE key IN (?, ?, ...)
+   * with the value of the parameter of each query bound again under a new name, or null when the SQL of the
+   * queries does not compare a key column with their only parameter
+   */
+  private BoundSql createBatchBoundSql(List<List<PendingResult>> queries) {
+    final BoundSql firstBoundSql = queries.get(0).get(0).resultLoader.boundSql;
+    final String querySql = firstBoundSql.getSql();
+    if (firstBoundSql.getParameterMappings().size() != 1 || querySql.indexOf('?') != querySql.lastIndexOf('?')) {
+      return null;
+    }
+    for (List<PendingResult> query : queries) {
+      if (!querySql.equals(query.get(0).resultLoader.boundSql.getSql())) {
+        return null;
+      }
+    }
+    for (String setOperator : SET_OPERATORS) {
+      if (indexOfKeyword(querySql, setOperator, false) >= 0) {
+        return null;
+      }
+    }
+    final int from = indexOfKeyword(querySql, "from", false);
+    final int where = indexOfKeyword(querySql, "where", true);
+    if (from < 0 || where < from) {
+      return null;
+    }
+    final Matcher keyCondition = KEY_CONDITION.matcher(querySql).region(where, querySql.length());
+    if (!keyCondition.matches()) {
+      return null;
+    }
+    final String keyColumn = keyCondition.group(1);
+    final Configuration configuration = mappedStatement.getConfiguration();
+    final ParameterMapping parameterMapping = firstBoundSql.getParameterMappings().get(0);
+    final StringBuilder caseSql = new StringBuilder(", CASE");
+    final StringBuilder inSql = new StringBuilder(keyColumn).append(" IN (");
+    final List<ParameterMapping> keyParameterMappings = new ArrayList<ParameterMapping>(queries.size());
+    final Map<String, Object> values = new LinkedHashMap<String, Object>();
+    for (int i = 0; i < queries.size(); i++) {
+      final String name = "_batch" + i;
+      caseSql.append(" WHEN ").append(keyColumn).append(" = ? THEN ").append(i);
+      inSql.append(i > 0 ? ", ?" : "?");
+      keyParameterMappings.add(new ParameterMapping.Builder(configuration, name, parameterMapping.getTypeHandler())
+          .mode(ParameterMode.IN)
+          .javaType(parameterMapping.getJavaType())
+          .jdbcType(parameterMapping.getJdbcType())
+          .jdbcTypeName(parameterMapping.getJdbcTypeName())
+          .numericScale(parameterMapping.getNumericScale())
+          .build());
+      values.put(name, getParameterValue(queries.get(i).get(0).resultLoader, parameterMapping));
+    }
+    caseSql.append(" END AS ").append(BATCH_INDEX_COLUMN).append(' ');
+    inSql.append(')');
+    final String sql = querySql.substring(0, from).trim() + caseSql + querySql.substring(from, keyCondition.start(1))
+        + inSql + (keyCondition.group(2) == null ? "" : keyCondition.group(2));
+    final List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>(keyParameterMappings);
+    parameterMappings.addAll(keyParameterMappings);
+    final BoundSql batchBoundSql = new BoundSql(configuration, sql, parameterMappings, null);
+    for (Map.Entry<String, Object> value : values.entrySet()) {
+      batchBoundSql.setAdditionalParameter(value.getKey(), value.getValue());
+    }
+    return batchBoundSql;
+  }
+
+  /*
+   * mimic DefaultParameterHandler logic
+   */
+  private Object getParameterValue(ResultLoader resultLoader, ParameterMapping parameterMapping) {
+    final Configuration configuration = mappedStatement.getConfiguration();
+    final TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    final BoundSql boundSql = resultLoader.boundSql;
+    final Object parameterObject = resultLoader.parameterObject;
+    final String propertyName = parameterMapping.getProperty();
+    if (boundSql.hasAdditionalParameter(propertyName)) {
+      return boundSql.getAdditionalParameter(propertyName);
+    } else if (parameterObject == null) {
+      return null;
+    } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+      return parameterObject;
+    } else {
+      return configuration.newMetaObject(parameterObject).getValue(propertyName);
+    }
+  }
+
+  /*
+   * The first or last index of a keyword outside of any parentheses or literals, or -1
+   */
+  private static int indexOfKeyword(String sql, String keyword, boolean last) {
+    int depth = 0;
+    boolean quoted = false;
+    int index = -1;
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (c == '\'') {
+        quoted = !quoted;
+      } else if (!quoted) {
+        if (c == '(') {
+          depth++;
+        } else if (c == ')') {
+          depth--;
+        } else if (depth == 0 && sql.regionMatches(true, i, keyword, 0, keyword.length())
+            && (i == 0 || !isIdentifierPart(sql.charAt(i - 1)))
+            && (i + keyword.length() == sql.length() || !isIdentifierPart(sql.charAt(i + keyword.length())))) {
+          index = i;
+          if (!last) {
+            return index;
+          }
+        }
+      }
+    }
+    return index;
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.';
+  }
+
+  private MappedStatement getBatchStatement() {
+    if (batchStatement == null) {
+      batchStatement = new MappedStatement.Builder(mappedStatement.getConfiguration(), mappedStatement.getId() + "!batch",
+          mappedStatement.getSqlSource(), SqlCommandType.SELECT)
+          .resource(mappedStatement.getResource())
+          .statementType(mappedStatement.getStatementType())
+          .resultSetType(mappedStatement.getResultSetType())
+          .fetchSize(mappedStatement.getFetchSize())
+          .timeout(mappedStatement.getTimeout())
+          .parameterMap(mappedStatement.getParameterMap())
+          .resultMaps(mappedStatement.getResultMaps())
+          .databaseId(mappedStatement.getDatabaseId())
+          .lang(mappedStatement.getLang())
+          .build();
+    }
+    return batchStatement;
+  }
+
+  private static class PendingResult {
+
+    final ResultLoader resultLoader;
+    final MetaObject metaResultObject;
+    final String property;
+    final boolean lazy;
+
+    PendingResult(ResultLoader resultLoader, MetaObject metaResultObject, String property, boolean lazy) {
+      this.resultLoader = resultLoader;
+      this.metaResultObject = metaResultObject;
+      this.property = property;
+      this.lazy = lazy;
+    }
+
+  }
+
+  /**
+   * Collects the rows of a batch by the value of their {@link #BATCH_INDEX_COLUMN} column.
+   */
+  public static class BatchResultHandler implements ResultHandler<Object> {
+
+    private final List<List<Object>> rows;
+
+    BatchResultHandler(int queryCount) {
+      rows = new ArrayList<List<Object>>(queryCount);
+      for (int i = 0; i < queryCount; i++) {
+        rows.add(new ArrayList<Object>());
+      }
+    }
+
+    public void handleResult(int batchIndex, Object row) {
+      rows.get(batchIndex).add(row);
+    }
+
+    @Override
+    public void handleResult(ResultContext<? extends Object> resultContext) {
+      throw new ExecutorException("The rows of a batch of nested queries require their batch index.");
+    }
+
+  }
+
+}
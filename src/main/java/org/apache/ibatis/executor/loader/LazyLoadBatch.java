@@ -0,0 +1,89 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * The lazy loaders of one property of up to batch size results of a statement. The first of them to load
+ * loads the others that are still pending too, with one query. The loaders of the other results stay in their
+ * {@link ResultLoaderMap}s, which are only changed by their own results, and do nothing once loaded. If the
+ * query fails, they load as usual later on.
+ *
+ * @since 3.4.7
+ */
+public class LazyLoadBatch {
+
+  /**
+   * The batch size of properties fetched in batches when the lazyLoadBatchSize setting is not set
+   */
+  public static final int DEFAULT_BATCH_SIZE = 100;
+
+  private final MappedStatement mappedStatement;
+  private final int batchSize;
+  private final List<ResultLoaderMap.LoadPair> loadPairs = new ArrayList<ResultLoaderMap.LoadPair>();
+
+  public LazyLoadBatch(MappedStatement mappedStatement, int batchSize) {
+    this.mappedStatement = mappedStatement;
+    this.batchSize = batchSize;
+  }
+
+  public boolean isFull() {
+    return loadPairs.size() >= batchSize;
+  }
+
+  void add(ResultLoaderMap.LoadPair loadPair) {
+    loadPairs.add(loadPair);
+  }
+
+  /*
+   * Loads the property of the results that did not load it meanwhile, the one being loaded included
+   */
+  synchronized void load(ResultLoaderMap.LoadPair loading) throws SQLException {
+    final BatchResultLoader batchResultLoader = new BatchResultLoader(mappedStatement, batchSize);
+    final List<ResultLoaderMap.LoadPair> taken = new ArrayList<ResultLoaderMap.LoadPair>();
+    if (loading.take()) {
+      batchResultLoader.addLazyLoader(loading.getResultLoader(), loading.getMetaResultObject(), loading.getProperty());
+    }
+    for (ResultLoaderMap.LoadPair loadPair : loadPairs) {
+      if (loadPair != loading && loadPair.take()) {
+        taken.add(loadPair);
+        batchResultLoader.addLazyLoader(loadPair.getResultLoader(), loadPair.getMetaResultObject(), loadPair.getProperty());
+      }
+    }
+    if (batchResultLoader.isEmpty()) {
+      return;
+    }
+    boolean loaded = false;
+    try {
+      batchResultLoader.load();
+      loaded = true;
+    } finally {
+      if (loaded) {
+        loadPairs.clear();
+      } else {
+        for (ResultLoaderMap.LoadPair loadPair : taken) {
+          loadPair.release();
+        }
+      }
+    }
+  }
+
+}
@@ -30,6 +30,7 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.TransactionFactory;
@@ -68,17 +69,32 @@ public class ResultLoader {
 
   public Object loadResult() throws SQLException {
     List<Object> list = selectList();
+    return loadResult(list);
+  }
+
+  /*
+   * Takes the result from the rows selected by a batch of loaders
+   */
+  Object loadResult(List<Object> list) {
     resultObject = resultExtractor.extractObjectFromList(list, targetType);
     return resultObject;
   }
 
   private <E> List<E> selectList() throws SQLException {
+    return query(mappedStatement, parameterObject, Executor.NO_RESULT_HANDLER, cacheKey, boundSql);
+  }
+
+  /*
+   * Runs a query with the executor that created the loader, or with a new one when loading from another thread
+   * or after the executor was closed
+   */
+  <E> List<E> query(MappedStatement ms, Object parameter, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
     Executor localExecutor = executor;
     if (Thread.currentThread().getId() != this.creatorThreadId || localExecutor.isClosed()) {
       localExecutor = newExecutor();
     }
     try {
-      return localExecutor.<E> query(mappedStatement, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, cacheKey, boundSql);
+      return localExecutor.<E> query(ms, parameter, RowBounds.DEFAULT, resultHandler, key, boundSql);
     } finally {
       if (localExecutor != executor) {
         localExecutor.close(false);
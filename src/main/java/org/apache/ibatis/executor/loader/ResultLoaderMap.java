@@ -23,6 +23,7 @@ import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -50,17 +51,37 @@ public class ResultLoaderMap {
   private final Map<String, LoadPair> loaderMap = new HashMap<String, LoadPair>();
 
   public void addLoader(String property, MetaObject metaResultObject, ResultLoader resultLoader) {
+    addLoader(property, metaResultObject, resultLoader, null);
+  }
+
+  /**
+   * @param batch the loaders of the same property of other results to load together with this one, or null
+   * @since 3.4.7
+   */
+  public void addLoader(String property, MetaObject metaResultObject, ResultLoader resultLoader, LazyLoadBatch batch) {
     String upperFirst = getUppercaseFirstProperty(property);
     if (!upperFirst.equalsIgnoreCase(property) && loaderMap.containsKey(upperFirst)) {
       throw new ExecutorException("Nested lazy loaded result property '" + property +
               "' for query id '" + resultLoader.mappedStatement.getId() +
               " already exists in the result map. The leftmost property of all lazy loaded properties must be unique within a result map.");
     }
-    loaderMap.put(upperFirst, new LoadPair(property, metaResultObject, resultLoader));
+    LoadPair loadPair = new LoadPair(property, metaResultObject, resultLoader);
+    loaderMap.put(upperFirst, loadPair);
+    if (batch != null) {
+      loadPair.batch = batch;
+      batch.add(loadPair);
+    }
   }
 
   public final Map<String, LoadPair> getProperties() {
-    return new HashMap<String, LoadPair>(this.loaderMap);
+    Map<String, LoadPair> properties = new HashMap<String, LoadPair>(this.loaderMap);
+    // loaded meanwhile in the batch of another result
+    for (Iterator<LoadPair> it = properties.values().iterator(); it.hasNext();) {
+      if (it.next().isTaken()) {
+        it.remove();
+      }
+    }
+    return properties;
   }
 
   public Set<String> getPropertyNames() {
@@ -85,7 +106,11 @@ public class ResultLoaderMap {
   }
 
   public void remove(String property) {
-    loaderMap.remove(property.toUpperCase(Locale.ENGLISH));
+    LoadPair pair = loaderMap.remove(property.toUpperCase(Locale.ENGLISH));
+    if (pair != null) {
+      // set meanwhile, so a batch must not load it
+      pair.take();
+    }
   }
 
   public void loadAll() throws SQLException {
@@ -143,6 +168,14 @@ public class ResultLoaderMap {
      * Parameter of the sql statement.
      */
     private Serializable mappedParameter;
+    /**
+     * Loaders of the same property of other results, loaded together with this one.
+     */
+    private transient LazyLoadBatch batch;
+    /**
+     * Whether the property was set, or is loaded by a batch.
+     */
+    private transient boolean taken;
 
     private LoadPair(final String property, MetaObject metaResultObject, ResultLoader resultLoader) {
       this.property = property;
@@ -214,11 +247,51 @@ public class ResultLoaderMap {
         final ResultLoader old = this.resultLoader;
         this.resultLoader = new ResultLoader(old.configuration, new ClosedExecutor(), old.mappedStatement,
                 old.parameterObject, old.targetType, old.cacheKey, old.boundSql);
+      } else if (this.batch != null) {
+        final LazyLoadBatch loadingBatch = this.batch;
+        this.batch = null;
+        loadingBatch.load(this);
+        return;
       }
 
       this.metaResultObject.setValue(property, this.resultLoader.loadResult());
     }
 
+    String getProperty() {
+      return property;
+    }
+
+    /*
+     * Claims the loader for the batch loading it, unless its property was loaded or set meanwhile.
+     * Only the result owning the loader removes it from its map, holding the lock of its proxy.
+     */
+    synchronized boolean take() {
+      if (taken) {
+        return false;
+      }
+      taken = true;
+      return true;
+    }
+
+    /*
+     * Gives the loader back when its batch failed to load
+     */
+    synchronized void release() {
+      taken = false;
+    }
+
+    synchronized boolean isTaken() {
+      return taken;
+    }
+
+    MetaObject getMetaResultObject() {
+      return metaResultObject;
+    }
+
+    ResultLoader getResultLoader() {
+      return resultLoader;
+    }
+
     private Configuration getConfiguration() {
       if (this.configurationFactory == null) {
         throw new ExecutorException("Cannot get Configuration as configuration factory was not set.");
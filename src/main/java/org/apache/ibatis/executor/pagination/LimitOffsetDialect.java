@@ -0,0 +1,35 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+/**
+ * <code>LIMIT n OFFSET m</code>, for MySQL, MariaDB, PostgreSQL, H2, HSQLDB and SQLite.
+ *
+ * @since 3.4.7
+ */
+public class LimitOffsetDialect implements PaginationDialect {
+
+  @Override
+  public String getPageSql(String sql, int offset, int limit) {
+    // MySQL does not accept an offset without a limit
+    StringBuilder pageSql = new StringBuilder(sql.length() + 40).append(sql).append(" LIMIT ").append(limit);
+    if (offset > 0) {
+      pageSql.append(" OFFSET ").append(offset);
+    }
+    return pageSql.toString();
+  }
+
+}
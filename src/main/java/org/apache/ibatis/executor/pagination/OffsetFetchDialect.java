@@ -0,0 +1,37 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * The SQL:2008 <code>OFFSET n ROWS FETCH NEXT m ROWS ONLY</code>, for Derby, DB2, Oracle 12c and SQL Server 2012
+ * (which requires an <code>ORDER BY</code> clause).
+ *
+ * @since 3.4.7
+ */
+public class OffsetFetchDialect implements PaginationDialect {
+
+  @Override
+  public String getPageSql(String sql, int offset, int limit) {
+    StringBuilder pageSql = new StringBuilder(sql.length() + 50).append(sql).append(" OFFSET ").append(offset).append(" ROWS");
+    if (limit != RowBounds.NO_ROW_LIMIT) {
+      pageSql.append(" FETCH NEXT ").append(limit).append(" ROWS ONLY");
+    }
+    return pageSql.toString();
+  }
+
+}
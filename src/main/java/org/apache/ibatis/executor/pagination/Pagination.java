@@ -0,0 +1,229 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.KeysetRowBounds;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Rewrites statements so that the database applies their {@link RowBounds} and derives the statements
+ * counting their rows.
+ *
+ * @since 3.4.7
+ */
+public final class Pagination {
+
+  /**
+   * Suffix of the id of the statement counting the rows of a select statement, e.g. <code>selectBlogs!count</code>
+   */
+  public static final String COUNT_STATEMENT_SUFFIX = "!count";
+
+  private static final String KEYSET_PARAMETER_PREFIX = "_keyset";
+  private static final String ORDER_BY_ITEM = "[\\w$.\"`\\[\\]]+(\\s+(asc|desc))?(\\s+nulls\\s+(first|last))?";
+  private static final Pattern ORDER_BY = Pattern.compile("order\\s+by\\b", Pattern.CASE_INSENSITIVE);
+  private static final Pattern TRAILING_ORDER_BY = Pattern.compile(
+      "order\\s+by\\s+" + ORDER_BY_ITEM + "(\\s*,\\s*" + ORDER_BY_ITEM + ")*\\s*", Pattern.CASE_INSENSITIVE);
+
+  private Pagination() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * Returns the dialect of a database, by database id or product name.
+   *
+   * @return the dialect, or null when the database is unknown
+   */
+  public static PaginationDialect getDialect(String database) {
+    if (database == null) {
+      return null;
+    }
+    String name = database.toLowerCase(Locale.ENGLISH);
+    if (name.contains("mysql") || name.contains("mariadb") || name.contains("postgres") || name.contains("h2")
+        || name.contains("hsql") || name.contains("sqlite")) {
+      return new LimitOffsetDialect();
+    }
+    if (name.contains("derby") || name.contains("db2")) {
+      return new OffsetFetchDialect();
+    }
+    if (name.contains("oracle")) {
+      return new RownumDialect();
+    }
+    return null;
+  }
+
+  /*
+   * Statements whose bounds apply to rows rather than to the objects built from several rows
+   */
+  public static boolean isPageable(MappedStatement ms) {
+    return ms.getSqlCommandType() == SqlCommandType.SELECT && ms.getStatementType() != StatementType.CALLABLE
+        && ms.getResultSets() == null && !ms.hasNestedResultMaps();
+  }
+
+  public static boolean isBounded(RowBounds rowBounds) {
+    return rowBounds != null && (rowBounds.getOffset() != RowBounds.NO_ROW_OFFSET || rowBounds.getLimit() != RowBounds.NO_ROW_LIMIT);
+  }
+
+  public static BoundSql getPageBoundSql(Configuration configuration, BoundSql boundSql, RowBounds rowBounds, PaginationDialect dialect) {
+    String pageSql = dialect.getPageSql(boundSql.getSql(), rowBounds.getOffset(), rowBounds.getLimit());
+    return copyBoundSql(configuration, boundSql, pageSql, boundSql.getParameterMappings());
+  }
+
+  /*
+   * Filters the rows of the statement to those after the last row of the previous page and orders them by the key columns
+   */
+  public static BoundSql getKeysetBoundSql(Configuration configuration, BoundSql boundSql, KeysetRowBounds rowBounds) {
+    List<String> columns = rowBounds.getColumns();
+    List<Object> lastValues = rowBounds.getLastValues();
+    String operator = rowBounds.isDescending() ? " < ?" : " > ?";
+    StringBuilder sql = new StringBuilder(boundSql.getSql().length() + 100);
+    sql.append("SELECT * FROM (").append(boundSql.getSql()).append(") KEYSET_");
+    List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>(boundSql.getParameterMappings());
+    if (lastValues != null) {
+      // (c1 > ?) OR (c1 = ? AND c2 > ?) ...
+      sql.append(" WHERE ");
+      for (int i = 0; i < columns.size(); i++) {
+        if (i > 0) {
+          sql.append(" OR ");
+        }
+        sql.append('(');
+        for (int j = 0; j <= i; j++) {
+          String parameter = KEYSET_PARAMETER_PREFIX + j;
+          parameterMappings.add(new ParameterMapping.Builder(configuration, parameter, lastValues.get(j).getClass()).build());
+          sql.append(columns.get(j)).append(j < i ? " = ? AND " : operator);
+        }
+        sql.append(')');
+      }
+    }
+    sql.append(" ORDER BY ");
+    for (int i = 0; i < columns.size(); i++) {
+      sql.append(i > 0 ? ", " : "").append(columns.get(i)).append(rowBounds.isDescending() ? " DESC" : "");
+    }
+    BoundSql keysetBoundSql = copyBoundSql(configuration, boundSql, sql.toString(), parameterMappings);
+    if (lastValues != null) {
+      for (int i = 0; i < lastValues.size(); i++) {
+        keysetBoundSql.setAdditionalParameter(KEYSET_PARAMETER_PREFIX + i, lastValues.get(i));
+      }
+    }
+    return keysetBoundSql;
+  }
+
+  /*
+   * Derives the statement counting the rows of a select statement. It shares the cache of the statement.
+   */
+  public static MappedStatement createCountStatement(final MappedStatement ms) {
+    if (ms.getSqlCommandType() != SqlCommandType.SELECT || ms.getStatementType() == StatementType.CALLABLE) {
+      throw new IllegalArgumentException("Cannot count the rows of " + ms.getId() + ", which is not a select statement.");
+    }
+    final Configuration configuration = ms.getConfiguration();
+    String id = ms.getId() + COUNT_STATEMENT_SUFFIX;
+    SqlSource sqlSource = new SqlSource() {
+      @Override
+      public BoundSql getBoundSql(Object parameterObject) {
+        BoundSql boundSql = ms.getBoundSql(parameterObject);
+        String countSql = "SELECT COUNT(*) FROM (" + removeTrailingOrderBy(boundSql.getSql()) + ") COUNT_";
+        return copyBoundSql(configuration, boundSql, countSql, boundSql.getParameterMappings());
+      }
+    };
+    ResultMap resultMap = new ResultMap.Builder(configuration, id + "-Inline", Long.class, new ArrayList<ResultMapping>(), null).build();
+    return new MappedStatement.Builder(configuration, id, sqlSource, SqlCommandType.SELECT)
+        .resource(ms.getResource())
+        .statementType(ms.getStatementType())
+        .timeout(ms.getTimeout())
+        .parameterMap(ms.getParameterMap())
+        .resultMaps(Collections.singletonList(resultMap))
+        .cache(ms.getCache())
+        .useCache(ms.isUseCache())
+        .databaseId(ms.getDatabaseId())
+        .lang(ms.getLang())
+        .build();
+  }
+
+  /*
+   * Ordering rows that are only counted is wasted work, and some databases reject it in derived tables.
+   * Removes an ORDER BY of plain columns ending the statement outside of any parentheses or literals.
+   */
+  static String removeTrailingOrderBy(String sql) {
+    int orderBy = indexOfTrailingOrderBy(sql);
+    if (orderBy > 0 && TRAILING_ORDER_BY.matcher(sql.substring(orderBy)).matches()) {
+      while (Character.isWhitespace(sql.charAt(orderBy - 1))) {
+        orderBy--;
+      }
+      return sql.substring(0, orderBy);
+    }
+    return sql;
+  }
+
+  /**
+   * Returns whether the statement ends with an ORDER BY of any kind outside of any parentheses or literals.
+   * A statement selecting from such a statement as a derived table may not keep its order, or may be rejected.
+   */
+  public static boolean hasTrailingOrderBy(String sql) {
+    return indexOfTrailingOrderBy(sql) >= 0;
+  }
+
+  private static int indexOfTrailingOrderBy(String sql) {
+    int depth = 0;
+    boolean quoted = false;
+    int orderBy = -1;
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (c == '\'') {
+        quoted = !quoted;
+      } else if (!quoted) {
+        if (c == '(') {
+          depth++;
+        } else if (c == ')') {
+          depth--;
+        } else if (depth == 0 && (c == 'o' || c == 'O') && (i == 0 || !Character.isLetterOrDigit(sql.charAt(i - 1)))
+            && ORDER_BY.matcher(sql).region(i, sql.length()).lookingAt()) {
+          orderBy = i;
+        }
+      }
+    }
+    return orderBy;
+  }
+
+  /*
+   * Copies the additional parameters used by the parameter mappings, as those of the dynamic SQL
+   */
+  private static BoundSql copyBoundSql(Configuration configuration, BoundSql boundSql, String sql, List<ParameterMapping> parameterMappings) {
+    BoundSql copy = new BoundSql(configuration, sql, parameterMappings, boundSql.getParameterObject());
+    for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+      String name = new PropertyTokenizer(parameterMapping.getProperty()).getName();
+      if (boundSql.hasAdditionalParameter(name) && !copy.hasAdditionalParameter(name)) {
+        copy.setAdditionalParameter(name, boundSql.getAdditionalParameter(name));
+      }
+    }
+    return copy;
+  }
+
+}
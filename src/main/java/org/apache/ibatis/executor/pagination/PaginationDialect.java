@@ -0,0 +1,36 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+/**
+ * Rewrites a select statement so that the database returns only one page of its rows.
+ * <p>
+ * Select one with the <code>paginationDialect</code> setting, by class name or by one of the aliases
+ * <code>LIMIT_OFFSET</code>, <code>OFFSET_FETCH</code> and <code>ROWNUM</code>.
+ *
+ * @since 3.4.7
+ */
+public interface PaginationDialect {
+
+  /**
+   * @param sql a select statement
+   * @param offset the number of rows to skip
+   * @param limit the maximum number of rows to return, {@link org.apache.ibatis.session.RowBounds#NO_ROW_LIMIT} for all
+   * @return the statement returning the page
+   */
+  String getPageSql(String sql, int offset, int limit);
+
+}
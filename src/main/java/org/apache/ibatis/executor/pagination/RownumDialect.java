@@ -0,0 +1,44 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Nested <code>ROWNUM</code> filters, for Oracle before 12c.
+ * The page has an additional <code>ROWNUM_</code> column.
+ *
+ * @since 3.4.7
+ */
+public class RownumDialect implements PaginationDialect {
+
+  @Override
+  public String getPageSql(String sql, int offset, int limit) {
+    StringBuilder pageSql = new StringBuilder(sql.length() + 120);
+    if (offset > 0) {
+      pageSql.append("SELECT * FROM (");
+    }
+    pageSql.append("SELECT PAGE_.*, ROWNUM ROWNUM_ FROM (").append(sql).append(") PAGE_");
+    if (limit != RowBounds.NO_ROW_LIMIT) {
+      pageSql.append(" WHERE ROWNUM <= ").append((long) offset + limit);
+    }
+    if (offset > 0) {
+      pageSql.append(") WHERE ROWNUM_ > ").append(offset);
+    }
+    return pageSql.toString();
+  }
+
+}
@@ -0,0 +1,99 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Maps the rows of result sets of one shape to a simple result map, reading the columns by index and
+ * calling the setters directly.
+ * <p>
+ * It is built once by {@link DefaultResultSetHandler} for a result map and a column signature, and does what
+ * the interpreted mapping does for result maps without constructor, nested or composite mappings.
+ */
+final class CompiledRowMapper {
+
+  private final Class<?> type;
+  private final List<Step> steps = new ArrayList<Step>();
+  private Step[] compiledSteps;
+
+  CompiledRowMapper(Class<?> type) {
+    this.type = type;
+  }
+
+  void addStep(int columnIndex, TypeHandler<?> typeHandler, String property, Invoker setter, boolean callSetterOnNull) {
+    steps.add(new Step(columnIndex, typeHandler, property, setter, callSetterOnNull));
+  }
+
+  CompiledRowMapper compile() {
+    compiledSteps = steps.toArray(new Step[steps.size()]);
+    return this;
+  }
+
+  /*
+   * @return the object of the current row, or null if no column had a value and empty rows return null
+   */
+  Object map(ResultSet rs, ObjectFactory objectFactory, boolean returnInstanceForEmptyRow) throws SQLException {
+    final Object rowValue = objectFactory.create(type);
+    final Object[] params = new Object[1];
+    boolean foundValues = false;
+    for (Step step : compiledSteps) {
+      final Object value = step.typeHandler.getResult(rs, step.columnIndex);
+      if (value != null) {
+        foundValues = true;
+      } else if (!step.callSetterOnNull) {
+        continue;
+      }
+      params[0] = value;
+      try {
+        step.setter.invoke(rowValue, params);
+      } catch (Throwable t) {
+        Throwable cause = ExceptionUtil.unwrapThrowable(t);
+        throw new ReflectionException("Could not set property '" + step.property + "' of '" + rowValue.getClass()
+            + "' with value '" + value + "' Cause: " + cause.toString(), cause);
+      }
+    }
+    return foundValues || returnInstanceForEmptyRow ? rowValue : null;
+  }
+
+  private static final class Step {
+
+    final int columnIndex;
+    final TypeHandler<?> typeHandler;
+    final String property;
+    final Invoker setter;
+    final boolean callSetterOnNull;
+
+    Step(int columnIndex, TypeHandler<?> typeHandler, String property, Invoker setter, boolean callSetterOnNull) {
+      this.columnIndex = columnIndex;
+      this.typeHandler = typeHandler;
+      this.property = property;
+      this.setter = setter;
+      this.callSetterOnNull = callSetterOnNull;
+    }
+
+  }
+
+}
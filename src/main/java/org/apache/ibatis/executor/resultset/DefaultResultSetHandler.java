@@ -17,12 +17,15 @@ package org.apache.ibatis.executor.resultset;
 
 import org.apache.ibatis.annotations.AutomapConstructor;
 import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.cursor.defaults.DefaultCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.loader.BatchResultLoader;
+import org.apache.ibatis.executor.loader.LazyLoadBatch;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
@@ -38,24 +41,31 @@ import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.property.PropertyPath;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
+import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.apache.ibatis.type.UnknownTypeHandler;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
 import java.sql.CallableStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -70,6 +80,8 @@ import java.util.Set;
 public class DefaultResultSetHandler implements ResultSetHandler {
 
   private static final Object DEFERED = new Object();
+  private static final Object NOT_COMPILED = new Object();
+  private static final Object AUTOMATIC_MAPPINGS = new Object();
 
   private final Executor executor;
   private final Configuration configuration;
@@ -90,14 +102,20 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // multiple resultsets  多个结果集
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<String, ResultMapping>();
   private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<CacheKey, List<PendingRelation>>();
-
-  // Cached Automappings
-  private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<String, List<UnMappedColumnAutoMapping>>();
+  private final Map<String, String[]> splitColumns = new HashMap<String, String[]>();
 
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   // 指示使用构造函数映射的临时标记标志 (使用字段减少内存使用)
   private boolean useConstructorMappings;
 
+  // rows of the same root object are together, so that each root can be handed over and forgotten once complete
+  private boolean resultOrdered;
+
+  // nested queries of the rows read so far, loaded in batches once the result set is read
+  private Map<MappedStatement, BatchResultLoader> nestedQueryBatches;
+  // lazy loaders of the results read so far, by property mapping
+  private final Map<ResultMapping, LazyLoadBatch> lazyLoadBatches = new HashMap<ResultMapping, LazyLoadBatch>();
+
   private final PrimitiveTypes primitiveTypes;
 
   private static class PendingRelation {
@@ -105,15 +123,32 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     public ResultMapping propertyMapping;
   }
 
+  private static class RowKeyColumn {
+    private final String column;
+    private final int columnIndex;
+    // null to read the value as a string
+    private final TypeHandler<?> typeHandler;
+
+    public RowKeyColumn(String column, int columnIndex, TypeHandler<?> typeHandler) {
+      this.column = column;
+      this.columnIndex = columnIndex;
+      this.typeHandler = typeHandler;
+    }
+  }
+
   private static class UnMappedColumnAutoMapping {
     private final String column;
+    private final int columnIndex;
     private final String property;
+    private final PropertyPath propertyPath;
     private final TypeHandler<?> typeHandler;
     private final boolean primitive;
 
-    public UnMappedColumnAutoMapping(String column, String property, TypeHandler<?> typeHandler, boolean primitive) {
+    public UnMappedColumnAutoMapping(String column, int columnIndex, String property, TypeHandler<?> typeHandler, boolean primitive) {
       this.column = column;
+      this.columnIndex = columnIndex;
       this.property = property;
+      this.propertyPath = new PropertyPath(property);
       this.typeHandler = typeHandler;
       this.primitive = primitive;
     }
@@ -132,6 +167,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     this.reflectorFactory = configuration.getReflectorFactory();
     this.resultHandler = resultHandler;
     this.primitiveTypes = new PrimitiveTypes();
+    this.resultOrdered = mappedStatement.isResultOrdered();
   }
 
   //
@@ -150,7 +186,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           handleRefCursorOutputParameter((ResultSet) cs.getObject(i + 1), parameterMapping, metaParam);
         } else {
           final TypeHandler<?> typeHandler = parameterMapping.getTypeHandler();
-          metaParam.setValue(parameterMapping.getProperty(), typeHandler.getResult(cs, i + 1));
+          metaParam.setValue(parameterMapping.getPropertyPath(), typeHandler.getResult(cs, i + 1));
         }
       }
     }
@@ -167,7 +203,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       if (this.resultHandler == null) {
         final DefaultResultHandler resultHandler = new DefaultResultHandler(objectFactory);
         handleRowValues(rsw, resultMap, resultHandler, new RowBounds(), null);
-        metaParam.setValue(parameterMapping.getProperty(), resultHandler.getResultList());
+        metaParam.setValue(parameterMapping.getPropertyPath(), resultHandler.getResultList());
       } else {
         handleRowValues(rsw, resultMap, resultHandler, new RowBounds(), null);
       }
@@ -233,6 +269,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
 
     ResultMap resultMap = resultMaps.get(0);
+    // a cursor returns each object before reading the rows of the next ones, which requires ordered rows
+    resultOrdered = true;
     return new DefaultCursor<E>(this, resultMap, rsw, rowBounds);
   }
   // 获取第一个结果集
@@ -317,8 +355,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       } else {
         if (resultHandler == null) {
           DefaultResultHandler defaultResultHandler = new DefaultResultHandler(objectFactory);
-          handleRowValues(rsw, resultMap, defaultResultHandler, rowBounds, null);
+          handleRowValuesBatchingNestedQueries(rsw, resultMap, defaultResultHandler);
           multipleResults.add(defaultResultHandler.getResultList());
+        } else if (resultHandler instanceof BatchResultLoader.BatchResultHandler) {
+          handleRowValuesBatchingNestedQueries(rsw, resultMap, resultHandler);
         } else {
           handleRowValues(rsw, resultMap, resultHandler, rowBounds, null);
         }
@@ -329,6 +369,25 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  /*
+   * The nested queries of rows kept in memory until the whole result set is read need not be run one row at a time
+   */
+  private void handleRowValuesBatchingNestedQueries(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler) throws SQLException {
+    if (configuration.getNestedSelectBatchSize() > 0) {
+      nestedQueryBatches = new LinkedHashMap<MappedStatement, BatchResultLoader>();
+    }
+    try {
+      handleRowValues(rsw, resultMap, resultHandler, rowBounds, null);
+      if (nestedQueryBatches != null) {
+        for (BatchResultLoader batch : nestedQueryBatches.values()) {
+          batch.load();
+        }
+      }
+    } finally {
+      nestedQueryBatches = null;
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private List<Object> collapseSingleResultList(List<Object> multipleResults) {
     return multipleResults.size() == 1 ? (List<Object>) multipleResults.get(0) : multipleResults;
@@ -388,6 +447,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private void storeObject(ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext, Object rowValue, ResultMapping parentMapping, ResultSet rs) throws SQLException {
     if (parentMapping != null) {
       linkToParents(rs, parentMapping, rowValue);
+    } else if (resultHandler instanceof BatchResultLoader.BatchResultHandler) {
+      ((BatchResultLoader.BatchResultHandler) resultHandler).handleResult(rs.getInt(BatchResultLoader.BATCH_INDEX_COLUMN), rowValue);
     } else {
       callResultHandler(resultHandler, resultContext, rowValue);
     }
@@ -440,6 +501,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * @throws SQLException
    */
   private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    final CompiledRowMapper rowMapper = getCompiledRowMapper(rsw, resultMap);
+    if (rowMapper != null) {
+      return rowMapper.map(rsw.getResultSet(), objectFactory, configuration.isReturnInstanceForEmptyRow());
+    }
     final ResultLoaderMap lazyLoader = new ResultLoaderMap();
     Object rowValue = createResultObject(rsw, resultMap, lazyLoader, null);   // 创建java的实体类对象（未赋值的对象）
     if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
@@ -454,6 +519,119 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
     return rowValue;
   }
+
+  //
+  // COMPILED ROW MAPPERS
+  //
+
+  private CompiledRowMapper getCompiledRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    if (!configuration.isCompileResultMaps()) {
+      return null;
+    }
+    Object rowMapper = rsw.getRowMapper(resultMap);
+    if (rowMapper == null) {
+      final CacheKey key = createMappingPlanKey(rsw, CompiledRowMapper.class, resultMap, null, null);
+      final Cache mappingPlanCache = configuration.getMappingPlanCache();
+      rowMapper = mappingPlanCache.getObject(key);
+      if (rowMapper == null) {
+        rowMapper = compileRowMapper(rsw, resultMap);
+        if (rowMapper == null) {
+          rowMapper = NOT_COMPILED;
+        }
+        // unknown columns are reported on every execution, as by the automatic mappings
+        if (rowMapper == NOT_COMPILED || configuration.getAutoMappingUnknownColumnBehavior() == AutoMappingUnknownColumnBehavior.NONE
+            || !hasUnknownColumns(rsw, resultMap)) {
+          mappingPlanCache.putObject(key, rowMapper);
+        }
+      }
+      rsw.putRowMapper(resultMap, rowMapper);
+    }
+    return rowMapper == NOT_COMPILED ? null : (CompiledRowMapper) rowMapper;
+  }
+
+  /*
+   * Whether some unmapped columns were not mapped automatically either: when automatic mappings apply, they were
+   * reported to the AutoMappingUnknownColumnBehavior
+   */
+  private boolean hasUnknownColumns(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    if (!shouldApplyAutomaticMappings(resultMap, false)) {
+      return false;
+    }
+    int unmappedColumnCount = 0;
+    for (String columnName : rsw.getUnmappedColumnNames(resultMap, null)) {
+      if (!(resultHandler instanceof BatchResultLoader.BatchResultHandler && BatchResultLoader.BATCH_INDEX_COLUMN.equalsIgnoreCase(columnName))) {
+        unmappedColumnCount++;
+      }
+    }
+    final List<?> autoMapping = rsw.getAutomaticMappings(resultMap, null);
+    return autoMapping == null || autoMapping.size() < unmappedColumnCount;
+  }
+
+  /*
+   * Mapping plans depend on the result map and on the labels and types of the columns, not on the statement
+   */
+  private CacheKey createMappingPlanKey(ResultSetWrapper rsw, Object kind, ResultMap resultMap, Class<?> resultType, String columnPrefix) {
+    final CacheKey key = new CacheKey(5);
+    key.update(kind);
+    key.update(resultMap.getId());
+    key.update(resultType);
+    key.update(columnPrefix);
+    key.update(rsw.getShapeKey());
+    return key;
+  }
+
+  /*
+   * Compiles the mapping of simple result maps to beans, returns null for any other result map
+   */
+  private CompiledRowMapper compileRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    final Class<?> type = resultMap.getType();
+    if (!resultMap.getConstructorResultMappings().isEmpty() || resultMap.hasNestedResultMaps() || resultMap.hasNestedQueries()
+        || type.isInterface() || Modifier.isAbstract(type.getModifiers())
+        || Map.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type)
+        || !(configuration.getObjectWrapperFactory() instanceof DefaultObjectWrapperFactory)
+        || hasTypeHandlerForResultObject(rsw, type)) {
+      return null;
+    }
+    final MetaClass metaType = MetaClass.forClass(type, reflectorFactory);
+    if (!metaType.hasDefaultConstructor()) {
+      return null;
+    }
+    final CompiledRowMapper rowMapper = new CompiledRowMapper(type);
+    if (shouldApplyAutomaticMappings(resultMap, false)) {
+      // the mappings of a class, without creating a result object
+      for (UnMappedColumnAutoMapping mapping : createAutomaticMappings(rsw, resultMap, type, null, metaType, null)) {
+        if (!addRowMapperStep(rowMapper, rsw, metaType, mapping.column, mapping.typeHandler, mapping.property)) {
+          return null;
+        }
+      }
+    }
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, null);
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.isCompositeResult() || propertyMapping.getResultSet() != null) {
+        return null;
+      }
+      final String column = propertyMapping.getColumn();
+      final String property = propertyMapping.getProperty();
+      if (column != null && property != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))
+          && !addRowMapperStep(rowMapper, rsw, metaType, column, rsw.resolveTypeHandler(propertyMapping.getTypeHandler(), rsw.getColumnIndex(column)), property)) {
+        return null;
+      }
+    }
+    return rowMapper.compile();
+  }
+
+  private boolean addRowMapperStep(CompiledRowMapper rowMapper, ResultSetWrapper rsw, MetaClass metaType, String column,
+      TypeHandler<?> typeHandler, String property) {
+    final int columnIndex = rsw.getColumnIndex(column);
+    // properties of nested objects are left to the interpreter
+    if (columnIndex < 0 || property.indexOf('.') >= 0 || property.indexOf('[') >= 0 || !metaType.hasSetter(property)) {
+      return false;
+    }
+    final boolean callSetterOnNull = configuration.isCallSettersOnNulls() && !metaType.getSetterType(property).isPrimitive();
+    rowMapper.addStep(columnIndex, typeHandler, property, metaType.getSetInvoker(property), callSetterOnNull);
+    return true;
+  }
+
   // 应该应用自动映射
   private boolean shouldApplyAutomaticMappings(ResultMap resultMap, boolean isNested) {
     if (resultMap.getAutoMapping() != null) {
@@ -473,19 +651,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private boolean applyPropertyMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
-    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+    // the user may have added a column attribute to a nested result map, it has no index
+    final int[] columnIndexes = rsw.getPropertyColumnIndexes(resultMap, columnPrefix);
     boolean foundValues = false;
     final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
-    for (ResultMapping propertyMapping : propertyMappings) {
-      String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
-      if (propertyMapping.getNestedResultMapId() != null) {
-        // the user added a column attribute to a nested result map, ignore it
-        column = null;
-      }
+    for (int i = 0; i < columnIndexes.length; i++) {
+      final ResultMapping propertyMapping = propertyMappings.get(i);
       if (propertyMapping.isCompositeResult()
-          || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
+          || columnIndexes[i] > 0
           || propertyMapping.getResultSet() != null) {
-        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
+        Object value = getPropertyMappingValue(rsw, metaObject, propertyMapping, lazyLoader, columnPrefix, columnIndexes[i]);
         // issue #541 make property optional
         final String property = propertyMapping.getProperty();
         if (property == null) {
@@ -499,15 +674,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
         if (value != null || (configuration.isCallSettersOnNulls() && !metaObject.getSetterType(property).isPrimitive())) {
           // gcode issue #377, call setter on nulls (value is not 'found')
-          metaObject.setValue(property, value);
+          metaObject.setValue(propertyMapping.getPropertyPath(), value);
         }
       }
     }
     return foundValues;
   }
 
-  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
-      throws SQLException {
+  private Object getPropertyMappingValue(ResultSetWrapper rsw, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix,
+      int columnIndex) throws SQLException {
+    final ResultSet rs = rsw.getResultSet();
     if (propertyMapping.getNestedQueryId() != null) {
       return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
     } else if (propertyMapping.getResultSet() != null) {
@@ -515,6 +691,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       return DEFERED;
     } else {
       final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
+      if (columnIndex > 0) {
+        return rsw.resolveTypeHandler(typeHandler, columnIndex).getResult(rs, columnIndex);
+      }
       final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
       return typeHandler.getResult(rs, column);
     }
@@ -530,13 +709,32 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * @return
    * @throws SQLException
    */
+  @SuppressWarnings("unchecked")
   private List<UnMappedColumnAutoMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
-    final String mapKey = resultMap.getId() + ":" + columnPrefix;
-    List<UnMappedColumnAutoMapping> autoMapping = autoMappingsCache.get(mapKey);
+    return createAutomaticMappings(rsw, resultMap, metaObject.getOriginalObject().getClass(), metaObject, null, columnPrefix);
+  }
+
+  /*
+   * The properties are looked up in the result object, or else in the result class
+   */
+  private List<UnMappedColumnAutoMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, Class<?> resultType,
+      MetaObject metaObject, MetaClass metaClass, String columnPrefix) throws SQLException {
+    List<UnMappedColumnAutoMapping> autoMapping = (List<UnMappedColumnAutoMapping>) rsw.getAutomaticMappings(resultMap, columnPrefix);
+    if (autoMapping != null) {
+      return autoMapping;
+    }
+    // the same statement, or any statement using this result map, may already have met the same columns
+    final CacheKey planKey = createMappingPlanKey(rsw, AUTOMATIC_MAPPINGS, resultMap, resultType, columnPrefix);
+    final Cache mappingPlanCache = configuration.getMappingPlanCache();
+    autoMapping = (List<UnMappedColumnAutoMapping>) mappingPlanCache.getObject(planKey);
     if (autoMapping == null) {
       autoMapping = new ArrayList<UnMappedColumnAutoMapping>();
+      boolean unknownColumns = false;
       final List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);   // 未映射的列名集合
       for (String columnName : unmappedColumnNames) {
+        if (resultHandler instanceof BatchResultLoader.BatchResultHandler && BatchResultLoader.BATCH_INDEX_COLUMN.equalsIgnoreCase(columnName)) {
+          continue;
+        }
         String propertyName = columnName;
         if (columnPrefix != null && !columnPrefix.isEmpty()) {
           // When columnPrefix is specified,
@@ -547,26 +745,33 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             continue;
           }
         }
-        final String property = metaObject.findProperty(propertyName, configuration.isMapUnderscoreToCamelCase());
-        if (property != null && metaObject.hasSetter(property)) {
+        final String property = metaObject != null ? metaObject.findProperty(propertyName, configuration.isMapUnderscoreToCamelCase())
+            : metaClass.findProperty(propertyName, configuration.isMapUnderscoreToCamelCase());
+        if (property != null && (metaObject != null ? metaObject.hasSetter(property) : metaClass.hasSetter(property))) {
           if (resultMap.getMappedProperties().contains(property)) {
             continue;
           }
-          final Class<?> propertyType = metaObject.getSetterType(property);
+          final Class<?> propertyType = metaObject != null ? metaObject.getSetterType(property) : metaClass.getSetterType(property);
           if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
             final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
-            autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
+            autoMapping.add(new UnMappedColumnAutoMapping(columnName, rsw.getColumnIndex(columnName), property, typeHandler, propertyType.isPrimitive()));
           } else {
             configuration.getAutoMappingUnknownColumnBehavior()
                 .doAction(mappedStatement, columnName, property, propertyType);
+            unknownColumns = true;
           }
         } else {
           configuration.getAutoMappingUnknownColumnBehavior()
               .doAction(mappedStatement, columnName, (property != null) ? property : propertyName, null);
+          unknownColumns = true;
         }
       }
-      autoMappingsCache.put(mapKey, autoMapping);
+      // unknown columns are reported on every execution
+      if (!unknownColumns || configuration.getAutoMappingUnknownColumnBehavior() == AutoMappingUnknownColumnBehavior.NONE) {
+        mappingPlanCache.putObject(planKey, autoMapping);
+      }
     }
+    rsw.putAutomaticMappings(resultMap, columnPrefix, autoMapping);
     return autoMapping;
   }
 
@@ -586,13 +791,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     if (!autoMapping.isEmpty()) {
       for (UnMappedColumnAutoMapping mapping : autoMapping) {
         // 类型处理器获取到结果
-        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.columnIndex);
         if (value != null) {
           foundValues = true;
         }
         if (value != null || (configuration.isCallSettersOnNulls() && !mapping.primitive)) {
           // gcode issue #377, call setter on nulls (value is not 'found')
-          metaObject.setValue(mapping.property, value);
+          metaObject.setValue(mapping.propertyPath, value);
         }
       }
     }
@@ -643,22 +848,34 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   }
 
   private CacheKey createKeyForMultipleResults(ResultSet rs, ResultMapping resultMapping, String names, String columns) throws SQLException {
-    CacheKey cacheKey = new CacheKey();
+    if (columns == null || names == null) {
+      final CacheKey cacheKey = new CacheKey(1);
+      cacheKey.update(resultMapping);
+      return cacheKey;
+    }
+    final String[] columnsArray = splitColumns(columns);
+    final String[] namesArray = splitColumns(names);
+    final CacheKey cacheKey = new CacheKey(columnsArray.length * 2 + 1);
     cacheKey.update(resultMapping);
-    if (columns != null && names != null) {
-      String[] columnsArray = columns.split(",");
-      String[] namesArray = names.split(",");
-      for (int i = 0; i < columnsArray.length; i++) {
-        Object value = rs.getString(columnsArray[i]);
-        if (value != null) {
-          cacheKey.update(namesArray[i]);
-          cacheKey.update(value);
-        }
+    for (int i = 0; i < columnsArray.length; i++) {
+      Object value = rs.getString(columnsArray[i]);
+      if (value != null) {
+        cacheKey.update(namesArray[i]);
+        cacheKey.update(value);
       }
     }
     return cacheKey;
   }
 
+  private String[] splitColumns(String columns) {
+    String[] split = splitColumns.get(columns);
+    if (split == null) {
+      split = columns.split(",");
+      splitColumns.put(columns, split);
+    }
+    return split;
+  }
+
   //
   // INSTANTIATION & CONSTRUCTOR MAPPING
   //
@@ -713,8 +930,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           final ResultMap resultMap = configuration.getResultMap(constructorMapping.getNestedResultMapId());
           value = getRowValue(rsw, resultMap);
         } else {
-          final TypeHandler<?> typeHandler = constructorMapping.getTypeHandler();
-          value = typeHandler.getResult(rsw.getResultSet(), prependPrefix(column, columnPrefix));
+          TypeHandler<?> typeHandler = constructorMapping.getTypeHandler();
+          final String prefixedColumn = prependPrefix(column, columnPrefix);
+          if (typeHandler instanceof UnknownTypeHandler) {
+            typeHandler = rsw.resolveTypeHandler(typeHandler, rsw.getColumnIndex(prefixedColumn));
+          }
+          value = typeHandler.getResult(rsw.getResultSet(), prefixedColumn);
         }
       } catch (ResultMapException e) {
         throw new ExecutorException("Could not process result for mapping: " + constructorMapping, e);
@@ -842,7 +1063,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       } else {
         final ResultLoader resultLoader = new ResultLoader(configuration, executor, nestedQuery, nestedQueryParameterObject, targetType, key, nestedBoundSql);
         if (propertyMapping.isLazy()) {
-          lazyLoader.addLoader(property, metaResultObject, resultLoader);
+          lazyLoader.addLoader(property, metaResultObject, resultLoader, getLazyLoadBatch(propertyMapping, nestedQuery));
+          value = DEFERED;
+        } else if (nestedQueryBatches != null && BatchResultLoader.isBatchable(nestedQuery)) {
+          getNestedQueryBatch(nestedQuery).addLoader(resultLoader, metaResultObject, property);
           value = DEFERED;
         } else {
           value = resultLoader.loadResult();
@@ -852,6 +1076,31 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return value;
   }
 
+  private BatchResultLoader getNestedQueryBatch(MappedStatement nestedQuery) {
+    BatchResultLoader batch = nestedQueryBatches.get(nestedQuery);
+    if (batch == null) {
+      batch = new BatchResultLoader(nestedQuery, configuration.getNestedSelectBatchSize());
+      nestedQueryBatches.put(nestedQuery, batch);
+    }
+    return batch;
+  }
+
+  /*
+   * Returns null unless the property is loaded lazily in batches
+   */
+  private LazyLoadBatch getLazyLoadBatch(ResultMapping propertyMapping, MappedStatement nestedQuery) {
+    int batchSize = configuration.getLazyLoadBatchSize();
+    if (!(batchSize > 0 || propertyMapping.isLazyBatch()) || !BatchResultLoader.isBatchable(nestedQuery)) {
+      return null;
+    }
+    LazyLoadBatch batch = lazyLoadBatches.get(propertyMapping);
+    if (batch == null || batch.isFull()) {
+      batch = new LazyLoadBatch(nestedQuery, batchSize > 0 ? batchSize : LazyLoadBatch.DEFAULT_BATCH_SIZE);
+      lazyLoadBatches.put(propertyMapping, batch);
+    }
+    return batch;
+  }
+
   private Object prepareParameterForNestedQuery(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
     if (resultMapping.isCompositeResult()) {
       return prepareCompositeKeyParameter(rs, resultMapping, parameterType, columnPrefix);
@@ -880,7 +1129,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       final Object propValue = typeHandler.getResult(rs, prependPrefix(innerResultMapping.getColumn(), columnPrefix));
       // issue #353 & #560 do not execute nested query if key is null
       if (propValue != null) {
-        metaObject.setValue(innerResultMapping.getProperty(), propValue);
+        metaObject.setValue(innerResultMapping.getPropertyPath(), propValue);
         foundValues = true;
       }
     }
@@ -978,10 +1227,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     Object rowValue = previousRowValue;
     while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
-      final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
+      final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null, null);
       Object partialObject = nestedResultObjects.get(rowKey);
       // issue #577 && #542
-      if (mappedStatement.isResultOrdered()) {
+      if (resultOrdered) {
         if (partialObject == null && rowValue != null) {
           nestedResultObjects.clear();
           storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
@@ -994,7 +1243,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
-    if (rowValue != null && mappedStatement.isResultOrdered() && shouldProcessMoreRows(resultContext, rowBounds)) {
+    if (rowValue != null && resultOrdered && shouldProcessMoreRows(resultContext, rowBounds)) {
+      nestedResultObjects.clear();
       storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
       previousRowValue = null;
     } else if (rowValue != null) {
@@ -1072,8 +1322,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
               continue;
             }
           }
-          final CacheKey rowKey = createRowKey(nestedResultMap, rsw, columnPrefix);
-          final CacheKey combinedKey = combineKeys(rowKey, parentRowKey);
+          final CacheKey combinedKey = createRowKey(nestedResultMap, rsw, columnPrefix, parentRowKey);
           Object rowValue = nestedResultObjects.get(combinedKey);
           boolean knownValue = rowValue != null;
           instantiateCollectionPropertyIfAppropriate(resultMapping, metaObject); // mandatory
@@ -1134,37 +1383,63 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // UNIQUE RESULT KEY
   //
 
-  private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-    final CacheKey cacheKey = new CacheKey();
+  /*
+   * The identity of the current row for the result map: the id (or all) columns and their values, followed by
+   * the identity of the parent row when there is one
+   */
+  private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix, CacheKey parentRowKey) throws SQLException {
+    if (parentRowKey != null && parentRowKey.getUpdateCount() < 2) {
+      return CacheKey.NULL_CACHE_KEY;
+    }
+    final RowKeyColumn[] rowKeyColumns = getRowKeyColumns(resultMap, rsw, columnPrefix);
+    final ResultSet rs = rsw.getResultSet();
+    final CacheKey cacheKey = new CacheKey(rowKeyColumns.length * 2 + 2);
     cacheKey.update(resultMap.getId());
-    List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
-    if (resultMappings.isEmpty()) {
-      if (Map.class.isAssignableFrom(resultMap.getType())) {
-        createRowKeyForMap(rsw, cacheKey);
+    for (RowKeyColumn rowKeyColumn : rowKeyColumns) {
+      if (rowKeyColumn.typeHandler == null) {
+        final String value = rs.getString(rowKeyColumn.columnIndex);
+        if (value != null) {
+          cacheKey.update(rowKeyColumn.column);
+          cacheKey.update(value);
+        }
       } else {
-        createRowKeyForUnmappedProperties(resultMap, rsw, cacheKey, columnPrefix);
+        final Object value = rowKeyColumn.typeHandler.getResult(rs, rowKeyColumn.columnIndex);
+        if (value != null || configuration.isReturnInstanceForEmptyRow()) {
+          cacheKey.update(rowKeyColumn.column);
+          cacheKey.update(value);
+        }
       }
-    } else {
-      createRowKeyForMappedProperties(resultMap, rsw, cacheKey, resultMappings, columnPrefix);
     }
     if (cacheKey.getUpdateCount() < 2) {
       return CacheKey.NULL_CACHE_KEY;
     }
+    if (parentRowKey != null) {
+      cacheKey.update(parentRowKey);
+    }
     return cacheKey;
   }
 
-  private CacheKey combineKeys(CacheKey rowKey, CacheKey parentRowKey) {
-    if (rowKey.getUpdateCount() > 1 && parentRowKey.getUpdateCount() > 1) {
-      CacheKey combinedKey;
-      try {
-        combinedKey = rowKey.clone();
-      } catch (CloneNotSupportedException e) {
-        throw new ExecutorException("Error cloning cache key.  Cause: " + e, e);
+  /*
+   * The columns of the row keys of the result map, worked out once per result set
+   */
+  private RowKeyColumn[] getRowKeyColumns(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
+    RowKeyColumn[] rowKeyColumns = (RowKeyColumn[]) rsw.getRowKeyPlan(resultMap, columnPrefix);
+    if (rowKeyColumns == null) {
+      final List<RowKeyColumn> columns = new ArrayList<RowKeyColumn>();
+      List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
+      if (resultMappings.isEmpty()) {
+        if (Map.class.isAssignableFrom(resultMap.getType())) {
+          addRowKeyColumnsForMap(rsw, columns);
+        } else {
+          addRowKeyColumnsForUnmappedProperties(resultMap, rsw, columns, columnPrefix);
+        }
+      } else {
+        addRowKeyColumnsForMappedProperties(rsw, columns, resultMappings, columnPrefix);
       }
-      combinedKey.update(parentRowKey);
-      return combinedKey;
+      rowKeyColumns = columns.toArray(new RowKeyColumn[columns.size()]);
+      rsw.putRowKeyPlan(resultMap, columnPrefix, rowKeyColumns);
     }
-    return CacheKey.NULL_CACHE_KEY;
+    return rowKeyColumns;
   }
 
   private List<ResultMapping> getResultMappingsForRowKey(ResultMap resultMap) {
@@ -1175,30 +1450,25 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return resultMappings;
   }
 
-  private void createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
+  private void addRowKeyColumnsForMappedProperties(ResultSetWrapper rsw, List<RowKeyColumn> columns, List<ResultMapping> resultMappings, String columnPrefix) {
     for (ResultMapping resultMapping : resultMappings) {
       if (resultMapping.getNestedResultMapId() != null && resultMapping.getResultSet() == null) {
         // Issue #392
         final ResultMap nestedResultMap = configuration.getResultMap(resultMapping.getNestedResultMapId());
-        createRowKeyForMappedProperties(nestedResultMap, rsw, cacheKey, nestedResultMap.getConstructorResultMappings(),
+        addRowKeyColumnsForMappedProperties(rsw, columns, nestedResultMap.getConstructorResultMappings(),
             prependPrefix(resultMapping.getColumnPrefix(), columnPrefix));
       } else if (resultMapping.getNestedQueryId() == null) {
         final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
-        final TypeHandler<?> th = resultMapping.getTypeHandler();
-        List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+        final int columnIndex = rsw.getColumnIndex(column);
         // Issue #114
-        if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-          final Object value = th.getResult(rsw.getResultSet(), column);
-          if (value != null || configuration.isReturnInstanceForEmptyRow()) {
-            cacheKey.update(column);
-            cacheKey.update(value);
-          }
+        if (columnIndex > 0) {
+          columns.add(new RowKeyColumn(column, columnIndex, rsw.resolveTypeHandler(resultMapping.getTypeHandler(), columnIndex)));
         }
       }
     }
   }
 
-  private void createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, String columnPrefix) throws SQLException {
+  private void addRowKeyColumnsForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, List<RowKeyColumn> columns, String columnPrefix) throws SQLException {
     final MetaClass metaType = MetaClass.forClass(resultMap.getType(), reflectorFactory);
     List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
     for (String column : unmappedColumnNames) {
@@ -1212,23 +1482,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
       if (metaType.findProperty(property, configuration.isMapUnderscoreToCamelCase()) != null) {
-        String value = rsw.getResultSet().getString(column);
-        if (value != null) {
-          cacheKey.update(column);
-          cacheKey.update(value);
-        }
+        columns.add(new RowKeyColumn(column, rsw.getColumnIndex(column), null));
       }
     }
   }
 
-  private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
-    List<String> columnNames = rsw.getColumnNames();
-    for (String columnName : columnNames) {
-      final String value = rsw.getResultSet().getString(columnName);
-      if (value != null) {
-        cacheKey.update(columnName);
-        cacheKey.update(value);
-      }
+  private void addRowKeyColumnsForMap(ResultSetWrapper rsw, List<RowKeyColumn> columns) {
+    for (String columnName : rsw.getColumnNames()) {
+      // the first column of a name, as ResultSet#getString(String) reads
+      columns.add(new RowKeyColumn(columnName, rsw.getColumnIndex(columnName), null));
     }
   }
 
@@ -1238,13 +1500,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       final MetaObject targetMetaObject = configuration.newMetaObject(collectionProperty);
       targetMetaObject.add(rowValue);
     } else {
-      metaObject.setValue(resultMapping.getProperty(), rowValue);
+      metaObject.setValue(resultMapping.getPropertyPath(), rowValue);
     }
   }
 
   private Object instantiateCollectionPropertyIfAppropriate(ResultMapping resultMapping, MetaObject metaObject) {
     final String propertyName = resultMapping.getProperty();
-    Object propertyValue = metaObject.getValue(propertyName);
+    Object propertyValue = metaObject.getValue(resultMapping.getPropertyPath());
     if (propertyValue == null) {
       Class<?> type = resultMapping.getJavaType();
       if (type == null) {
@@ -1253,7 +1515,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       try {
         if (objectFactory.isCollection(type)) {
           propertyValue = objectFactory.create(type);
-          metaObject.setValue(propertyName, propertyValue);
+          metaObject.setValue(resultMapping.getPropertyPath(), propertyValue);
           return propertyValue;
         }
       } catch (Exception e) {
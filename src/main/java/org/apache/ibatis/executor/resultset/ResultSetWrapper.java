@@ -26,8 +26,14 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.ObjectTypeHandler;
@@ -36,18 +42,21 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
 import org.apache.ibatis.type.UnknownTypeHandler;
 
 /**结果集包装类
+ * <p>
+ * What is derived from the metadata (column index, type handlers, mapped and unmapped columns) is shared
+ * by the wrappers of all the result sets with the same columns, through the mapping plan cache of the configuration.
+ *
  * @author Iwao AVE!
  */
 public class ResultSetWrapper {
 
   private final ResultSet resultSet;    // java.sql原生的结果集
   private final TypeHandlerRegistry typeHandlerRegistry;    // 类型处理器注册表
-  private final List<String> columnNames = new ArrayList<String>();   // 列名名称
-  private final List<String> classNames = new ArrayList<String>();    // 类名称
-  private final List<JdbcType> jdbcTypes = new ArrayList<JdbcType>();   // jdbc类型名称
-  private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<String, Map<Class<?>, TypeHandler<?>>>();   // 类型处理器对应的Class
-  private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<String, List<String>>();   // 映射列名map
-  private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<String, List<String>>();
+  private final Columns columns;
+  private final Map<String, List<?>> automaticMappings = new HashMap<String, List<?>>();
+  private final Map<String, Object> rowMappers = new HashMap<String, Object>();
+  // looked up for every row, by result map first to spare building a key
+  private final Map<ResultMap, Map<String, Object>> rowKeyPlans = new HashMap<ResultMap, Map<String, Object>>();
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
@@ -55,11 +64,29 @@ public class ResultSetWrapper {
     this.resultSet = rs;
     final ResultSetMetaData metaData = rs.getMetaData();    // 取出结果集元数据
     final int columnCount = metaData.getColumnCount();
+    final List<String> columnNames = new ArrayList<String>(columnCount);   // 列名名称
+    final List<String> classNames = new ArrayList<String>(columnCount);    // 类名称
+    final List<JdbcType> jdbcTypes = new ArrayList<JdbcType>(columnCount);   // jdbc类型名称
     for (int i = 1; i <= columnCount; i++) {
       columnNames.add(configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
       jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));   // 添加列的jdbc类型
       classNames.add(metaData.getColumnClassName(i));   // MysqlType中存储了mysql数据类型对应的java类型
     }
+    // drivers may report a different shape for every execution (e.g. select * after a DDL), so it is always read
+    final CacheKey shapeKey = new CacheKey(columnCount * 3 + 1);
+    shapeKey.update(ResultSetWrapper.class);
+    for (int i = 0; i < columnCount; i++) {
+      shapeKey.update(columnNames.get(i));
+      shapeKey.update(jdbcTypes.get(i));
+      shapeKey.update(classNames.get(i));
+    }
+    final Cache mappingPlanCache = configuration.getMappingPlanCache();
+    Columns shared = (Columns) mappingPlanCache.getObject(shapeKey);
+    if (shared == null) {
+      shared = new Columns(shapeKey, columnNames, jdbcTypes, classNames);
+      mappingPlanCache.putObject(shapeKey, shared);
+    }
+    this.columns = shared;
   }
 
   public ResultSet getResultSet() {
@@ -67,20 +94,36 @@ public class ResultSetWrapper {
   }
 
   public List<String> getColumnNames() {
-    return this.columnNames;
+    return columns.columnNames;
   }
 
   public List<String> getClassNames() {
-    return Collections.unmodifiableList(classNames);
+    return columns.classNames;
   }
 
-  public JdbcType getJdbcType(String columnName) {
-    for (int i = 0 ; i < columnNames.size(); i++) {
-      if (columnNames.get(i).equalsIgnoreCase(columnName)) {
-        return jdbcTypes.get(i);
-      }
+  /**
+   * @since 3.4.7
+   */
+  public List<JdbcType> getJdbcTypes() {
+    return columns.jdbcTypes;
+  }
+
+  /**
+   * @param columnName
+   * @return the index of the first column with this name, ignoring case, starting at 1, or -1 if there is none
+   * @since 3.4.7
+   */
+  public int getColumnIndex(String columnName) {
+    if (columnName == null) {
+      return -1;
     }
-    return null;
+    final Integer index = columns.columnIndexes.get(columnName.toUpperCase(Locale.ENGLISH));
+    return index == null ? -1 : index;
+  }
+
+  public JdbcType getJdbcType(String columnName) {
+    final int index = getColumnIndex(columnName);
+    return index < 0 ? null : columns.jdbcTypes.get(index - 1);
   }
 
   /**
@@ -94,33 +137,65 @@ public class ResultSetWrapper {
    */
   public TypeHandler<?> getTypeHandler(Class<?> propertyType, String columnName) {
     TypeHandler<?> handler = null;
-    Map<Class<?>, TypeHandler<?>> columnHandlers = typeHandlerMap.get(columnName);
+    ConcurrentMap<Class<?>, TypeHandler<?>> columnHandlers = columns.typeHandlers.get(columnName);
     if (columnHandlers == null) {
-      columnHandlers = new HashMap<Class<?>, TypeHandler<?>>();
-      typeHandlerMap.put(columnName, columnHandlers);
-    } else {
-      handler = columnHandlers.get(propertyType);
+      columnHandlers = new ConcurrentHashMap<Class<?>, TypeHandler<?>>();
+      final ConcurrentMap<Class<?>, TypeHandler<?>> existing = columns.typeHandlers.putIfAbsent(columnName, columnHandlers);
+      if (existing != null) {
+        columnHandlers = existing;
+      }
     }
+    handler = columnHandlers.get(propertyType);
     if (handler == null) {
       JdbcType jdbcType = getJdbcType(columnName);
       handler = typeHandlerRegistry.getTypeHandler(propertyType, jdbcType);
       // Replicate logic of UnknownTypeHandler#resolveTypeHandler
       // See issue #59 comment 10
       if (handler == null || handler instanceof UnknownTypeHandler) {
-        final int index = columnNames.indexOf(columnName);
-        final Class<?> javaType = resolveClass(classNames.get(index));
-        if (javaType != null && jdbcType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
-        } else if (javaType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(javaType);
-        } else if (jdbcType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(jdbcType);
-        }
+        handler = getColumnTypeHandler(columns.columnNames.indexOf(columnName) + 1);
+      }
+      columnHandlers.put(propertyType, handler);
+    }
+    return handler;
+  }
+
+  /**
+   * Replaces an {@link UnknownTypeHandler} by the type handler of the column, so that the metadata is not looked up
+   * for every row.
+   *
+   * @param typeHandler the type handler of a mapping
+   * @param columnIndex the column it reads, starting at 1
+   * @return the type handler to read the column with
+   * @since 3.4.7
+   */
+  public TypeHandler<?> resolveTypeHandler(TypeHandler<?> typeHandler, int columnIndex) {
+    // subclasses may resolve the type handler their own way
+    if (typeHandler == null || typeHandler.getClass() != UnknownTypeHandler.class || columnIndex < 1) {
+      return typeHandler;
+    }
+    return getColumnTypeHandler(columnIndex);
+  }
+
+  /*
+   * Resolves the type handler from the JDBC type and the class name of the column, as UnknownTypeHandler does
+   */
+  private TypeHandler<?> getColumnTypeHandler(int columnIndex) {
+    TypeHandler<?> handler = columns.columnTypeHandlers[columnIndex - 1];
+    if (handler == null) {
+      final JdbcType jdbcType = columns.jdbcTypes.get(columnIndex - 1);
+      final Class<?> javaType = resolveClass(columns.classNames.get(columnIndex - 1));
+      if (javaType != null && jdbcType != null) {
+        handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
+      } else if (javaType != null) {
+        handler = typeHandlerRegistry.getTypeHandler(javaType);
+      } else if (jdbcType != null) {
+        handler = typeHandlerRegistry.getTypeHandler(jdbcType);
       }
       if (handler == null || handler instanceof UnknownTypeHandler) {
         handler = new ObjectTypeHandler();
       }
-      columnHandlers.put(propertyType, handler);
+      // racing threads resolve the same handler
+      columns.columnTypeHandlers[columnIndex - 1] = handler;
     }
     return handler;
   }
@@ -142,7 +217,7 @@ public class ResultSetWrapper {
     List<String> unmappedColumnNames = new ArrayList<String>();
     final String upperColumnPrefix = columnPrefix == null ? null : columnPrefix.toUpperCase(Locale.ENGLISH);
     final Set<String> mappedColumns = prependPrefixes(resultMap.getMappedColumns(), upperColumnPrefix);
-    for (String columnName : columnNames) {
+    for (String columnName : columns.columnNames) {
       final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
       if (mappedColumns.contains(upperColumnName)) {
         mappedColumnNames.add(upperColumnName);
@@ -150,28 +225,87 @@ public class ResultSetWrapper {
         unmappedColumnNames.add(columnName);
       }
     }
-    mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), mappedColumnNames);
-    unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), unmappedColumnNames);
+    columns.mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), Collections.unmodifiableList(mappedColumnNames));
+    columns.unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), Collections.unmodifiableList(unmappedColumnNames));
   }
 
   public List<String> getMappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    List<String> mappedColumnNames = columns.mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
     if (mappedColumnNames == null) {
       loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
-      mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+      mappedColumnNames = columns.mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
     }
     return mappedColumnNames;
   }
 
   public List<String> getUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    List<String> unMappedColumnNames = columns.unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
     if (unMappedColumnNames == null) {
       loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
-      unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+      unMappedColumnNames = columns.unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
     }
     return unMappedColumnNames;
   }
 
+  /*
+   * The index of the column of each property mapping of the result map, or 0 when the column is not in the result set
+   * or the mapping reads no column itself (nested result maps, composite columns)
+   */
+  int[] getPropertyColumnIndexes(ResultMap resultMap, String columnPrefix) {
+    final String mapKey = getMapKey(resultMap, columnPrefix);
+    int[] indexes = columns.propertyColumnIndexesMap.get(mapKey);
+    if (indexes == null) {
+      final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
+      indexes = new int[propertyMappings.size()];
+      for (int i = 0; i < indexes.length; i++) {
+        final ResultMapping propertyMapping = propertyMappings.get(i);
+        final String column = propertyMapping.getColumn();
+        if (column != null && column.length() > 0 && propertyMapping.getNestedResultMapId() == null) {
+          indexes[i] = Math.max(getColumnIndex(columnPrefix == null ? column : columnPrefix + column), 0);
+        }
+      }
+      columns.propertyColumnIndexesMap.put(mapKey, indexes);
+    }
+    return indexes;
+  }
+
+  /*
+   * Identifies the columns of the result set, for the keys of mapping plans
+   */
+  CacheKey getShapeKey() {
+    return columns.shapeKey;
+  }
+
+  List<?> getAutomaticMappings(ResultMap resultMap, String columnPrefix) {
+    return automaticMappings.get(getMapKey(resultMap, columnPrefix));
+  }
+
+  void putAutomaticMappings(ResultMap resultMap, String columnPrefix, List<?> mappings) {
+    automaticMappings.put(getMapKey(resultMap, columnPrefix), mappings);
+  }
+
+  Object getRowKeyPlan(ResultMap resultMap, String columnPrefix) {
+    final Map<String, Object> plans = rowKeyPlans.get(resultMap);
+    return plans == null ? null : plans.get(columnPrefix);
+  }
+
+  void putRowKeyPlan(ResultMap resultMap, String columnPrefix, Object plan) {
+    Map<String, Object> plans = rowKeyPlans.get(resultMap);
+    if (plans == null) {
+      plans = new HashMap<String, Object>();
+      rowKeyPlans.put(resultMap, plans);
+    }
+    plans.put(columnPrefix, plan);
+  }
+
+  Object getRowMapper(ResultMap resultMap) {
+    return rowMappers.get(resultMap.getId());
+  }
+
+  void putRowMapper(ResultMap resultMap, Object rowMapper) {
+    rowMappers.put(resultMap.getId(), rowMapper);
+  }
+
   private String getMapKey(ResultMap resultMap, String columnPrefix) {
     return resultMap.getId() + ":" + columnPrefix;
   }
@@ -186,5 +320,41 @@ public class ResultSetWrapper {
     }
     return prefixed;
   }
-  
+
+  /*
+   * The columns of the result sets of one shape and what has been worked out from them so far
+   */
+  private static final class Columns {
+
+    final CacheKey shapeKey;
+    final List<String> columnNames;
+    final List<JdbcType> jdbcTypes;
+    final List<String> classNames;
+    // upper case column name -> index of its first column, starting at 1
+    final Map<String, Integer> columnIndexes;
+    final ConcurrentMap<String, ConcurrentMap<Class<?>, TypeHandler<?>>> typeHandlers = new ConcurrentHashMap<String, ConcurrentMap<Class<?>, TypeHandler<?>>>();   // 类型处理器对应的Class
+    final ConcurrentMap<String, List<String>> mappedColumnNamesMap = new ConcurrentHashMap<String, List<String>>();   // 映射列名map
+    final ConcurrentMap<String, List<String>> unMappedColumnNamesMap = new ConcurrentHashMap<String, List<String>>();
+    final ConcurrentMap<String, int[]> propertyColumnIndexesMap = new ConcurrentHashMap<String, int[]>();
+    // the type handler of each column, for mappings that do not know their java type
+    final TypeHandler<?>[] columnTypeHandlers;
+
+    Columns(CacheKey shapeKey, List<String> columnNames, List<JdbcType> jdbcTypes, List<String> classNames) {
+      this.shapeKey = shapeKey;
+      this.columnNames = Collections.unmodifiableList(columnNames);
+      this.jdbcTypes = Collections.unmodifiableList(jdbcTypes);
+      this.classNames = Collections.unmodifiableList(classNames);
+      this.columnIndexes = new HashMap<String, Integer>(columnNames.size() * 4 / 3 + 1);
+      this.columnTypeHandlers = new TypeHandler<?>[columnNames.size()];
+      for (int i = columnNames.size() - 1; i >= 0; i--) {
+        // the first of several columns with the same name wins, as in ResultSet#findColumn
+        final String columnName = columnNames.get(i);
+        if (columnName != null) {
+          columnIndexes.put(columnName.toUpperCase(Locale.ENGLISH), i + 1);
+        }
+      }
+    }
+
+  }
+
 }
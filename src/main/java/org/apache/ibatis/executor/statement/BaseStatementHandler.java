@@ -23,14 +23,18 @@ import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.pagination.Pagination;
+import org.apache.ibatis.executor.pagination.PaginationDialect;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.KeysetRowBounds;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
 /**
@@ -54,7 +58,6 @@ public abstract class BaseStatementHandler implements StatementHandler {
     this.configuration = mappedStatement.getConfiguration();
     this.executor = executor;
     this.mappedStatement = mappedStatement;
-    this.rowBounds = rowBounds;
 
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.objectFactory = configuration.getObjectFactory();
@@ -64,12 +67,43 @@ public abstract class BaseStatementHandler implements StatementHandler {
       boundSql = mappedStatement.getBoundSql(parameterObject);
     }
 
+    if (rowBounds instanceof KeysetRowBounds) {
+      boundSql = Pagination.getKeysetBoundSql(configuration, boundSql, (KeysetRowBounds) rowBounds);
+    }
+    if (Pagination.isBounded(rowBounds) && Pagination.isPageable(mappedStatement)
+        && (configuration.isPhysicalPagination() || rowBounds instanceof KeysetRowBounds)) {
+      PaginationDialect dialect = getPaginationDialect();
+      if (dialect != null) {
+        // the database returns the page, which is then read whole
+        boundSql = Pagination.getPageBoundSql(configuration, boundSql, rowBounds, dialect);
+        rowBounds = RowBounds.DEFAULT;
+      }
+    }
+
+    this.rowBounds = rowBounds;
     this.boundSql = boundSql;
 
     this.parameterHandler = configuration.newParameterHandler(mappedStatement, parameterObject, boundSql);
     this.resultSetHandler = configuration.newResultSetHandler(executor, mappedStatement, rowBounds, parameterHandler, resultHandler, boundSql);
   }
 
+  /*
+   * Detects the dialect with the connection of the executor, which the statement will use anyway: another connection
+   * could wait for a pool that this session already drained
+   */
+  private PaginationDialect getPaginationDialect() {
+    PaginationDialect dialect = configuration.getPaginationDialect();
+    Transaction transaction = executor == null ? null : executor.getTransaction();
+    if (dialect != null || transaction == null) {
+      return dialect;
+    }
+    try {
+      return configuration.getPaginationDialect(transaction.getConnection());
+    } catch (SQLException e) {
+      throw new ExecutorException("Error getting a connection to detect the pagination dialect.  Cause: " + e, e);
+    }
+  }
+
   @Override
   public BoundSql getBoundSql() {
     return boundSql;
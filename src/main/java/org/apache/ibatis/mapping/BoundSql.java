@@ -20,7 +20,9 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.property.PropertyPath;
 import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.scripting.defaults.ParameterBinders;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -46,13 +48,24 @@ public class BoundSql {
   private final Object parameterObject;
   private final Map<String, Object> additionalParameters;   // 附加参数
   private final MetaObject metaParameters;
+  private final ParameterBinders parameterBinders;
 
   public BoundSql(Configuration configuration, String sql, List<ParameterMapping> parameterMappings, Object parameterObject) {
+    this(configuration, sql, parameterMappings, parameterObject, null);
+  }
+
+  /**
+   * @param parameterBinders the binders of the parameter mappings, or null
+   * @since 3.4.7
+   */
+  public BoundSql(Configuration configuration, String sql, List<ParameterMapping> parameterMappings, Object parameterObject,
+      ParameterBinders parameterBinders) {
     this.sql = sql;
     this.parameterMappings = parameterMappings;
     this.parameterObject = parameterObject;
     this.additionalParameters = new HashMap<String, Object>();
     this.metaParameters = configuration.newMetaObject(additionalParameters);
+    this.parameterBinders = parameterBinders;
   }
 
   public String getSql() {
@@ -67,6 +80,14 @@ public class BoundSql {
     return parameterObject;
   }
 
+  /**
+   * @return the binders of the parameter mappings kept by the source of this SQL, or null
+   * @since 3.4.7
+   */
+  public ParameterBinders getParameterBinders() {
+    return parameterBinders;
+  }
+
   /**
    * 是否有附加参数
    *
@@ -97,4 +118,18 @@ public class BoundSql {
   public Object getAdditionalParameter(String name) {
     return metaParameters.getValue(name);
   }
+
+  /**
+   * @since 3.4.7
+   */
+  public boolean hasAdditionalParameter(PropertyPath path) {
+    return additionalParameters.containsKey(path.getName());
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public Object getAdditionalParameter(PropertyPath path) {
+    return metaParameters.getValue(path);
+  }
 }
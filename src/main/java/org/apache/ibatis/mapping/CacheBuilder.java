@@ -25,11 +25,13 @@ import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
@@ -45,6 +47,9 @@ public class CacheBuilder {
   private final List<Class<? extends Cache>> decorators;    // 缓存装饰者类
   private Integer size;
   private Long clearInterval;
+  private Long expireAfterWrite;
+  private Long expireAfterAccess;
+  private Long refreshAhead;
   private boolean readWrite;
   private Properties properties;
   private boolean blocking;
@@ -76,6 +81,21 @@ public class CacheBuilder {
     return this;
   }
 
+  public CacheBuilder expireAfterWrite(Long expireAfterWrite) {
+    this.expireAfterWrite = expireAfterWrite;
+    return this;
+  }
+
+  public CacheBuilder expireAfterAccess(Long expireAfterAccess) {
+    this.expireAfterAccess = expireAfterAccess;
+    return this;
+  }
+
+  public CacheBuilder refreshAhead(Long refreshAhead) {
+    this.refreshAhead = refreshAhead;
+    return this;
+  }
+
   public CacheBuilder readWrite(boolean readWrite) {
     this.readWrite = readWrite;
     return this;
@@ -101,7 +121,11 @@ public class CacheBuilder {
         cache = newCacheDecoratorInstance(decorator, cache);
         setCacheProperties(cache);
       }
-      cache = setStandardDecorators(cache);
+      cache = setStandardDecorators(cache, true);
+    } else if (ConcurrentCache.class.equals(cache.getClass())) {
+      // evicts by itself and is thread-safe, so neither eviction decorators nor synchronization are needed
+      // (the hit ratio logged by LoggingCache is then approximate)
+      cache = setStandardDecorators(cache, false);
     } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
       cache = new LoggingCache(cache);
     }
@@ -117,7 +141,7 @@ public class CacheBuilder {
     }
   }
 
-  private Cache setStandardDecorators(Cache cache) {
+  private Cache setStandardDecorators(Cache cache, boolean synchronize) {
     try {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
       if (size != null && metaCache.hasSetter("size")) {
@@ -127,11 +151,26 @@ public class CacheBuilder {
         cache = new ScheduledCache(cache);
         ((ScheduledCache) cache).setClearInterval(clearInterval);
       }
+      if (expireAfterWrite != null || expireAfterAccess != null) {
+        ExpiringCache expiringCache = new ExpiringCache(cache);
+        if (expireAfterWrite != null) {
+          expiringCache.setExpireAfterWrite(expireAfterWrite);
+        }
+        if (expireAfterAccess != null) {
+          expiringCache.setExpireAfterAccess(expireAfterAccess);
+        }
+        if (refreshAhead != null) {
+          expiringCache.setRefreshAhead(refreshAhead);
+        }
+        cache = expiringCache;
+      }
       if (readWrite) {
         cache = new SerializedCache(cache);
       }
       cache = new LoggingCache(cache);
-      cache = new SynchronizedCache(cache);
+      if (synchronize) {
+        cache = new SynchronizedCache(cache);
+      }
       if (blocking) {
         cache = new BlockingCache(cache);
       }
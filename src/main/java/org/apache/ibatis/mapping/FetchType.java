@@ -16,8 +16,12 @@
 package org.apache.ibatis.mapping;
 
 /**
+ * BATCH is lazy, and the first access loads the same property of the other results of the statement too.
+ *
  * @author Eduardo Macarron
  */
 public enum FetchType {
-  LAZY, EAGER, DEFAULT
+  LAZY, EAGER, DEFAULT,
+  /** @since 3.4.7 */
+  BATCH
 }
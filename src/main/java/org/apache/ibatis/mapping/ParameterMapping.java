@@ -17,6 +17,7 @@ package org.apache.ibatis.mapping;
 
 import java.sql.ResultSet;
 
+import org.apache.ibatis.reflection.property.PropertyPath;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
@@ -32,6 +33,7 @@ public class ParameterMapping {
   private Configuration configuration;
 
   private String property;
+  private PropertyPath propertyPath;
   private ParameterMode mode;
   private Class<?> javaType = Object.class;
   private JdbcType jdbcType;
@@ -104,6 +106,9 @@ public class ParameterMapping {
     public ParameterMapping build() {
       resolveTypeHandler();   // 解析类型处理器
       validate();   // 校验部分参数
+      if (parameterMapping.property != null) {
+        parameterMapping.propertyPath = new PropertyPath(parameterMapping.property);
+      }
       return parameterMapping;
     }
 
@@ -137,6 +142,14 @@ public class ParameterMapping {
     return property;
   }
 
+  /**
+   * @return the property parsed, or null if there is no property
+   * @since 3.4.7
+   */
+  public PropertyPath getPropertyPath() {
+    return propertyPath;
+  }
+
   /**
    * Used for handling output of callable statements
    * @return
@@ -20,6 +20,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.ibatis.reflection.property.PropertyPath;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
@@ -32,6 +33,7 @@ public class ResultMapping {
 
   private Configuration configuration;
   private String property;
+  private PropertyPath propertyPath;
   private String column;
   private Class<?> javaType;
   private JdbcType jdbcType;
@@ -45,6 +47,7 @@ public class ResultMapping {
   private String resultSet;
   private String foreignColumn;
   private boolean lazy;
+  private boolean lazyBatch;
 
   ResultMapping() {
   }
@@ -132,6 +135,14 @@ public class ResultMapping {
       return this;
     }
 
+    /**
+     * @since 3.4.7
+     */
+    public Builder lazyBatch(boolean lazyBatch) {
+      resultMapping.lazyBatch = lazyBatch;
+      return this;
+    }
+
     /**
      * 构建一个ResultMapping
      *
@@ -144,6 +155,9 @@ public class ResultMapping {
       resultMapping.composites = Collections.unmodifiableList(resultMapping.composites);
       resolveTypeHandler();   // 给当前ResultMapping类的类型处理器赋值
       validate();   // 验证一些必要参数，如果不满足则抛出异常
+      if (resultMapping.property != null) {
+        resultMapping.propertyPath = new PropertyPath(resultMapping.property);
+      }
       return resultMapping;
     }
 
@@ -199,6 +213,14 @@ public class ResultMapping {
     return property;
   }
 
+  /**
+   * @return the property parsed, or null if there is no property
+   * @since 3.4.7
+   */
+  public PropertyPath getPropertyPath() {
+    return propertyPath;
+  }
+
   public String getColumn() {
     return column;
   }
@@ -262,6 +284,22 @@ public class ResultMapping {
   public void setLazy(boolean lazy) {
     this.lazy = lazy;
   }
+
+  /**
+   * Whether loading the property lazily loads it for the other results of the statement too.
+   *
+   * @since 3.4.7
+   */
+  public boolean isLazyBatch() {
+    return lazyBatch;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setLazyBatch(boolean lazyBatch) {
+    this.lazyBatch = lazyBatch;
+  }
   
   @Override
   public boolean equals(Object o) {
@@ -310,6 +348,7 @@ public class ResultMapping {
     sb.append(", resultSet='").append(resultSet).append('\'');
     sb.append(", foreignColumn='").append(foreignColumn).append('\'');
     sb.append(", lazy=").append(lazy);
+    sb.append(", lazyBatch=").append(lazyBatch);
     sb.append('}');
     return sb.toString();
   }
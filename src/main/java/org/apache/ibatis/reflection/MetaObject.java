@@ -20,6 +20,8 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.property.PropertyPath;
 import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.apache.ibatis.reflection.wrapper.CollectionWrapper;
@@ -38,6 +40,8 @@ public class MetaObject {
   private final ObjectWrapperFactory objectWrapperFactory;
   private final ReflectorFactory reflectorFactory;
 
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
   private MetaObject(Object object, ObjectFactory objectFactory, ObjectWrapperFactory objectWrapperFactory, ReflectorFactory reflectorFactory) {
     this.originalObject = object;
     this.objectFactory = objectFactory;
@@ -147,6 +151,100 @@ public class MetaObject {
     }
   }
 
+  /**
+   * Same as {@link #getValue(String)}, without tokenizing the name nor wrapping the beans and maps along the path.
+   *
+   * @since 3.4.7
+   */
+  public Object getValue(PropertyPath path) {
+    Object value = objectWrapper.get(path.getSegment(0));
+    for (int i = 1; i < path.size(); i++) {
+      if (value == null) {
+        return null;
+      }
+      PropertyTokenizer prop = path.getSegment(i);
+      if (isPlain(value, prop)) {
+        value = getPlainValue(value, prop);
+      } else {
+        value = forObject(value, objectFactory, objectWrapperFactory, reflectorFactory).objectWrapper.get(prop);
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Same as {@link #setValue(String, Object)}, without tokenizing the name nor wrapping the beans and maps along the path.
+   *
+   * @since 3.4.7
+   */
+  public void setValue(PropertyPath path, Object value) {
+    int last = path.size() - 1;
+    if (last == 0) {
+      objectWrapper.set(path.getSegment(0), value);
+      return;
+    }
+    Object owner = objectWrapper.get(path.getSegment(0));
+    if (owner == null) {
+      // instantiates the missing objects
+      setValue(path.getFullName(), value);
+      return;
+    }
+    for (int i = 1; i < last; i++) {
+      PropertyTokenizer prop = path.getSegment(i);
+      Object child = isPlain(owner, prop) ? getPlainValue(owner, prop) : null;
+      if (child == null) {
+        forObject(owner, objectFactory, objectWrapperFactory, reflectorFactory).setValue(path.getFullName(i), value);
+        return;
+      }
+      owner = child;
+    }
+    PropertyTokenizer prop = path.getSegment(last);
+    if (isPlain(owner, prop)) {
+      setPlainValue(owner, prop, value);
+    } else {
+      forObject(owner, objectFactory, objectWrapperFactory, reflectorFactory).objectWrapper.set(prop, value);
+    }
+  }
+
+  /*
+   * Beans and maps whose property is not indexed are read and written as their wrapper would, without it.
+   */
+  private boolean isPlain(Object object, PropertyTokenizer prop) {
+    return prop.getIndex() == null && !(object instanceof ObjectWrapper) && !(object instanceof Collection)
+        && !objectWrapperFactory.hasWrapperFor(object);
+  }
+
+  private Object getPlainValue(Object object, PropertyTokenizer prop) {
+    if (object instanceof Map) {
+      return ((Map<?, ?>) object).get(prop.getName());
+    }
+    Invoker method = reflectorFactory.findForClass(object.getClass()).getGetInvoker(prop.getName());
+    try {
+      return method.invoke(object, NO_ARGUMENTS);
+    } catch (Throwable t) {
+      Throwable cause = ExceptionUtil.unwrapThrowable(t);
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new ReflectionException("Could not get property '" + prop.getName() + "' from " + object.getClass() + ".  Cause: " + cause.toString(), cause);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void setPlainValue(Object object, PropertyTokenizer prop, Object value) {
+    if (object instanceof Map) {
+      ((Map<String, Object>) object).put(prop.getName(), value);
+      return;
+    }
+    try {
+      Invoker method = reflectorFactory.findForClass(object.getClass()).getSetInvoker(prop.getName());
+      method.invoke(object, new Object[] { value });
+    } catch (Throwable t) {
+      Throwable cause = ExceptionUtil.unwrapThrowable(t);
+      throw new ReflectionException("Could not set property '" + prop.getName() + "' of '" + object.getClass() + "' with value '" + value + "' Cause: " + cause.toString(), cause);
+    }
+  }
+
   public MetaObject metaObjectForProperty(String name) {
     Object value = getValue(name);
     return MetaObject.forObject(value, objectFactory, objectWrapperFactory, reflectorFactory);
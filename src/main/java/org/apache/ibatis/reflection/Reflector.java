@@ -32,6 +32,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.apache.ibatis.reflection.invoker.AccessorGenerator;
 import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
 import org.apache.ibatis.reflection.invoker.Invoker;
 import org.apache.ibatis.reflection.invoker.MethodInvoker;
@@ -81,6 +82,18 @@ public class Reflector {
     }
   }
 
+  /**
+   * @param generateAccessors true to call the public getters, setters and fields through a class generated by
+   *          {@link AccessorGenerator} instead of reflection
+   * @since 3.4.7
+   */
+  public Reflector(Class<?> clazz, boolean generateAccessors) {
+    this(clazz);
+    if (generateAccessors) {
+      AccessorGenerator.generateInvokers(type, getMethods, setMethods);
+    }
+  }
+
   /**
    * 添加默认的构造方法
    *
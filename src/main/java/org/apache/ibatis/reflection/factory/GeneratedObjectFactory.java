@@ -0,0 +1,85 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.factory;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.reflection.invoker.Accessor;
+import org.apache.ibatis.reflection.invoker.AccessorGenerator;
+
+/**
+ * Object factory that calls public default constructors through classes generated by {@link AccessorGenerator}.
+ * Other constructors, and the classes that cannot be generated, are called by reflection as by the
+ * {@link DefaultObjectFactory}.
+ *
+ * @since 3.4.7
+ */
+public class GeneratedObjectFactory extends DefaultObjectFactory {
+
+  private static final long serialVersionUID = 6470358423452357290L;
+
+  private static final Accessor NO_INSTANTIATOR = new Accessor() {
+    @Override
+    public Object get(Object target, int index) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean set(Object target, int index, Object value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Object newInstance() {
+      throw new UnsupportedOperationException();
+    }
+  };
+
+  private transient ConcurrentMap<Class<?>, Accessor> instantiators = new ConcurrentHashMap<Class<?>, Accessor>();
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> T create(Class<T> type, List<Class<?>> constructorArgTypes, List<Object> constructorArgs) {
+    if (constructorArgTypes == null || constructorArgs == null) {
+      Accessor instantiator = getInstantiator(resolveInterface(type));
+      if (instantiator != NO_INSTANTIATOR) {
+        // we know types are assignable
+        return (T) instantiator.newInstance();
+      }
+    }
+    return super.create(type, constructorArgTypes, constructorArgs);
+  }
+
+  private Accessor getInstantiator(Class<?> type) {
+    Accessor instantiator = instantiators.get(type);
+    if (instantiator == null) {
+      instantiator = AccessorGenerator.generateInstantiator(type);
+      if (instantiator == null) {
+        instantiator = NO_INSTANTIATOR;
+      }
+      instantiators.put(type, instantiator);
+    }
+    return instantiator;
+  }
+
+  private Object readResolve() {
+    instantiators = new ConcurrentHashMap<Class<?>, Accessor>();
+    return this;
+  }
+
+}
@@ -0,0 +1,36 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+/**
+ * Base class of the classes generated by {@link AccessorGenerator}, which read and write the properties
+ * of one class, selected by index, and instantiate it, without reflection.
+ *
+ * @since 3.4.7
+ */
+public abstract class Accessor {
+
+  public abstract Object get(Object target, int index);
+
+  /*
+   * Returns false, without setting the property, if a primitive property is given anything but its wrapper,
+   * which reflection converts or rejects.
+   */
+  public abstract boolean set(Object target, int index, Object value);
+
+  public abstract Object newInstance();
+
+}
@@ -0,0 +1,277 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Generates with Javassist the {@link Accessor} of a class, which calls its getters, setters and default
+ * constructor directly instead of through reflection.
+ * <p>
+ * Only public members of public classes can be called from the generated class, which is defined by a class
+ * loader of its own. The other members keep their reflective invokers, as do all of them when the class cannot
+ * be generated, for instance because Javassist is missing or because the class file of a member is not found.
+ *
+ * @since 3.4.7
+ */
+public final class AccessorGenerator {
+
+  private static final Log log = LogFactory.getLog(AccessorGenerator.class);
+
+  private static final AtomicInteger classNumber = new AtomicInteger();
+
+  private AccessorGenerator() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /*
+   * Replaces the reflective invokers of the maps that can be generated by invokers of one accessor.
+   */
+  public static void generateInvokers(Class<?> type, Map<String, Invoker> getInvokers, Map<String, Invoker> setInvokers) {
+    List<String> getterNames = new ArrayList<String>();
+    List<Member> getters = new ArrayList<Member>();
+    for (Map.Entry<String, Invoker> entry : getInvokers.entrySet()) {
+      Member member = getMember(entry.getValue());
+      if (member != null && isAccessible(member, false)) {
+        getterNames.add(entry.getKey());
+        getters.add(member);
+      }
+    }
+    List<String> setterNames = new ArrayList<String>();
+    List<Member> setters = new ArrayList<Member>();
+    for (Map.Entry<String, Invoker> entry : setInvokers.entrySet()) {
+      Member member = getMember(entry.getValue());
+      if (member != null && isAccessible(member, true)) {
+        setterNames.add(entry.getKey());
+        setters.add(member);
+      }
+    }
+    if (getters.isEmpty() && setters.isEmpty()) {
+      return;
+    }
+    Accessor accessor = generate(type, getters, setters, false);
+    if (accessor == null) {
+      return;
+    }
+    for (int i = 0; i < getterNames.size(); i++) {
+      String name = getterNames.get(i);
+      getInvokers.put(name, new AccessorInvoker(accessor, i, false, getInvokers.get(name)));
+    }
+    for (int i = 0; i < setterNames.size(); i++) {
+      String name = setterNames.get(i);
+      setInvokers.put(name, new AccessorInvoker(accessor, i, true, setInvokers.get(name)));
+    }
+  }
+
+  /*
+   * Returns an accessor whose newInstance() calls the public default constructor of the type,
+   * or null if the type has none or the accessor cannot be generated.
+   */
+  public static Accessor generateInstantiator(Class<?> type) {
+    if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || !isPublic(type)) {
+      return null;
+    }
+    try {
+      Constructor<?> constructor = type.getConstructor();
+      if (!Modifier.isPublic(constructor.getModifiers())) {
+        return null;
+      }
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+    List<Member> none = Collections.emptyList();
+    return generate(type, none, none, true);
+  }
+
+  private static Accessor generate(Class<?> type, List<Member> getters, List<Member> setters, boolean instantiable) {
+    try {
+      String className = AccessorGenerator.class.getName() + "$" + type.getSimpleName() + "$" + classNumber.incrementAndGet();
+      ClassLoader parent = type.getClassLoader() != null ? type.getClassLoader() : AccessorGenerator.class.getClassLoader();
+      ClassPool pool = new ClassPool(true);
+      pool.insertClassPath(new ClassClassPath(AccessorGenerator.class));
+      pool.insertClassPath(new LoaderClassPath(parent));
+      CtClass ctClass = pool.makeClass(className, pool.get(Accessor.class.getName()));
+      ctClass.addConstructor(CtNewConstructor.defaultConstructor(ctClass));
+      ctClass.addMethod(CtNewMethod.make(getterSource(getters), ctClass));
+      ctClass.addMethod(CtNewMethod.make(setterSource(setters), ctClass));
+      ctClass.addMethod(CtNewMethod.make(instantiable
+          ? "public Object newInstance() { return new " + sourceName(type) + "(); }"
+          : "public Object newInstance() { throw new UnsupportedOperationException(); }", ctClass));
+      byte[] bytecode = ctClass.toBytecode();
+      Class<?> accessorClass = new AccessorClassLoader(parent).define(className, bytecode);
+      return (Accessor) accessorClass.newInstance();
+    } catch (Exception e) {
+      log.debug("Could not generate the accessor of " + type + ", falling back to reflection. Cause: " + e);
+    } catch (LinkageError e) {
+      log.debug("Could not generate the accessor of " + type + ", falling back to reflection. Cause: " + e);
+    }
+    return null;
+  }
+
+  private static String getterSource(List<Member> getters) {
+    StringBuilder source = new StringBuilder("public Object get(Object target, int index) {");
+    if (!getters.isEmpty()) {
+      source.append(" switch (index) {");
+      for (int i = 0; i < getters.size(); i++) {
+        Member member = getters.get(i);
+        String target = "((" + sourceName(member.getDeclaringClass()) + ") target)";
+        Class<?> valueType;
+        String value;
+        if (member instanceof Method) {
+          valueType = ((Method) member).getReturnType();
+          value = target + "." + member.getName() + "()";
+        } else {
+          valueType = ((Field) member).getType();
+          value = target + "." + member.getName();
+        }
+        source.append(" case ").append(i).append(": return ").append(box(valueType, value)).append(';');
+      }
+      source.append(" }");
+    }
+    return source.append(" throw new IndexOutOfBoundsException(String.valueOf(index)); }").toString();
+  }
+
+  private static String setterSource(List<Member> setters) {
+    StringBuilder source = new StringBuilder("public boolean set(Object target, int index, Object value) {");
+    if (!setters.isEmpty()) {
+      source.append(" switch (index) {");
+      for (int i = 0; i < setters.size(); i++) {
+        Member member = setters.get(i);
+        String target = "((" + sourceName(member.getDeclaringClass()) + ") target)";
+        Class<?> valueType = member instanceof Method
+            ? ((Method) member).getParameterTypes()[0] : ((Field) member).getType();
+        source.append(" case ").append(i).append(": ");
+        String value;
+        if (valueType.isPrimitive()) {
+          String wrapper = wrapperOf(valueType).getName();
+          source.append("if (!(value instanceof ").append(wrapper).append(")) { return false; } ");
+          value = "((" + wrapper + ") value)." + valueType.getName() + "Value()";
+        } else {
+          value = "(" + sourceName(valueType) + ") value";
+        }
+        if (member instanceof Method) {
+          source.append(target).append('.').append(member.getName()).append('(').append(value).append(");");
+        } else {
+          source.append(target).append('.').append(member.getName()).append(" = ").append(value).append(';');
+        }
+        source.append(" return true;");
+      }
+      source.append(" }");
+    }
+    return source.append(" throw new IndexOutOfBoundsException(String.valueOf(index)); }").toString();
+  }
+
+  private static String box(Class<?> type, String value) {
+    return type.isPrimitive() ? wrapperOf(type).getName() + ".valueOf(" + value + ")" : value;
+  }
+
+  private static Class<?> wrapperOf(Class<?> type) {
+    if (type == int.class) {
+      return Integer.class;
+    } else if (type == long.class) {
+      return Long.class;
+    } else if (type == boolean.class) {
+      return Boolean.class;
+    } else if (type == double.class) {
+      return Double.class;
+    } else if (type == float.class) {
+      return Float.class;
+    } else if (type == short.class) {
+      return Short.class;
+    } else if (type == byte.class) {
+      return Byte.class;
+    } else if (type == char.class) {
+      return Character.class;
+    }
+    throw new IllegalArgumentException("Not a primitive value type: " + type);
+  }
+
+  private static String sourceName(Class<?> type) {
+    // Javassist resolves the binary names of nested classes
+    return type.isArray() ? sourceName(type.getComponentType()) + "[]" : type.getName();
+  }
+
+  private static Member getMember(Invoker invoker) {
+    if (invoker instanceof MethodInvoker) {
+      return ((MethodInvoker) invoker).getMethod();
+    } else if (invoker instanceof GetFieldInvoker) {
+      return ((GetFieldInvoker) invoker).getField();
+    } else if (invoker instanceof SetFieldInvoker) {
+      return ((SetFieldInvoker) invoker).getField();
+    }
+    return null;
+  }
+
+  private static boolean isAccessible(Member member, boolean write) {
+    int modifiers = member.getModifiers();
+    if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers) || !isPublic(member.getDeclaringClass())) {
+      return false;
+    }
+    if (member instanceof Field) {
+      return !(write && Modifier.isFinal(modifiers));
+    }
+    return !member.isSynthetic();
+  }
+
+  private static boolean isPublic(Class<?> type) {
+    for (Class<?> current = type; current != null; current = current.getEnclosingClass()) {
+      if (!Modifier.isPublic(current.getModifiers())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /*
+   * Defines one accessor class, which is unloaded with the loader once it is unused. Classes that the parent,
+   * usually the loader of the accessed class, does not see are loaded by the loader of MyBatis.
+   */
+  private static class AccessorClassLoader extends ClassLoader {
+
+    AccessorClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+      return Class.forName(name, false, AccessorGenerator.class.getClassLoader());
+    }
+
+    Class<?> define(String name, byte[] bytecode) {
+      return defineClass(name, bytecode, 0, bytecode.length);
+    }
+  }
+
+}
@@ -0,0 +1,56 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Reads or writes a property through a generated {@link Accessor}. Exceptions of the property are thrown
+ * as they are, not wrapped in an {@link InvocationTargetException}.
+ *
+ * @since 3.4.7
+ */
+public class AccessorInvoker implements Invoker {
+
+  private final Accessor accessor;
+  private final int index;
+  private final boolean setter;
+  // reflective invoker of the same property, used for the conversions that the accessor does not make
+  private final Invoker fallback;
+
+  public AccessorInvoker(Accessor accessor, int index, boolean setter, Invoker fallback) {
+    this.accessor = accessor;
+    this.index = index;
+    this.setter = setter;
+    this.fallback = fallback;
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    if (!setter) {
+      return accessor.get(target, index);
+    }
+    if (!accessor.set(target, index, args[0])) {
+      fallback.invoke(target, args);
+    }
+    return null;
+  }
+
+  @Override
+  public Class<?> getType() {
+    return fallback.getType();
+  }
+}
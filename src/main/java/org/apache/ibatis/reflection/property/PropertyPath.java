@@ -0,0 +1,78 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.property;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A property name such as <code>order.customer.address[0].city</code>, split once into its segments so that
+ * {@link org.apache.ibatis.reflection.MetaObject#getValue(PropertyPath)} and
+ * {@link org.apache.ibatis.reflection.MetaObject#setValue(PropertyPath, Object)} do not tokenize it on every call.
+ * Instances are immutable and can be shared between threads.
+ *
+ * @since 3.4.7
+ */
+public final class PropertyPath {
+
+  private final String fullName;
+  // the tokenizer of each segment, whose children are the segments after it
+  private final PropertyTokenizer[] segments;
+
+  public PropertyPath(String fullName) {
+    this.fullName = fullName;
+    List<PropertyTokenizer> tokenizers = new ArrayList<PropertyTokenizer>();
+    PropertyTokenizer tokenizer = new PropertyTokenizer(fullName);
+    tokenizers.add(tokenizer);
+    while (tokenizer.hasNext()) {
+      tokenizer = tokenizer.next();
+      tokenizers.add(tokenizer);
+    }
+    this.segments = tokenizers.toArray(new PropertyTokenizer[tokenizers.size()]);
+  }
+
+  public String getFullName() {
+    return fullName;
+  }
+
+  /*
+   * The name of the first segment, without index
+   */
+  public String getName() {
+    return segments[0].getName();
+  }
+
+  public int size() {
+    return segments.length;
+  }
+
+  public PropertyTokenizer getSegment(int index) {
+    return segments[index];
+  }
+
+  /*
+   * The name made of the segments from the given one on
+   */
+  public String getFullName(int fromIndex) {
+    return fromIndex == 0 ? fullName : segments[fromIndex - 1].getChildren();
+  }
+
+  @Override
+  public String toString() {
+    return fullName;
+  }
+
+}
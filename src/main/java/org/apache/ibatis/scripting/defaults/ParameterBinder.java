@@ -0,0 +1,185 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.defaults;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.property.PropertyPath;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeException;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Sets the parameters of a statement the way {@link DefaultParameterHandler} does, for one list of parameter mappings
+ * and one type of parameter object.
+ * <p>
+ * Everything that only depends on them is worked out once: which mappings are skipped, whether the parameter object
+ * is itself the value, and the getter or map lookup that reads each property. Properties that are nested, indexed or
+ * read through a custom object wrapper are still read with a {@link MetaObject}.
+ *
+ * @since 3.4.7
+ */
+public final class ParameterBinder {
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  // how the value of a mapping is read when it is not an additional parameter
+  private static final int SKIP = 0;
+  private static final int NULL = 1;
+  private static final int SELF = 2;
+  private static final int MAP = 3;
+  private static final int GETTER = 4;
+  private static final int META_OBJECT = 5;
+
+  private final Configuration configuration;
+  private final ParameterMapping[] parameterMappings;
+  private final PropertyPath[] propertyPaths;
+  private final TypeHandler<Object>[] typeHandlers;
+  private final JdbcType[] jdbcTypes;
+  private final int[] kinds;
+  private final Invoker[] getters;
+
+  @SuppressWarnings("unchecked")
+  private ParameterBinder(Configuration configuration, List<ParameterMapping> parameterMappings, Class<?> parameterType) {
+    int size = parameterMappings.size();
+    this.configuration = configuration;
+    this.parameterMappings = parameterMappings.toArray(new ParameterMapping[size]);
+    this.propertyPaths = new PropertyPath[size];
+    this.typeHandlers = new TypeHandler[size];
+    this.jdbcTypes = new JdbcType[size];
+    this.kinds = new int[size];
+    this.getters = new Invoker[size];
+    boolean self = parameterType != null && configuration.getTypeHandlerRegistry().hasTypeHandler(parameterType);
+    // custom wrappers may claim any object, so only the default factory lets properties be read without one
+    boolean plain = parameterType != null && configuration.getObjectWrapperFactory().getClass() == DefaultObjectWrapperFactory.class
+        && !ObjectWrapper.class.isAssignableFrom(parameterType) && !Collection.class.isAssignableFrom(parameterType);
+    Reflector reflector = null;
+    for (int i = 0; i < size; i++) {
+      ParameterMapping parameterMapping = this.parameterMappings[i];
+      PropertyPath propertyPath = parameterMapping.getPropertyPath();
+      propertyPaths[i] = propertyPath;
+      typeHandlers[i] = (TypeHandler<Object>) parameterMapping.getTypeHandler();
+      jdbcTypes[i] = parameterMapping.getJdbcType();
+      if (parameterMapping.getMode() == ParameterMode.OUT) {
+        kinds[i] = SKIP;
+      } else if (parameterType == null) {
+        kinds[i] = NULL;
+      } else if (self) {
+        kinds[i] = SELF;
+      } else if (plain && propertyPath.size() == 1 && propertyPath.getSegment(0).getIndex() == null) {
+        String name = propertyPath.getName();
+        if (Map.class.isAssignableFrom(parameterType)) {
+          kinds[i] = MAP;
+        } else {
+          if (reflector == null) {
+            reflector = configuration.getReflectorFactory().findForClass(parameterType);
+          }
+          if (reflector.hasGetter(name)) {
+            kinds[i] = GETTER;
+            getters[i] = reflector.getGetInvoker(name);
+          } else {
+            // fails as it always did, once the statement is executed
+            kinds[i] = META_OBJECT;
+          }
+        }
+      } else {
+        kinds[i] = META_OBJECT;
+      }
+    }
+  }
+
+  /**
+   * @param parameterType the class of the parameter objects, or <code>null</code> for a <code>null</code> one
+   */
+  public static ParameterBinder compile(Configuration configuration, List<ParameterMapping> parameterMappings, Class<?> parameterType) {
+    return new ParameterBinder(configuration, parameterMappings, parameterType);
+  }
+
+  /**
+   * Sets the parameters of one execution, or of one row of a batch.
+   *
+   * @param parameterObject an object of the type this binder was compiled for
+   */
+  public void bind(PreparedStatement ps, Object parameterObject, BoundSql boundSql) {
+    MetaObject metaObject = null;
+    for (int i = 0; i < kinds.length; i++) {
+      int kind = kinds[i];
+      if (kind == SKIP) {
+        continue;
+      }
+      Object value;
+      PropertyPath propertyPath = propertyPaths[i];
+      if (boundSql.hasAdditionalParameter(propertyPath)) { // issue #448 ask first for additional params
+        value = boundSql.getAdditionalParameter(propertyPath);
+      } else if (kind == NULL) {
+        value = null;
+      } else if (kind == SELF) {
+        value = parameterObject;
+      } else if (kind == MAP) {
+        value = ((Map<?, ?>) parameterObject).get(propertyPath.getName());
+      } else if (kind == GETTER) {
+        value = getProperty(getters[i], parameterObject, propertyPath);
+      } else {
+        if (metaObject == null) {
+          metaObject = configuration.newMetaObject(parameterObject);
+        }
+        value = metaObject.getValue(propertyPath);
+      }
+      JdbcType jdbcType = jdbcTypes[i];
+      if (value == null && jdbcType == null) {
+        jdbcType = configuration.getJdbcTypeForNull();
+      }
+      try {
+        typeHandlers[i].setParameter(ps, i + 1, value, jdbcType);
+      } catch (TypeException e) {
+        throw new TypeException("Could not set parameters for mapping: " + parameterMappings[i] + ". Cause: " + e, e);
+      } catch (SQLException e) {
+        throw new TypeException("Could not set parameters for mapping: " + parameterMappings[i] + ". Cause: " + e, e);
+      }
+    }
+  }
+
+  /*
+   * Same errors as BeanWrapper
+   */
+  private static Object getProperty(Invoker getter, Object parameterObject, PropertyPath propertyPath) {
+    try {
+      return getter.invoke(parameterObject, NO_ARGUMENTS);
+    } catch (Throwable t) {
+      Throwable cause = ExceptionUtil.unwrapThrowable(t);
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new ReflectionException("Could not get property '" + propertyPath.getName() + "' from " + parameterObject.getClass() + ".  Cause: " + cause.toString(), cause);
+    }
+  }
+
+}
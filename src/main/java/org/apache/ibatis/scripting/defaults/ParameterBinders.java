@@ -0,0 +1,80 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.defaults;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * The {@link ParameterBinder}s of one list of parameter mappings, by type of parameter object, kept by the
+ * {@link org.apache.ibatis.builder.StaticSqlSource} that owns the list.
+ * <p>
+ * A binder is only compiled the second time parameters of its type are bound, so that the sources built for a
+ * single execution, as those of dynamic SQL that is not cached, never pay for one.
+ *
+ * @since 3.4.7
+ */
+public final class ParameterBinders {
+
+  private static final Class<?> NULL_TYPE = Void.class;
+  private static final Object BOUND_ONCE = new Object();
+
+  private final Configuration configuration;
+  private final List<ParameterMapping> parameterMappings;
+  // copied on write, as a source rarely binds more than one type
+  private volatile Map<Class<?>, Object> binders = Collections.emptyMap();
+
+  public ParameterBinders(Configuration configuration, List<ParameterMapping> parameterMappings) {
+    this.configuration = configuration;
+    this.parameterMappings = parameterMappings;
+  }
+
+  /**
+   * Returns the binder of parameter objects of the given type.
+   *
+   * @param parameterType the class of the parameter object, or <code>null</code> for a <code>null</code> one
+   * @return the binder, or <code>null</code> the first time the type is bound
+   */
+  public ParameterBinder get(Class<?> parameterType) {
+    Class<?> key = parameterType == null ? NULL_TYPE : parameterType;
+    Object binder = binders.get(key);
+    if (binder instanceof ParameterBinder) {
+      return (ParameterBinder) binder;
+    }
+    synchronized (this) {
+      binder = binders.get(key);
+      if (binder instanceof ParameterBinder) {
+        return (ParameterBinder) binder;
+      }
+      Map<Class<?>, Object> copy = new HashMap<Class<?>, Object>(binders);
+      if (binder == null) {
+        copy.put(key, BOUND_ONCE);
+        binders = copy;
+        return null;
+      }
+      ParameterBinder compiled = ParameterBinder.compile(configuration, parameterMappings, parameterType);
+      copy.put(key, compiled);
+      binders = copy;
+      return compiled;
+    }
+  }
+
+}
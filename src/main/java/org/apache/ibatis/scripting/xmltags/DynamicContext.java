@@ -15,7 +15,9 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import ognl.OgnlContext;
@@ -40,9 +42,21 @@ public class DynamicContext {
 
   private final ContextMap bindings;
   private final StringBuilder sqlBuilder = new StringBuilder();
+  // the parsed #{} parameters of the sql, in order, when it is compiled
+  private final List<Map<String, String>> parameters;
   private int uniqueNumber = 0;
 
   public DynamicContext(Configuration configuration, Object parameterObject) {
+    this(configuration, parameterObject, false);
+  }
+
+  /**
+   * @param compiled whether text nodes append their <code>#{}</code> parameters as <code>?</code>, with
+   *          {@link #appendSql(String, List)}
+   * @since 3.4.7
+   */
+  public DynamicContext(Configuration configuration, Object parameterObject, boolean compiled) {
+    this.parameters = compiled ? new ArrayList<Map<String, String>>() : null;
     if (parameterObject != null && !(parameterObject instanceof Map)) {
       MetaObject metaObject = configuration.newMetaObject(parameterObject);
       bindings = new ContextMap(metaObject);
@@ -71,6 +85,34 @@ public class DynamicContext {
     sqlBuilder.append(" ");
   }
 
+  /**
+   * Appends a sql whose <code>#{}</code> parameters were replaced by <code>?</code>, with these parameters.
+   *
+   * @param parameters the parameters of the sql, parsed with
+   *          {@link org.apache.ibatis.builder.SqlSourceBuilder#parseParameters(String, List)}
+   * @since 3.4.7
+   */
+  public void appendSql(String sql, List<Map<String, String>> parameters) {
+    appendSql(sql);
+    this.parameters.addAll(parameters);
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public boolean isCompiled() {
+    return parameters != null;
+  }
+
+  /**
+   * Returns the parameters of the sql when it is compiled, <code>null</code> otherwise.
+   *
+   * @since 3.4.7
+   */
+  public List<Map<String, String>> getParameters() {
+    return parameters;
+  }
+
   public String getSql() {
     return sqlBuilder.toString().trim();
   }
@@ -15,11 +15,19 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
 import org.apache.ibatis.session.Configuration;
 
 /**
@@ -29,19 +37,31 @@ public class DynamicSqlSource implements SqlSource {
 
   private final Configuration configuration;
   private final SqlNode rootSqlNode;    // 动态sql的标签节点
+  private final boolean compiled;
+  // the parsed sql of the texts generated so far, created on first use
+  private volatile ConcurrentCache parsedSqlCache;
 
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
+    this(configuration, rootSqlNode, false);
+  }
+
+  /**
+   * @param compiled whether the nodes emit the sql with its parameters already replaced by <code>?</code> and parsed,
+   *          so that it is not parsed again after it is generated
+   * @since 3.4.7
+   */
+  public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode, boolean compiled) {
     this.configuration = configuration;
     this.rootSqlNode = rootSqlNode;
+    this.compiled = compiled;
   }
 
   @Override
   public BoundSql getBoundSql(Object parameterObject) {
-    DynamicContext context = new DynamicContext(configuration, parameterObject);
+    DynamicContext context = new DynamicContext(configuration, parameterObject, compiled);
     rootSqlNode.apply(context);     // 将sql片段拼接（期间判断动态sql的条件是否成立）
-    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
     Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+    SqlSource sqlSource = parse(context.getSql(), context.getParameters(), parameterType, context.getBindings());
     BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
     for (Map.Entry<String, Object> entry : context.getBindings().entrySet()) {
       boundSql.setAdditionalParameter(entry.getKey(), entry.getValue());
@@ -49,4 +69,132 @@ public class DynamicSqlSource implements SqlSource {
     return boundSql;
   }
 
+  /*
+   * Parses the generated sql, or reuses what it was parsed into for the same text and parameter type
+   * as long as the bindings the parameter mappings were typed from still have values of the same classes.
+   * A compiled sql has its parameters parsed already, they are part of its text.
+   */
+  private SqlSource parse(String sql, List<Map<String, String>> parameters, Class<?> parameterType, Map<String, Object> bindings) {
+    ConcurrentCache cache = getParsedSqlCache();
+    if (cache == null) {
+      return build(sql, parameters, parameterType, bindings);
+    }
+    CacheKey key = new CacheKey();
+    key.update(sql);
+    key.update(parameterType);
+    if (parameters != null) {
+      for (Map<String, String> parameter : parameters) {
+        key.update(parameter);
+      }
+    }
+    ParsedSql parsedSql = (ParsedSql) cache.getObject(key);
+    if (parsedSql != null && parsedSql.matches(bindings)) {
+      return parsedSql.sqlSource;
+    }
+    SqlSource sqlSource = build(sql, parameters, parameterType, bindings);
+    parsedSql = ParsedSql.of(configuration, sqlSource, bindings);
+    if (parsedSql != null) {
+      cache.putObject(key, parsedSql);
+    }
+    return sqlSource;
+  }
+
+  private SqlSource build(String sql, List<Map<String, String>> parameters, Class<?> parameterType, Map<String, Object> bindings) {
+    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+    if (parameters != null) {
+      return sqlSourceParser.build(sql, parameters, parameterType, bindings);
+    }
+    return sqlSourceParser.parse(sql, parameterType, bindings);
+  }
+
+  private ConcurrentCache getParsedSqlCache() {
+    ConcurrentCache cache = parsedSqlCache;
+    if (cache == null) {
+      int size = configuration.getDynamicSqlCacheSize();
+      if (size <= 0) {
+        return null;
+      }
+      // racing threads may each create one, only the last is kept
+      cache = new ConcurrentCache(DynamicSqlSource.class.getName());
+      cache.setSize(size);
+      parsedSqlCache = cache;
+    }
+    return cache;
+  }
+
+  /*
+   * A parsed sql and, for each parameter mapping, the binding its type was taken from and the class of its value.
+   */
+  private static final class ParsedSql {
+
+    // value class of a binding whose value was null
+    private static final Class<?> NULL_VALUE = Void.class;
+
+    final SqlSource sqlSource;
+    final String[] bindingNames;
+    // null where the mapping was not typed from a binding
+    final Class<?>[] bindingTypes;
+
+    private ParsedSql(SqlSource sqlSource, String[] bindingNames, Class<?>[] bindingTypes) {
+      this.sqlSource = sqlSource;
+      this.bindingNames = bindingNames;
+      this.bindingTypes = bindingTypes;
+    }
+
+    /*
+     * Returns null when the type of a mapping depends on more than the class of a binding.
+     */
+    static ParsedSql of(Configuration configuration, SqlSource sqlSource, Map<String, Object> bindings) {
+      List<ParameterMapping> parameterMappings = sqlSource.getBoundSql(null).getParameterMappings();
+      int size = parameterMappings.size();
+      String[] bindingNames = new String[size];
+      Class<?>[] bindingTypes = new Class<?>[size];
+      for (int i = 0; i < size; i++) {
+        // as SqlSourceBuilder asks the bindings for the type of the property
+        PropertyTokenizer prop = new PropertyTokenizer(parameterMappings.get(i).getProperty());
+        String name = prop.hasNext() ? prop.getIndexedName() : prop.getName();
+        bindingNames[i] = name;
+        if (!bindings.containsKey(name)) {
+          continue;
+        }
+        Object value = bindings.get(name);
+        if (value == null) {
+          bindingTypes[i] = NULL_VALUE;
+        } else if (prop.hasNext() ? isPlainBean(configuration, value) && !new PropertyTokenizer(prop.getChildren()).hasNext()
+            : prop.getIndex() == null) {
+          bindingTypes[i] = value.getClass();
+        } else {
+          return null;
+        }
+      }
+      return new ParsedSql(sqlSource, bindingNames, bindingTypes);
+    }
+
+    private static boolean isPlainBean(Configuration configuration, Object value) {
+      return !(value instanceof Map) && !(value instanceof Collection) && !(value instanceof ObjectWrapper)
+          && configuration.getObjectWrapperFactory().getClass() == DefaultObjectWrapperFactory.class;
+    }
+
+    boolean matches(Map<String, Object> bindings) {
+      for (int i = 0; i < bindingNames.length; i++) {
+        boolean bound = bindings.containsKey(bindingNames[i]);
+        if (bindingTypes[i] == null) {
+          if (bound) {
+            return false;
+          }
+        } else {
+          if (!bound) {
+            return false;
+          }
+          Object value = bindings.get(bindingNames[i]);
+          if ((value == null ? NULL_VALUE : value.getClass()) != bindingTypes[i]) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+  }
+
 }
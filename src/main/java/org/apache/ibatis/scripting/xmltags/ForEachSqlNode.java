@@ -15,6 +15,9 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.parsing.GenericTokenParser;
@@ -165,6 +168,42 @@ public class ForEachSqlNode implements SqlNode {
       delegate.appendSql(parser.parse(sql));
     }
 
+    @Override
+    public void appendSql(String sql, List<Map<String, String>> parameters) {
+      List<Map<String, String>> itemizedParameters = new ArrayList<Map<String, String>>(parameters.size());
+      for (Map<String, String> parameter : parameters) {
+        String property = parameter.get("property");
+        String newProperty = itemizeProperty(property, item);
+        if (newProperty == null) {
+          newProperty = itemizeProperty(property, itemIndex);
+        }
+        if (newProperty == null) {
+          itemizedParameters.add(parameter);
+        } else {
+          Map<String, String> itemizedParameter = new HashMap<String, String>(parameter);
+          itemizedParameter.put("property", newProperty);
+          itemizedParameters.add(itemizedParameter);
+        }
+      }
+      delegate.appendSql(sql, itemizedParameters);
+    }
+
+    /*
+     * Same as the replacement of the #{} contents above, on their parsed property. Returns null when it does not refer to name.
+     */
+    private String itemizeProperty(String property, String name) {
+      if (property != null && name != null && property.startsWith(name)
+          && (property.length() == name.length() || property.charAt(name.length()) == '.')) {
+        return itemizeItem(name, index) + property.substring(name.length());
+      }
+      return null;
+    }
+
+    @Override
+    public boolean isCompiled() {
+      return delegate.isCompiled();
+    }
+
     @Override
     public int getUniqueNumber() {
       return delegate.getUniqueNumber();
@@ -201,11 +240,26 @@ public class ForEachSqlNode implements SqlNode {
 
     @Override
     public void appendSql(String sql) {
+      applyPrefix(sql);
+      delegate.appendSql(sql);
+    }
+
+    @Override
+    public void appendSql(String sql, List<Map<String, String>> parameters) {
+      applyPrefix(sql);
+      delegate.appendSql(sql, parameters);
+    }
+
+    private void applyPrefix(String sql) {
       if (!prefixApplied && sql != null && sql.trim().length() > 0) {
         delegate.appendSql(prefix);
         prefixApplied = true;
       }
-      delegate.appendSql(sql);
+    }
+
+    @Override
+    public boolean isCompiled() {
+      return delegate.isCompiled();
     }
 
     @Override
@@ -15,11 +15,20 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.builder.SqlSourceBuilder;
+
 /**
  * @author Clinton Begin
  */
 public class StaticTextSqlNode implements SqlNode {
   private final String text;
+  // the text with its #{} parameters replaced by ?, for compiled contexts
+  private volatile CompiledText compiledText;
 
   public StaticTextSqlNode(String text) {
     this.text = text;
@@ -27,8 +36,38 @@ public class StaticTextSqlNode implements SqlNode {
 
   @Override
   public boolean apply(DynamicContext context) {
+    if (context.isCompiled()) {
+      CompiledText compiled = compile();
+      context.appendSql(compiled.sql, compiled.parameters);
+      return true;
+    }
     context.appendSql(text);    // sql片段拼接
     return true;
   }
 
+  /*
+   * Parses the #{} parameters of the text, once
+   */
+  CompiledText compile() {
+    CompiledText compiled = compiledText;
+    if (compiled == null) {
+      compiled = new CompiledText(text);
+      compiledText = compiled;
+    }
+    return compiled;
+  }
+
+  static final class CompiledText {
+
+    final String sql;
+    final List<Map<String, String>> parameters;
+
+    CompiledText(String text) {
+      List<Map<String, String>> parameters = new ArrayList<Map<String, String>>();
+      this.sql = SqlSourceBuilder.parseParameters(text, parameters);
+      this.parameters = Collections.unmodifiableList(parameters);
+    }
+
+  }
+
 }
\ No newline at end of file
@@ -15,8 +15,12 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
+import org.apache.ibatis.builder.SqlSourceBuilder;
 import org.apache.ibatis.parsing.GenericTokenParser;
 import org.apache.ibatis.parsing.TokenHandler;
 import org.apache.ibatis.scripting.ScriptingException;
@@ -53,7 +57,14 @@ public class TextSqlNode implements SqlNode {
   @Override
   public boolean apply(DynamicContext context) {
     GenericTokenParser parser = createParser(new BindingTokenParser(context, injectionFilter));
-    context.appendSql(parser.parse(text));
+    String sql = parser.parse(text);
+    if (context.isCompiled()) {
+      // the substituted values may hold parameters too
+      List<Map<String, String>> parameters = new ArrayList<Map<String, String>>();
+      context.appendSql(SqlSourceBuilder.parseParameters(sql, parameters), parameters);
+    } else {
+      context.appendSql(sql);
+    }
     return true;
   }
   
@@ -75,6 +75,7 @@ public class TrimSqlNode implements SqlNode {
     private boolean prefixApplied;
     private boolean suffixApplied;
     private StringBuilder sqlBuffer;
+    private List<Map<String, String>> parameters;
 
     public FilteredDynamicContext(DynamicContext delegate) {
       super(configuration, null);
@@ -82,6 +83,7 @@ public class TrimSqlNode implements SqlNode {
       this.prefixApplied = false;
       this.suffixApplied = false;
       this.sqlBuffer = new StringBuilder();
+      this.parameters = delegate.isCompiled() ? new ArrayList<Map<String, String>>() : null;
     }
 
     /**
@@ -94,7 +96,11 @@ public class TrimSqlNode implements SqlNode {
         applyPrefix(sqlBuffer, trimmedUppercaseSql);
         applySuffix(sqlBuffer, trimmedUppercaseSql);
       }
-      delegate.appendSql(sqlBuffer.toString());   // 拼接sql
+      if (parameters != null) {
+        delegate.appendSql(sqlBuffer.toString(), parameters);
+      } else {
+        delegate.appendSql(sqlBuffer.toString());   // 拼接sql
+      }
     }
 
     @Override
@@ -117,6 +123,17 @@ public class TrimSqlNode implements SqlNode {
       sqlBuffer.append(sql);
     }
 
+    @Override
+    public void appendSql(String sql, List<Map<String, String>> parameters) {
+      sqlBuffer.append(sql);
+      this.parameters.addAll(parameters);
+    }
+
+    @Override
+    public boolean isCompiled() {
+      return parameters != null;
+    }
+
     @Override
     public String getSql() {
       return delegate.getSql();
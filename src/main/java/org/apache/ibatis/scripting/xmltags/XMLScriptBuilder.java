@@ -38,6 +38,7 @@ public class XMLScriptBuilder extends BaseBuilder {
   private boolean isDynamic;
   private final Class<?> parameterType;
   private final Map<String, NodeHandler> nodeHandlerMap = new HashMap<String, NodeHandler>();   // K：动态sql标签的名称，V：对应标签的类型处理器
+  private final List<StaticTextSqlNode> staticTextSqlNodes = new ArrayList<StaticTextSqlNode>();
 
   public XMLScriptBuilder(Configuration configuration, XNode context) {
     this(configuration, context, null);
@@ -72,7 +73,13 @@ public class XMLScriptBuilder extends BaseBuilder {
     MixedSqlNode rootSqlNode = parseDynamicTags(context);   // 解析动态标签。对象内部存储sql片段的集合
     SqlSource sqlSource = null;
     if (isDynamic) {    // 如果是动态SQL
-      sqlSource = new DynamicSqlSource(configuration, rootSqlNode);   // 这里是动态sqlSource的对象
+      if (configuration.isCompileDynamicSql()) {
+        // parses the parameters of the texts now, once
+        for (StaticTextSqlNode staticTextSqlNode : staticTextSqlNodes) {
+          staticTextSqlNode.compile();
+        }
+      }
+      sqlSource = new DynamicSqlSource(configuration, rootSqlNode, configuration.isCompileDynamicSql());   // 这里是动态sqlSource的对象
     } else {
       // 根据原始sql字符串，解析 #{} 的入参等信息，创建RawSqlSource对象
       sqlSource = new RawSqlSource(configuration, rootSqlNode, parameterType);
@@ -98,7 +105,9 @@ public class XMLScriptBuilder extends BaseBuilder {
           contents.add(textSqlNode);
           isDynamic = true;
         } else {
-          contents.add(new StaticTextSqlNode(data));
+          StaticTextSqlNode staticTextSqlNode = new StaticTextSqlNode(data);
+          contents.add(staticTextSqlNode);
+          staticTextSqlNodes.add(staticTextSqlNode);
         }
       } else if (child.getNode().getNodeType() == Node.ELEMENT_NODE) { // issue #628
         String nodeName = child.getNode().getNodeName();
@@ -0,0 +1,170 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.binding.AsyncMapperProxy;
+
+/**
+ * Runs statements on an {@link ExecutorService} and returns their results as {@link Future}s.
+ * <p>
+ * An {@link SqlSession} must not be shared between threads, so each call opens a session of its own on the
+ * thread that runs it, commits it if the statement changed the database and closes it, which returns the
+ * connection before the future completes. Statements that must share a transaction are run together with
+ * {@link #execute(SqlSessionCallback)}.
+ * <p>
+ * None of them is part of the transaction of another session, even one of the same thread: mapper methods declared
+ * to return a {@link Future} can only be called on a mapper of {@link #getMapper(Class)}, which runs them the same way.
+ * <p>
+ * Unless another one is given, the executor is the one of {@link Configuration#getAsyncExecutor()}.
+ *
+ * @since 3.4.7
+ */
+public class AsyncSqlSession {
+
+  private final SqlSessionFactory sqlSessionFactory;
+  private final ExecutorService executorService;
+
+  public AsyncSqlSession(SqlSessionFactory sqlSessionFactory) {
+    this(sqlSessionFactory, sqlSessionFactory.getConfiguration().getAsyncExecutor());
+  }
+
+  public AsyncSqlSession(SqlSessionFactory sqlSessionFactory, ExecutorService executorService) {
+    this.sqlSessionFactory = sqlSessionFactory;
+    this.executorService = executorService;
+  }
+
+  public <T> Future<T> selectOne(String statement) {
+    return selectOne(statement, null);
+  }
+
+  public <T> Future<T> selectOne(final String statement, final Object parameter) {
+    return execute(new SqlSessionCallback<T>() {
+      @Override
+      public T doInSession(SqlSession sqlSession) {
+        return sqlSession.<T>selectOne(statement, parameter);
+      }
+    });
+  }
+
+  public <E> Future<List<E>> selectList(String statement) {
+    return selectList(statement, null);
+  }
+
+  public <E> Future<List<E>> selectList(String statement, Object parameter) {
+    return selectList(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  public <E> Future<List<E>> selectList(final String statement, final Object parameter, final RowBounds rowBounds) {
+    return execute(new SqlSessionCallback<List<E>>() {
+      @Override
+      public List<E> doInSession(SqlSession sqlSession) {
+        return sqlSession.<E>selectList(statement, parameter, rowBounds);
+      }
+    });
+  }
+
+  public <K, V> Future<Map<K, V>> selectMap(String statement, String mapKey) {
+    return selectMap(statement, null, mapKey);
+  }
+
+  public <K, V> Future<Map<K, V>> selectMap(String statement, Object parameter, String mapKey) {
+    return selectMap(statement, parameter, mapKey, RowBounds.DEFAULT);
+  }
+
+  public <K, V> Future<Map<K, V>> selectMap(final String statement, final Object parameter, final String mapKey,
+      final RowBounds rowBounds) {
+    return execute(new SqlSessionCallback<Map<K, V>>() {
+      @Override
+      public Map<K, V> doInSession(SqlSession sqlSession) {
+        return sqlSession.<K, V>selectMap(statement, parameter, mapKey, rowBounds);
+      }
+    });
+  }
+
+  public Future<Integer> insert(String statement) {
+    return insert(statement, null);
+  }
+
+  public Future<Integer> insert(final String statement, final Object parameter) {
+    return execute(new SqlSessionCallback<Integer>() {
+      @Override
+      public Integer doInSession(SqlSession sqlSession) {
+        return sqlSession.insert(statement, parameter);
+      }
+    });
+  }
+
+  public Future<Integer> update(String statement) {
+    return update(statement, null);
+  }
+
+  public Future<Integer> update(final String statement, final Object parameter) {
+    return execute(new SqlSessionCallback<Integer>() {
+      @Override
+      public Integer doInSession(SqlSession sqlSession) {
+        return sqlSession.update(statement, parameter);
+      }
+    });
+  }
+
+  public Future<Integer> delete(String statement) {
+    return delete(statement, null);
+  }
+
+  public Future<Integer> delete(final String statement, final Object parameter) {
+    return execute(new SqlSessionCallback<Integer>() {
+      @Override
+      public Integer doInSession(SqlSession sqlSession) {
+        return sqlSession.delete(statement, parameter);
+      }
+    });
+  }
+
+  /**
+   * Returns a mapper whose methods, which must all return a {@link Future}, each run in a session of their own.
+   */
+  public <T> T getMapper(Class<T> type) {
+    return AsyncMapperProxy.newInstance(this, type, sqlSessionFactory.getConfiguration());
+  }
+
+  /*
+   * Runs the callback in one session and transaction, committed when it returns and rolled back when it throws.
+   * Mappers got from the session run their statements in it, and cannot run those returning a Future.
+   */
+  public <T> Future<T> execute(final SqlSessionCallback<T> callback) {
+    return executorService.submit(new Callable<T>() {
+      @Override
+      public T call() throws Exception {
+        SqlSession sqlSession = sqlSessionFactory.openSession();
+        try {
+          T result = callback.doInSession(sqlSession);
+          sqlSession.commit();
+          return result;
+        } finally {
+          // rolls back unless committed
+          sqlSession.close();
+        }
+      }
+    });
+  }
+
+}
@@ -15,6 +15,8 @@
  */
 package org.apache.ibatis.session;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -24,6 +26,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
@@ -31,10 +41,13 @@ import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheLoadCoalescer;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ConcurrentCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
@@ -48,6 +61,11 @@ import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
+import org.apache.ibatis.executor.pagination.LimitOffsetDialect;
+import org.apache.ibatis.executor.pagination.OffsetFetchDialect;
+import org.apache.ibatis.executor.pagination.Pagination;
+import org.apache.ibatis.executor.pagination.PaginationDialect;
+import org.apache.ibatis.executor.pagination.RownumDialect;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
@@ -109,6 +127,15 @@ public class Configuration {
   protected boolean callSettersOnNulls;
   protected boolean useActualParamName = true;    // 使用了实际上的参数名称
   protected boolean returnInstanceForEmptyRow;
+  protected boolean coalesceCacheMisses;
+  protected boolean compactCacheKeys;
+  protected boolean compileResultMaps;
+  protected boolean physicalPagination;
+  protected int nestedSelectBatchSize;
+  protected int lazyLoadBatchSize;
+  protected int dynamicSqlCacheSize = 64;
+  protected boolean compileDynamicSql;
+  protected int asyncExecutorThreads = 10;
 
   protected String logPrefix;
   protected Class <? extends Log> logImpl;
@@ -129,6 +156,10 @@ public class Configuration {
 
   protected boolean lazyLoadingEnabled = false;   // 懒加载开关
   protected ProxyFactory proxyFactory = new JavassistProxyFactory(); // #224 Using internal Javassist instead of OGNL
+  protected PaginationDialect paginationDialect;
+  protected volatile DetectedPaginationDialect detectedPaginationDialect;
+  protected volatile ExecutorService asyncExecutor;
+  private final Object asyncExecutorLock = new Object();
 
   protected String databaseId;
   /**
@@ -140,6 +171,9 @@ public class Configuration {
   protected Class<?> configurationFactory;
 
   protected final MapperRegistry mapperRegistry = new MapperRegistry(this);
+  protected final CacheLoadCoalescer cacheLoadCoalescer = new CacheLoadCoalescer();
+  protected final Cache mappingPlanCache = new ConcurrentCache("mappingPlanCache");
+  protected final ConcurrentMap<String, MappedStatement> countStatements = new ConcurrentHashMap<String, MappedStatement>();
   protected final InterceptorChain interceptorChain = new InterceptorChain();
   protected final TypeHandlerRegistry typeHandlerRegistry = new TypeHandlerRegistry();
   protected final TypeAliasRegistry typeAliasRegistry = new TypeAliasRegistry();
@@ -193,8 +227,14 @@ public class Configuration {
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+    typeAliasRegistry.registerAlias("CONCURRENT", ConcurrentCache.class);
+
+    typeAliasRegistry.registerAlias("LIMIT_OFFSET", LimitOffsetDialect.class);
+    typeAliasRegistry.registerAlias("OFFSET_FETCH", OffsetFetchDialect.class);
+    typeAliasRegistry.registerAlias("ROWNUM", RownumDialect.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
+    typeAliasRegistry.registerAlias("WEIGHTED", WeightedCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
 
@@ -427,6 +467,245 @@ public class Configuration {
     this.cacheEnabled = cacheEnabled;
   }
 
+  /**
+   * @since 3.4.7
+   */
+  public boolean isCoalesceCacheMisses() {
+    return coalesceCacheMisses;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setCoalesceCacheMisses(boolean coalesceCacheMisses) {
+    this.coalesceCacheMisses = coalesceCacheMisses;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public boolean isCompactCacheKeys() {
+    return compactCacheKeys;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setCompactCacheKeys(boolean compactCacheKeys) {
+    this.compactCacheKeys = compactCacheKeys;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public boolean isCompileResultMaps() {
+    return compileResultMaps;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setCompileResultMaps(boolean compileResultMaps) {
+    this.compileResultMaps = compileResultMaps;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public boolean isPhysicalPagination() {
+    return physicalPagination;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setPhysicalPagination(boolean physicalPagination) {
+    this.physicalPagination = physicalPagination;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public int getNestedSelectBatchSize() {
+    return nestedSelectBatchSize;
+  }
+
+  /**
+   * @param nestedSelectBatchSize the maximum number of nested selects loaded by one query, 0 to load them one by one
+   * @since 3.4.7
+   */
+  public void setNestedSelectBatchSize(int nestedSelectBatchSize) {
+    this.nestedSelectBatchSize = nestedSelectBatchSize;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public int getLazyLoadBatchSize() {
+    return lazyLoadBatchSize;
+  }
+
+  /**
+   * @param lazyLoadBatchSize the maximum number of results whose lazy property is loaded together, 0 to load them one by one
+   * @since 3.4.7
+   */
+  public void setLazyLoadBatchSize(int lazyLoadBatchSize) {
+    this.lazyLoadBatchSize = lazyLoadBatchSize;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public int getDynamicSqlCacheSize() {
+    return dynamicSqlCacheSize;
+  }
+
+  /**
+   * @param dynamicSqlCacheSize the number of parsed sql texts kept by each dynamic statement, 0 to parse them every time
+   * @since 3.4.7
+   */
+  public void setDynamicSqlCacheSize(int dynamicSqlCacheSize) {
+    this.dynamicSqlCacheSize = dynamicSqlCacheSize;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public boolean isCompileDynamicSql() {
+    return compileDynamicSql;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public void setCompileDynamicSql(boolean compileDynamicSql) {
+    this.compileDynamicSql = compileDynamicSql;
+  }
+
+  /**
+   * @since 3.4.7
+   */
+  public int getAsyncExecutorThreads() {
+    return asyncExecutorThreads;
+  }
+
+  /**
+   * @param asyncExecutorThreads the number of threads of the default async executor, read when it is created
+   * @since 3.4.7
+   */
+  public void setAsyncExecutorThreads(int asyncExecutorThreads) {
+    this.asyncExecutorThreads = asyncExecutorThreads;
+  }
+
+  /**
+   * Returns the executor running the statements of {@link AsyncSqlSession}s and of their mappers, unless they were
+   * given another one. Unless one is set, it is a pool of up to asyncExecutorThreads daemon threads created on first
+   * use, whose queue holds up to 100 statements per thread: past it, statements are rejected rather than queued
+   * without bounds while they wait for connections.
+   *
+   * @since 3.4.7
+   */
+  public ExecutorService getAsyncExecutor() {
+    ExecutorService executor = asyncExecutor;
+    if (executor == null) {
+      synchronized (asyncExecutorLock) {
+        executor = asyncExecutor;
+        if (executor == null) {
+          ThreadPoolExecutor threadPool = new ThreadPoolExecutor(asyncExecutorThreads, asyncExecutorThreads, 60L, TimeUnit.SECONDS,
+              new LinkedBlockingQueue<Runnable>(asyncExecutorThreads * 100), new ThreadFactory() {
+                private final AtomicInteger threadNumber = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                  Thread thread = new Thread(runnable, "mybatis-async-" + threadNumber.incrementAndGet());
+                  thread.setDaemon(true);
+                  return thread;
+                }
+              });
+          // idle threads end, as those of a cached pool
+          threadPool.allowCoreThreadTimeOut(true);
+          executor = threadPool;
+          asyncExecutor = executor;
+        }
+      }
+    }
+    return executor;
+  }
+
+  /**
+   * @param asyncExecutor the executor of asynchronous statements, which the caller shuts down
+   * @since 3.4.7
+   */
+  public void setAsyncExecutor(ExecutorService asyncExecutor) {
+    this.asyncExecutor = asyncExecutor;
+  }
+
+  /**
+   * Returns the dialect set, or else the one of the database id, or else the one already detected for the current
+   * environment.
+   *
+   * @return the dialect, or null when it is unknown or not detected yet
+   * @since 3.4.7
+   */
+  public PaginationDialect getPaginationDialect() {
+    if (paginationDialect != null) {
+      return paginationDialect;
+    }
+    PaginationDialect dialect = Pagination.getDialect(databaseId);
+    if (dialect != null) {
+      return dialect;
+    }
+    DetectedPaginationDialect detected = detectedPaginationDialect;
+    return detected != null && detected.environment == environment ? detected.dialect : null;
+  }
+
+  /**
+   * Returns the dialect as {@link #getPaginationDialect()} does, detecting it once per environment from the product
+   * name of the database of a connection that the caller already holds.
+   *
+   * @param connection a connection to the database of the current environment
+   * @return the dialect, or null when the database is unknown
+   * @since 3.4.7
+   */
+  public PaginationDialect getPaginationDialect(Connection connection) {
+    if (paginationDialect != null) {
+      return paginationDialect;
+    }
+    PaginationDialect dialect = Pagination.getDialect(databaseId);
+    if (dialect != null) {
+      return dialect;
+    }
+    DetectedPaginationDialect detected = detectedPaginationDialect;
+    if (detected != null && detected.environment == environment) {
+      return detected.dialect;
+    }
+    try {
+      dialect = Pagination.getDialect(connection.getMetaData().getDatabaseProductName());
+    } catch (SQLException e) {
+      // detected again on next use, rather than paging in memory for good
+      return null;
+    }
+    detectedPaginationDialect = new DetectedPaginationDialect(environment, dialect);
+    return dialect;
+  }
+
+  /**
+   * @param paginationDialect the dialect, or null to detect it
+   * @since 3.4.7
+   */
+  public void setPaginationDialect(PaginationDialect paginationDialect) {
+    this.paginationDialect = paginationDialect;
+  }
+
+  /**
+   * Holds the mapping plans built for the result sets of the statements, by result map and column signature.
+   *
+   * @since 3.4.7
+   */
+  public Cache getMappingPlanCache() {
+    return mappingPlanCache;
+  }
+
   public Integer getDefaultStatementTimeout() {
     return defaultStatementTimeout;
   }
@@ -638,7 +917,7 @@ public class Configuration {
     }
     // 如果缓存已启用，使用缓存的执行器对象
     if (cacheEnabled) {
-      executor = new CachingExecutor(executor);
+      executor = new CachingExecutor(executor, coalesceCacheMisses ? cacheLoadCoalescer : null);
     }
     // 根据配置的拦截器中拦截的方法，为目标对象（此处为Executor）创建反射对象，如果没有配置拦截器，则返回原对象
     executor = (Executor) interceptorChain.pluginAll(executor);
@@ -804,9 +1083,28 @@ public class Configuration {
     if (validateIncompleteStatements) {
       buildAllStatements();   // 检查是否有未完成处理的节点，再次尝试处理
     }
+    if (id.endsWith(Pagination.COUNT_STATEMENT_SUFFIX) && !mappedStatements.containsKey(id)) {
+      return getCountStatement(id);
+    }
     return mappedStatements.get(id);    // 根据方法名，从Map中获取到对应的映射SQL语句的类
   }
 
+  /*
+   * The statement counting the rows of a select statement, derived on first use
+   */
+  private MappedStatement getCountStatement(String id) {
+    MappedStatement countStatement = countStatements.get(id);
+    if (countStatement == null) {
+      MappedStatement ms = mappedStatements.get(id.substring(0, id.length() - Pagination.COUNT_STATEMENT_SUFFIX.length()));
+      countStatement = Pagination.createCountStatement(ms);
+      MappedStatement existing = countStatements.putIfAbsent(id, countStatement);
+      if (existing != null) {
+        countStatement = existing;
+      }
+    }
+    return countStatement;
+  }
+
   public Map<String, XNode> getSqlFragments() {
     return sqlFragments;
   }
@@ -849,6 +1147,9 @@ public class Configuration {
     if (validateIncompleteStatements) {
       buildAllStatements();
     }
+    if (statementName.endsWith(Pagination.COUNT_STATEMENT_SUFFIX) && !mappedStatements.containsKey(statementName)) {
+      return mappedStatements.containsKey(statementName.substring(0, statementName.length() - Pagination.COUNT_STATEMENT_SUFFIX.length()));
+    }
     return mappedStatements.containsKey(statementName);
   }
 
@@ -947,6 +1248,23 @@ public class Configuration {
     }
   }
 
+  /**
+   * The pagination dialect detected for an environment.
+   *
+   * @since 3.4.7
+   */
+  protected static final class DetectedPaginationDialect {
+
+    final Environment environment;
+    final PaginationDialect dialect;
+
+    DetectedPaginationDialect(Environment environment, PaginationDialect dialect) {
+      this.environment = environment;
+      this.dialect = dialect;
+    }
+
+  }
+
   protected static class StrictMap<V> extends HashMap<String, V> {
 
     private static final long serialVersionUID = -4950446264854982944L;
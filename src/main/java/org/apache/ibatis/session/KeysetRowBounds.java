@@ -0,0 +1,99 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Bounds of a page that starts after the last row of the previous page (keyset or seek pagination)
+ * instead of at an offset, so that deep pages cost as much as the first one.
+ * <p>
+ * The rows of the statement are filtered and ordered by the key columns, which must be column labels of the
+ * statement that identify its rows, and at most limit rows are returned. The first page is read with
+ * <code>new KeysetRowBounds(limit, "id")</code> and the next ones with
+ * <code>bounds.after(lastRow.getId())</code>.
+ *
+ * @since 3.4.7
+ */
+public class KeysetRowBounds extends RowBounds {
+
+  private static final Pattern COLUMN_LABEL = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*");
+
+  private final String[] columns;
+  private final Object[] lastValues;
+  private final boolean descending;
+
+  public KeysetRowBounds(int limit, String... columns) {
+    this(limit, false, columns);
+  }
+
+  public KeysetRowBounds(int limit, boolean descending, String... columns) {
+    this(limit, descending, checkColumns(columns), null);
+  }
+
+  private KeysetRowBounds(int limit, boolean descending, String[] columns, Object[] lastValues) {
+    super(NO_ROW_OFFSET, limit);
+    this.columns = columns;
+    this.descending = descending;
+    this.lastValues = lastValues;
+  }
+
+  /*
+   * The bounds of the page after the row with these values of the key columns
+   */
+  public KeysetRowBounds after(Object... lastValues) {
+    if (lastValues == null || lastValues.length != columns.length) {
+      throw new IllegalArgumentException("Expected " + columns.length + " values for the key columns " + Arrays.toString(columns) + ".");
+    }
+    for (Object value : lastValues) {
+      if (value == null) {
+        throw new IllegalArgumentException("The values of the key columns " + Arrays.toString(columns) + " must not be null.");
+      }
+    }
+    return new KeysetRowBounds(getLimit(), descending, columns, lastValues.clone());
+  }
+
+  public List<String> getColumns() {
+    return Arrays.asList(columns);
+  }
+
+  /*
+   * The values of the key columns in the last row of the previous page, or null for the first page
+   */
+  public List<Object> getLastValues() {
+    return lastValues == null ? null : Arrays.asList(lastValues);
+  }
+
+  public boolean isDescending() {
+    return descending;
+  }
+
+  private static String[] checkColumns(String[] columns) {
+    if (columns == null || columns.length == 0) {
+      throw new IllegalArgumentException("Keyset pagination requires at least one key column.");
+    }
+    for (String column : columns) {
+      // the labels are written into the statement
+      if (column == null || !COLUMN_LABEL.matcher(column).matches()) {
+        throw new IllegalArgumentException("Invalid key column '" + column + "'. Expected the label of a column of the statement.");
+      }
+    }
+    return columns.clone();
+  }
+
+}
@@ -20,8 +20,6 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.apache.ibatis.io.Resources;
 
@@ -98,18 +96,14 @@ public class UnknownTypeHandler extends BaseTypeHandler<Object> {
    */
   private TypeHandler<?> resolveTypeHandler(ResultSet rs, String column) {
     try {
-      Map<String,Integer> columnIndexLookup;
-      columnIndexLookup = new HashMap<String,Integer>();
       ResultSetMetaData rsmd = rs.getMetaData();
-      int count = rsmd.getColumnCount();
-      for (int i=1; i <= count; i++) {
-        String name = rsmd.getColumnName(i);
-        columnIndexLookup.put(name,i);
-      }
-      Integer columnIndex = columnIndexLookup.get(column);
       TypeHandler<?> handler = null;
-      if (columnIndex != null) {
-        handler = resolveTypeHandler(rsmd, columnIndex);
+      // the last column of that name; the result set handler resolves mapped columns once per result set shape instead
+      for (int i = rsmd.getColumnCount(); i >= 1 && column != null; i--) {
+        if (column.equals(rsmd.getColumnName(i))) {
+          handler = resolveTypeHandler(rsmd, i);
+          break;
+        }
       }
       if (handler == null || handler instanceof UnknownTypeHandler) {
         handler = OBJECT_TYPE_HANDLER;
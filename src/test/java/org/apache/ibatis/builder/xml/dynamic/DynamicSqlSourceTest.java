@@ -16,12 +16,15 @@
 package org.apache.ibatis.builder.xml.dynamic;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 import java.io.IOException;
 import java.io.Reader;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +32,7 @@ import java.util.Map;
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.scripting.xmltags.ChooseSqlNode;
 import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
 import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
@@ -36,6 +40,7 @@ import org.apache.ibatis.scripting.xmltags.IfSqlNode;
 import org.apache.ibatis.scripting.xmltags.MixedSqlNode;
 import org.apache.ibatis.scripting.xmltags.SetSqlNode;
 import org.apache.ibatis.scripting.xmltags.SqlNode;
+import org.apache.ibatis.scripting.xmltags.StaticTextSqlNode;
 import org.apache.ibatis.scripting.xmltags.TextSqlNode;
 import org.apache.ibatis.scripting.xmltags.WhereSqlNode;
 import org.apache.ibatis.session.Configuration;
@@ -364,6 +369,72 @@ public class DynamicSqlSourceTest extends BaseDataTest {
     assertEquals("__frch_u_0", boundSql.getParameterMappings().get(3).getProperty());
   }
 
+  @Test
+  public void shouldReuseParsedSqlOfSameText() throws Exception {
+    DynamicSqlSource source = createDynamicSqlSource(new TextSqlNode("SELECT * FROM BLOG"),
+        new ForEachSqlNode(new Configuration(), mixedContents(
+            new TextSqlNode("#{item}")), "array", null, "item", "WHERE id in (", ")", ","));
+    BoundSql first = source.getBoundSql(Collections.singletonMap("array", new Integer[] { 1, 2 }));
+    BoundSql second = source.getBoundSql(Collections.singletonMap("array", new Integer[] { 3, 4 }));
+    BoundSql third = source.getBoundSql(Collections.singletonMap("array", new Integer[] { 5, 6, 7 }));
+    assertEquals("SELECT * FROM BLOG WHERE id in (  ? , ? )", second.getSql());
+    assertSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals(Integer.valueOf(4), second.getAdditionalParameter("__frch_item_1"));
+    assertEquals(3, third.getParameterMappings().size());
+  }
+
+  @Test
+  public void shouldParseSameTextAgainWhenBindingsChangeType() throws Exception {
+    DynamicSqlSource source = createDynamicSqlSource(new TextSqlNode("SELECT * FROM BLOG"),
+        new ForEachSqlNode(new Configuration(), mixedContents(
+            new TextSqlNode("#{item}")), "array", null, "item", "WHERE id in (", ")", ","));
+    BoundSql integers = source.getBoundSql(Collections.singletonMap("array", new Object[] { 1 }));
+    BoundSql strings = source.getBoundSql(Collections.singletonMap("array", new Object[] { "1" }));
+    assertEquals(integers.getSql(), strings.getSql());
+    assertEquals(Integer.class, integers.getParameterMappings().get(0).getJavaType());
+    assertEquals(String.class, strings.getParameterMappings().get(0).getJavaType());
+  }
+
+  @Test
+  public void shouldParseEveryTimeWithoutCache() throws Exception {
+    DynamicSqlSource source = createDynamicSqlSource(new TextSqlNode("SELECT * FROM BLOG WHERE id = #{id}"));
+    Bean bean = new Bean("1");
+    assertSame(source.getBoundSql(bean).getParameterMappings(), source.getBoundSql(bean).getParameterMappings());
+    Configuration configuration = new Configuration();
+    configuration.setDynamicSqlCacheSize(0);
+    source = new DynamicSqlSource(configuration, mixedContents(new TextSqlNode("SELECT * FROM BLOG WHERE id = #{id}")));
+    assertNotSame(source.getBoundSql(bean).getParameterMappings(), source.getBoundSql(bean).getParameterMappings());
+  }
+
+  @Test
+  public void shouldBuildSameSqlAndParametersWhenCompiled() throws Exception {
+    final Map<String, Object> param = new HashMap<String, Object>();
+    param.put("ids", Arrays.asList(new Bean("1"), new Bean("2")));
+    param.put("name", "jim");
+    param.put("condition", "name = #{name}");
+    SqlNode root = mixedContents(
+        new StaticTextSqlNode("SELECT * FROM BLOG"),
+        new WhereSqlNode(new Configuration(), mixedContents(
+            new IfSqlNode(mixedContents(new StaticTextSqlNode(" AND author = #{name,jdbcType=VARCHAR} ")), "name != null"),
+            new IfSqlNode(mixedContents(new TextSqlNode(" OR ${condition} ")), "condition != null"),
+            new ForEachSqlNode(new Configuration(), mixedContents(new StaticTextSqlNode(" #{i} = #{id.id} ")), "ids", "i", "id", "OR (", ")", "AND"))));
+    BoundSql interpreted = new DynamicSqlSource(new Configuration(), root).getBoundSql(param);
+    BoundSql compiled = new DynamicSqlSource(new Configuration(), root, true).getBoundSql(param);
+        assertEquals(interpreted.getSql(), compiled.getSql());
+    assertEquals("SELECT * FROM BLOG WHERE  author = ?  OR name = ? OR ( ? = ? AND ? = ? )", compiled.getSql());
+    assertEquals(interpreted.getParameterMappings().size(), compiled.getParameterMappings().size());
+    for (int i = 0; i < interpreted.getParameterMappings().size(); i++) {
+      ParameterMapping expected = interpreted.getParameterMappings().get(i);
+      ParameterMapping actual = compiled.getParameterMappings().get(i);
+      assertEquals(expected.getProperty(), actual.getProperty());
+      assertEquals(expected.getJavaType(), actual.getJavaType());
+      assertEquals(expected.getJdbcType(), actual.getJdbcType());
+      assertEquals(expected.getTypeHandler().getClass(), actual.getTypeHandler().getClass());
+      assertEquals(interpreted.getAdditionalParameter(expected.getProperty()), compiled.getAdditionalParameter(actual.getProperty()));
+    }
+    assertEquals("__frch_id_1.id", compiled.getParameterMappings().get(5).getProperty());
+  }
+
   private DynamicSqlSource createDynamicSqlSource(SqlNode... contents) throws IOException, SQLException {
     createBlogDataSource();
     final String resource = "org/apache/ibatis/builder/MapperConfig.xml";
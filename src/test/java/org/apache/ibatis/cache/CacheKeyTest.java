@@ -90,6 +90,56 @@ public class CacheKeyTest {
     assertTrue(key1.equals(key2));
   }
 
+  @Test
+  public void shouldGrowBeyondTheExpectedUpdateCount() {
+    CacheKey key1 = new CacheKey(1);
+    CacheKey key2 = new CacheKey();
+    for (int i = 0; i < 100; i++) {
+      key1.update(i);
+      key2.update(i);
+    }
+    assertEquals(100, key1.getUpdateCount());
+    assertEquals(key1, key2);
+    assertEquals(key1.hashCode(), key2.hashCode());
+  }
+
+  @Test
+  public void shouldEqualTheSameKeyOnceCompact() throws Exception {
+    Object[] objects = new Object[] { "select * from t where id in (?, ?)", "caf\u00e9", 1, 2L, (short) 3, (byte) 4,
+        true, 'c', 1.5f, 2.5d, new byte[] { 1, 2 }, null, 3 };
+    CacheKey compact = new CacheKey(objects);
+    CacheKey key = new CacheKey(objects);
+    assertTrue(compact.compact());
+    assertEquals(key, compact);
+    assertEquals(compact, key);
+    assertEquals(key.hashCode(), compact.hashCode());
+    assertEquals(key.toString(), compact.toString());
+    assertEquals(key, serialize(compact));
+    CacheKey other = new CacheKey(objects);
+    other.update(4);
+    assertFalse(compact.equals(other));
+    compact.update(4);
+    assertEquals(other, compact);
+    assertEquals(compact, compact.clone());
+  }
+
+  @Test
+  public void shouldNotConfuseTypesOnceCompact() {
+    CacheKey intKey = new CacheKey(new Object[] { 1 });
+    CacheKey longKey = new CacheKey(new Object[] { 1L });
+    intKey.compact();
+    longKey.compact();
+    assertFalse(intKey.equals(longKey));
+    assertFalse(intKey.equals(new CacheKey(new Object[] { 1L })));
+  }
+
+  @Test
+  public void shouldNotCompactOtherTypes() {
+    CacheKey key = new CacheKey(new Object[] { 1, new Date(0) });
+    assertFalse(key.compact());
+    assertEquals(new CacheKey(new Object[] { 1, new Date(0) }), key);
+  }
+
   @Test (expected = NotSerializableException.class)
   public void serializationExceptionTest() throws Exception {
     CacheKey cacheKey = new CacheKey();
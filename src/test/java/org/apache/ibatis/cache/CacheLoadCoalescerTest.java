@@ -0,0 +1,224 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.Test;
+
+public class CacheLoadCoalescerTest {
+
+  private final Cache cache = new PerpetualCache("default");
+
+  @Test
+  public void shouldShareOneLoadBetweenConcurrentMisses() throws Exception {
+    final CacheLoadCoalescer coalescer = new CacheLoadCoalescer();
+    final AtomicInteger calls = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch started = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+      futures.add(executor.submit(loadTask(coalescer, calls, started, release)));
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      for (int i = 0; i < 3; i++) {
+        futures.add(executor.submit(loadTask(coalescer, calls, started, release)));
+      }
+      Thread.sleep(100);
+      release.countDown();
+      List<String> first = futures.get(0).get();
+      for (Future<List<String>> future : futures) {
+        List<String> result = future.get();
+        assertEquals(first, result);
+      }
+      assertNotSame(first, futures.get(1).get());
+      assertEquals(1, calls.get());
+      assertEquals(0, coalescer.getLoadCount());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldNotShareTheChangesOfTheLoadingSession() throws Exception {
+    final CacheLoadCoalescer coalescer = new CacheLoadCoalescer();
+    final AtomicInteger calls = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch started = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<List<String>> loading = executor.submit(new Callable<List<String>>() {
+        @Override
+        public List<String> call() throws Exception {
+          List<String> result = loadTask(coalescer, calls, started, release).call();
+          result.clear();
+          result.add("changed");
+          return result;
+        }
+      });
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      Future<List<String>> waiting = executor.submit(loadTask(coalescer, calls, started, release));
+      Thread.sleep(100);
+      release.countDown();
+      assertEquals("changed", loading.get().get(0));
+      List<String> shared = waiting.get();
+      assertEquals(1, calls.get());
+      assertEquals(1, shared.size());
+      assertNotEquals("changed", shared.get(0));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldLoadAgainOnceTheLoadCompleted() throws Exception {
+    CacheLoadCoalescer coalescer = new CacheLoadCoalescer();
+    AtomicInteger calls = new AtomicInteger();
+    CountDownLatch released = new CountDownLatch(0);
+    coalescer.load(cache, key(1), loadTask(coalescer, calls, new CountDownLatch(1), released));
+    coalescer.load(cache, key(1), loadTask(coalescer, calls, new CountDownLatch(1), released));
+    assertEquals(2, calls.get());
+    assertEquals(0, coalescer.getLoadCount());
+  }
+
+  @Test
+  public void shouldLetWaitersLoadWhenTheLoadFails() throws Exception {
+    final CacheLoadCoalescer coalescer = new CacheLoadCoalescer();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Object> failing = executor.submit(new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+          return coalescer.load(cache, key(1), new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+              started.countDown();
+              release.await();
+              throw new IllegalStateException("load failed");
+            }
+          });
+        }
+      });
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      Future<Object> waiting = executor.submit(new Callable<Object>() {
+        @Override
+        public Object call() throws Exception {
+          return coalescer.load(cache, key(1), new Callable<Object>() {
+            @Override
+            public Object call() {
+              return "own load";
+            }
+          });
+        }
+      });
+      Thread.sleep(100);
+      release.countDown();
+      try {
+        failing.get();
+        fail("Should have failed");
+      } catch (Exception e) {
+        assertTrue(e.getCause() instanceof IllegalStateException);
+      }
+      assertEquals("own load", waiting.get());
+      assertEquals(0, coalescer.getLoadCount());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldRunOwnLoadWhenTheLoadTakesTooLong() throws Exception {
+    final CacheLoadCoalescer coalescer = new CacheLoadCoalescer(50);
+    final AtomicInteger calls = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(1);
+    try {
+      Future<List<String>> blocked = executor.submit(loadTask(coalescer, calls, started, release));
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      // the load in progress waits for this thread, as it would for a lock this session holds
+      Object result = coalescer.load(cache, key(1), new Callable<Object>() {
+        @Override
+        public Object call() {
+          return "own load";
+        }
+      });
+      assertEquals("own load", result);
+      release.countDown();
+      assertEquals(1, blocked.get().size());
+      assertEquals(0, coalescer.getLoadCount());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldNotWaitInNestedLoads() throws Exception {
+    final CacheLoadCoalescer coalescer = new CacheLoadCoalescer();
+    Object result = coalescer.load(cache, key(1), new Callable<Object>() {
+      @Override
+      public Object call() throws Exception {
+        // the same key, as a circular nested select would query it
+        return coalescer.load(cache, key(1), new Callable<Object>() {
+          @Override
+          public Object call() {
+            return "nested";
+          }
+        });
+      }
+    });
+    assertEquals("nested", result);
+    assertEquals(0, coalescer.getLoadCount());
+  }
+
+  private static CacheKey key(int id) {
+    return new CacheKey(new Object[] { "select", id });
+  }
+
+  private Callable<List<String>> loadTask(final CacheLoadCoalescer coalescer, final AtomicInteger calls,
+      final CountDownLatch started, final CountDownLatch release) {
+    return new Callable<List<String>>() {
+      @Override
+      public List<String> call() throws Exception {
+        return coalescer.load(cache, key(1), new Callable<List<String>>() {
+          @Override
+          public List<String> call() throws Exception {
+            calls.incrementAndGet();
+            started.countDown();
+            release.await();
+            List<String> rows = new ArrayList<String>();
+            rows.add("row");
+            return rows;
+          }
+        });
+      }
+    };
+  }
+
+}
@@ -0,0 +1,151 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.cache.impl.ConcurrentCache;
+import org.junit.Test;
+
+public class ConcurrentCacheTest {
+
+  @Test
+  public void shouldRemoveLeastRecentlyUsedItemInBeyondFiveEntries() {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setSize(5);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(0, cache.getObject(0));
+    cache.putObject(5, 5);
+    assertNull(cache.getObject(1));
+    assertEquals(0, cache.getObject(0));
+    assertEquals(5, cache.getSize());
+  }
+
+  @Test
+  public void shouldNeverExceedItsSize() {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setSize(1000);
+    for (int i = 0; i < 100000; i++) {
+      cache.putObject(i, i);
+      if (i % 3 == 0) {
+        cache.getObject(i / 2);
+      }
+    }
+    assertTrue(cache.getSize() <= 1000);
+    assertTrue(cache.getSize() > 900);
+  }
+
+  @Test
+  public void shouldKeepFrequentlyReadItems() {
+    ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setSize(1024);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject("hot" + i, i);
+    }
+    int hits = 0;
+    for (int i = 0; i < 10000; i++) {
+      cache.putObject("cold" + i, i);
+      if (cache.getObject("hot" + (i % 100)) != null) {
+        hits++;
+      }
+    }
+    assertTrue("hits: " + hits, hits > 9000);
+  }
+
+  @Test
+  public void shouldSupportNullKeysAndValues() {
+    Cache cache = new ConcurrentCache("default");
+    cache.putObject(null, "null key");
+    cache.putObject("null value", null);
+    assertEquals("null key", cache.getObject(null));
+    assertNull(cache.getObject("null value"));
+    assertEquals(2, cache.getSize());
+  }
+
+  @Test
+  public void shouldRemoveItemOnDemand() {
+    Cache cache = new ConcurrentCache("default");
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    assertEquals(0, cache.removeObject(0));
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() {
+    Cache cache = new ConcurrentCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldStayConsistentUnderConcurrentAccess() throws Exception {
+    final ConcurrentCache cache = new ConcurrentCache("default");
+    cache.setSize(256);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < 8; t++) {
+        final int thread = t;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() {
+            for (int i = 0; i < 20000; i++) {
+              int key = (i * 31 + thread) % 1000;
+              if (i % 4 == 0) {
+                cache.putObject(key, key);
+              } else if (i % 97 == 0) {
+                cache.removeObject(key);
+              } else {
+                Object value = cache.getObject(key);
+                assertTrue(value == null || value.equals(key));
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertTrue(cache.getSize() <= 256);
+    for (int i = 0; i < 2000; i++) {
+      cache.putObject("k" + i, i);
+    }
+    assertEquals(256, cache.getSize());
+  }
+
+}
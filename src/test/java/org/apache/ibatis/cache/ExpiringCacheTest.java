@@ -0,0 +1,132 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class ExpiringCacheTest {
+
+  @Test
+  public void shouldExpireEachObjectAfterWrite() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("DefaultCache"));
+    cache.setExpireAfterWrite(200);
+    cache.putObject("old", "old");
+    Thread.sleep(120);
+    cache.putObject("new", "new");
+    assertEquals("old", cache.getObject("old"));
+    Thread.sleep(120);
+    assertNull(cache.getObject("old"));
+    assertEquals("new", cache.getObject("new"));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldNotExpireAnObjectPutAgainWhileBeingRead() throws Exception {
+    final ExpiringCache[] cache = new ExpiringCache[1];
+    final Object[] readDuringPut = new Object[1];
+    cache[0] = new ExpiringCache(new PerpetualCache("DefaultCache") {
+      @Override
+      public void putObject(Object key, Object value) {
+        super.putObject(key, value);
+        readDuringPut[0] = cache[0].getObject(key);
+      }
+    });
+    cache[0].setExpireAfterWrite(50);
+    cache[0].putObject("key", "old");
+    Thread.sleep(100);
+    cache[0].putObject("key", "new");
+    assertEquals("new", readDuringPut[0]);
+    assertEquals("new", cache[0].getObject("key"));
+  }
+
+  @Test
+  public void shouldExpireObjectsNotReadRecently() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("DefaultCache"));
+    cache.setExpireAfterAccess(200);
+    cache.putObject("read", "read");
+    cache.putObject("unread", "unread");
+    for (int i = 0; i < 4; i++) {
+      Thread.sleep(60);
+      assertEquals("read", cache.getObject("read"));
+    }
+    assertNull(cache.getObject("unread"));
+  }
+
+  @Test
+  public void shouldRemoveExpiredObjectsWithoutReadingThem() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("DefaultCache"));
+    cache.setExpireAfterWrite(50);
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, i);
+    }
+    Thread.sleep(100);
+    cache.putObject("fresh", "fresh");
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldMissOnceBeforeExpiryToRefresh() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("DefaultCache"));
+    cache.setExpireAfterWrite(300);
+    cache.setRefreshAhead(200);
+    cache.putObject("hot", "v1");
+    assertEquals("v1", cache.getObject("hot"));
+    Thread.sleep(150);
+    assertNull(cache.getObject("hot"));
+    assertEquals("v1", cache.getObject("hot"));
+    cache.putObject("hot", "v2");
+    assertEquals("v2", cache.getObject("hot"));
+  }
+
+  @Test
+  public void shouldRemoveItemOnDemand() {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("DefaultCache"));
+    cache.setExpireAfterWrite(60000);
+    cache.putObject(null, 0);
+    assertNotNull(cache.getObject(null));
+    cache.removeObject(null);
+    assertNull(cache.getObject(null));
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("DefaultCache"));
+    cache.setExpireAfterAccess(60000);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+  }
+
+  @Test
+  public void shouldBeAddedByCacheBuilder() throws Exception {
+    Cache cache = new CacheBuilder("test").expireAfterWrite(50L).readWrite(false).build();
+    assertTrue(cache instanceof SynchronizedCache);
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+    Thread.sleep(100);
+    assertNull(cache.getObject("key"));
+  }
+
+}
@@ -0,0 +1,107 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class WeightedCacheTest {
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedItemsBeyondMaxWeight() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher(new RowCountWeigher());
+    cache.setMaxWeight(10);
+    cache.putObject("a", rows(4));
+    cache.putObject("b", rows(4));
+    assertNotNull(cache.getObject("a"));
+    cache.putObject("c", rows(3));
+    assertNull(cache.getObject("b"));
+    assertNotNull(cache.getObject("a"));
+    assertNotNull(cache.getObject("c"));
+    assertEquals(7, cache.getTotalWeight());
+    assertEquals(2, cache.getSize());
+  }
+
+  @Test
+  public void shouldNotCacheObjectsHeavierThanMaxWeight() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher(new RowCountWeigher());
+    cache.setMaxWeight(10);
+    cache.putObject("a", rows(4));
+    cache.putObject("huge", rows(11));
+    assertNull(cache.getObject("huge"));
+    assertNotNull(cache.getObject("a"));
+    assertEquals(4, cache.getTotalWeight());
+  }
+
+  @Test
+  public void shouldUpdateWeightWhenReplacingAnObject() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher(new RowCountWeigher());
+    cache.putObject("a", rows(4));
+    cache.putObject("a", rows(2));
+    assertEquals(2, cache.getTotalWeight());
+    cache.removeObject("a");
+    assertEquals(0, cache.getTotalWeight());
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, rows(i));
+    }
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getTotalWeight());
+  }
+
+  @Test
+  public void shouldWeighBySerializedSize() {
+    Weigher weigher = new SerializedSizeWeigher();
+    assertEquals(3, weigher.weigh("key", new byte[3]));
+    assertTrue(weigher.weigh("key", rows(1000)) > weigher.weigh("key", rows(10)));
+    assertEquals(1, weigher.weigh("key", new Object()));
+  }
+
+  @Test
+  public void shouldBeConfiguredFromCacheProperties() {
+    Properties props = new Properties();
+    props.setProperty("weigherType", "ROWS");
+    props.setProperty("maxWeight", "100");
+    Cache cache = new CacheBuilder("test").addDecorator(WeightedCache.class).readWrite(false).properties(props).build();
+    cache.putObject("a", rows(60));
+    cache.putObject("b", rows(60));
+    assertNull(cache.getObject("a"));
+    assertNotNull(cache.getObject("b"));
+  }
+
+  private List<Integer> rows(int count) {
+    return new ArrayList<Integer>(Collections.nCopies(count, 1));
+  }
+
+}
@@ -0,0 +1,286 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.hsqldb.jdbc.JDBCConnection;
+import org.junit.Test;
+
+public class ConcurrentPooledDataSourceTest extends BaseDataTest {
+
+  @Test
+  public void shouldProperlyMaintainPoolOf3ActiveAnd2IdleConnections() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setDefaultAutoCommit(false);
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolMaximumCheckoutTime(10000);
+      ds.setPoolPingConnectionsNotUsedFor(1);
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT * FROM PRODUCT");
+      ds.setPoolTimeToWait(10000);
+      List<Connection> connections = new ArrayList<Connection>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(4, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+      assertEquals(0, ds.getPoolState().getClaimedOverdueConnectionCount());
+      assertNotNull(ds.getPoolState().toString());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldReuseTheConnectionLastReturnedByTheSameThread() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    try {
+      Connection first = ds.getConnection();
+      Connection second = ds.getConnection();
+      Connection realSecond = PooledDataSource.unwrapConnection(second);
+      first.close();
+      second.close();
+      Connection again = ds.getConnection();
+      assertSame(realSecond, PooledDataSource.unwrapConnection(again));
+      again.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldHandOffReturnedConnectionToWaitingThread() throws Exception {
+    final ConcurrentPooledDataSource ds = createDataSource();
+    ds.setPoolMaximumActiveConnections(1);
+    ds.setPoolTimeToWait(10000);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Connection held = ds.getConnection();
+      Future<Connection> waiting = executor.submit(new Callable<Connection>() {
+        @Override
+        public Connection call() throws Exception {
+          return ds.getConnection();
+        }
+      });
+      while (ds.getPoolState().getHadToWaitCount() == 0) {
+        Thread.sleep(10);
+      }
+      Connection realHeld = PooledDataSource.unwrapConnection(held);
+      held.close();
+      Connection handedOff = waiting.get();
+      assertSame(realHeld, PooledDataSource.unwrapConnection(handedOff));
+      handedOff.close();
+      assertEquals(1, ds.getPoolState().getHadToWaitCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldClaimOverdueConnection() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    ds.setPoolMaximumActiveConnections(1);
+    ds.setPoolMaximumCheckoutTime(50);
+    try {
+      Connection leaked = ds.getConnection();
+      Thread.sleep(100);
+      Connection claimed = ds.getConnection();
+      assertEquals(1, ds.getPoolState().getClaimedOverdueConnectionCount());
+      try {
+        leaked.createStatement();
+        fail("Claimed connection should be invalidated");
+      } catch (SQLException e) {
+        // expected
+      }
+      leaked.close();
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      claimed.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldKeepAccurateStatisticsUnderContention() throws Exception {
+    final ConcurrentPooledDataSource ds = createDataSource();
+    ds.setPoolMaximumActiveConnections(4);
+    ds.setPoolMaximumIdleConnections(4);
+    ds.setPoolMaximumCheckoutTime(60000);
+    final int threads = 16;
+    final int iterations = 200;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (int j = 0; j < iterations; j++) {
+              Connection c = ds.getConnection();
+              c.getAutoCommit();
+              c.close();
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+      PoolState state = ds.getPoolState();
+      assertEquals(threads * iterations, state.getRequestCount());
+      assertEquals(0, state.getActiveConnectionCount());
+      assertTrue(state.getIdleConnectionCount() <= 4);
+      assertEquals(0, state.getBadConnectionCount());
+      assertEquals(0, state.getClaimedOverdueConnectionCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldInvalidateCheckedOutConnectionsOnForceCloseAll() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    Connection c = ds.getConnection();
+    ds.forceCloseAll();
+    assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    c.close();
+    assertEquals(1, ds.getPoolState().getBadConnectionCount());
+    Connection fresh = ds.getConnection();
+    assertTrue(PooledDataSource.unwrapConnection(fresh) instanceof JDBCConnection);
+    fresh.close();
+    ds.forceCloseAll();
+  }
+
+  @Test
+  public void shouldPrefillMinimumIdleConnections() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    try {
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMinimumIdleConnections(5);
+      ds.maintainPool();
+      assertEquals(3, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      ds.getConnection().close();
+      assertEquals(1, ds.getPoolState().getRequestCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldRetireExpiredAndLongIdleConnections() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    try {
+      ds.setPoolMinimumIdleConnections(1);
+      ds.setPoolMaximumIdleTime(50);
+      Connection c1 = ds.getConnection();
+      Connection c2 = ds.getConnection();
+      c1.close();
+      c2.close();
+      Thread.sleep(100);
+      ds.maintainPool();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      ds.setPoolMaximumConnectionLifetime(50);
+      ds.maintainPool();
+      assertEquals("expired connections are replaced up to the minimum", 1, ds.getPoolState().getIdleConnectionCount());
+      Connection c3 = ds.getConnection();
+      Thread.sleep(100);
+      c3.close();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldValidateIdleConnectionsOffTheRequestPath() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    try {
+      ds.setPoolValidateIdleConnections(true);
+      ds.setPoolPingConnectionsNotUsedFor(0);
+      Connection c = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(c);
+      c.close();
+      realConnection.close();
+      Thread.sleep(5);
+      ds.maintainPool();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldBeCreatedByFactory() throws Exception {
+    ConcurrentPooledDataSourceFactory factory = new ConcurrentPooledDataSourceFactory();
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    props.setProperty("poolMaximumActiveConnections", "20");
+    props.setProperty("poolMaintenanceInterval", "30000");
+    props.setProperty("poolMinimumIdleConnections", "2");
+    props.setProperty("poolMaximumConnectionLifetime", "1800000");
+    props.setProperty("poolMaximumIdleTime", "600000");
+    props.setProperty("poolValidateIdleConnections", "true");
+    factory.setProperties(props);
+    ConcurrentPooledDataSource ds = (ConcurrentPooledDataSource) factory.getDataSource();
+    assertEquals(20, ds.getPoolMaximumActiveConnections());
+    assertEquals(30000, ds.getPoolMaintenanceInterval());
+    assertEquals(2, ds.getPoolMinimumIdleConnections());
+    assertEquals(1800000, ds.getPoolMaximumConnectionLifetime());
+    assertEquals(600000, ds.getPoolMaximumIdleTime());
+    assertTrue(ds.isPoolValidateIdleConnections());
+  }
+
+  private ConcurrentPooledDataSource createDataSource() throws IOException {
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    ConcurrentPooledDataSource ds = new ConcurrentPooledDataSource();
+    ds.setDriver(props.getProperty("driver"));
+    ds.setUrl(props.getProperty("url"));
+    ds.setUsername(props.getProperty("username"));
+    ds.setPassword(props.getProperty("password"));
+    return ds;
+  }
+
+}
@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.junit.Test;
+
+public class LeakDetectionTest extends BaseDataTest {
+
+  @Test
+  public void shouldListOverdueConnectionsWithTheirCheckoutStackTrace() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolLeakDetectionThreshold(50);
+      Connection leaked = ds.getConnection();
+      ds.getConnection().close();
+      Thread.sleep(100);
+      List<OverdueConnection> overdueConnections = ds.getPoolState().getOverdueConnections();
+      assertEquals(1, overdueConnections.size());
+      OverdueConnection overdue = overdueConnections.get(0);
+      assertEquals(PooledDataSource.unwrapConnection(leaked).hashCode(), overdue.getRealHashCode());
+      assertTrue(overdue.getCheckoutTime() >= 100);
+      assertEquals(Thread.currentThread().getName(), overdue.getThreadName());
+      StackTraceElement caller = overdue.getCheckoutStackTrace()[0];
+      assertEquals(LeakDetectionTest.class.getName(), caller.getClassName());
+      assertEquals("shouldListOverdueConnectionsWithTheirCheckoutStackTrace", caller.getMethodName());
+      leaked.close();
+      assertTrue(ds.getPoolState().getOverdueConnections().isEmpty());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldOnlySampleStackTracesOfSomeCheckouts() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolLeakDetectionThreshold(10);
+      ds.setPoolLeakDetectionSampleRate(2);
+      Connection c1 = ds.getConnection();
+      Connection c2 = ds.getConnection();
+      Thread.sleep(50);
+      int sampled = 0;
+      for (OverdueConnection overdue : ds.getPoolState().getOverdueConnections()) {
+        if (overdue.hasCheckoutStackTrace()) {
+          sampled++;
+        } else {
+          assertEquals(0, overdue.getCheckoutStackTrace().length);
+        }
+      }
+      assertEquals(1, sampled);
+      c1.close();
+      c2.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldNotReclaimOverdueConnectionsWhenDisabled() throws Exception {
+    UnpooledDataSource unpooled = createUnpooledDataSource(JPETSTORE_PROPERTIES);
+    PooledDataSource ds = new PooledDataSource(unpooled.getDriver(), unpooled.getUrl(), unpooled.getUsername(),
+        unpooled.getPassword());
+    assertTimesOutWithoutReclaiming(ds);
+  }
+
+  @Test
+  public void shouldNotReclaimOverdueConnectionsOfTheConcurrentPoolWhenDisabled() throws Exception {
+    UnpooledDataSource unpooled = createUnpooledDataSource(JPETSTORE_PROPERTIES);
+    ConcurrentPooledDataSource ds = new ConcurrentPooledDataSource(unpooled.getDriver(), unpooled.getUrl(),
+        unpooled.getUsername(), unpooled.getPassword());
+    assertTimesOutWithoutReclaiming(ds);
+  }
+
+  private void assertTimesOutWithoutReclaiming(PooledDataSource ds) throws Exception {
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(10);
+      ds.setPoolTimeToWait(50);
+      ds.setPoolReclaimOverdueConnections(false);
+      ds.setPoolLeakDetectionThreshold(10);
+      Connection held = ds.getConnection();
+      Thread.sleep(20);
+      try {
+        ds.getConnection();
+        fail("Should have timed out");
+      } catch (SQLException e) {
+        // expected
+      }
+      assertEquals(0, ds.getPoolState().getClaimedOverdueConnectionCount());
+      assertEquals(1, ds.getPoolState().getOverdueConnections().size());
+      assertFalse(held.isClosed());
+      held.createStatement().close();
+      held.close();
+      ds.getConnection().close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+}
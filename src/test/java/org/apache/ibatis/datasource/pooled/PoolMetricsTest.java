@@ -0,0 +1,165 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.junit.Test;
+
+public class PoolMetricsTest extends BaseDataTest {
+
+  @Test
+  public void shouldReportPercentilesWithinThreePercent() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 100000; i++) {
+      histogram.record(i * 1000);
+    }
+    assertEquals(100000, histogram.getCount());
+    assertEquals(100000000, histogram.getMax());
+    assertEquals(50000500, histogram.getMean());
+    assertWithin(50000000, histogram.getValueAtPercentile(0.5));
+    assertWithin(99000000, histogram.getValueAtPercentile(0.99));
+    assertWithin(99900000, histogram.getValueAtPercentile(0.999));
+  }
+
+  @Test
+  public void shouldMapEveryValueToABucketThatContainsIt() {
+    long[] values = { 0, 1, 31, 32, 33, 63, 64, 1000, 123456789, Long.MAX_VALUE };
+    for (long value : values) {
+      int index = LatencyHistogram.bucketIndex(value);
+      assertTrue(value <= LatencyHistogram.highestValueInBucket(index));
+      assertTrue(index == 0 || value > LatencyHistogram.highestValueInBucket(index - 1));
+    }
+  }
+
+  @Test
+  public void shouldRecordCheckoutAndUsageTimes() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMetricsEnabled(true);
+      Connection c = ds.getConnection();
+      Thread.sleep(20);
+      c.close();
+      ds.getConnection().close();
+      PoolMetrics metrics = ds.getPoolMetrics();
+      assertEquals(2, metrics.getCheckoutTime().getCount());
+      assertEquals(2, metrics.getUsageTime().getCount());
+      assertTrue(metrics.getUsageTime().getMax() >= 20000000);
+      assertEquals(1, metrics.getCreatedConnectionCount());
+      assertEquals(0, metrics.getActiveConnectionCount());
+      assertEquals(1, metrics.getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldNotCountReclaimedConnectionsAsClosed() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(10);
+      Connection overdue = ds.getConnection();
+      Thread.sleep(20);
+      Connection reclaimed = ds.getConnection();
+      overdue.close();
+      assertEquals(0, ds.getPoolMetrics().getClosedConnectionCount());
+      reclaimed.close();
+      assertEquals(1, ds.getPoolMetrics().getCreatedConnectionCount());
+      assertEquals(0, ds.getPoolMetrics().getClosedConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldCoverOnlyTheIntervalSinceThePreviousSnapshot() throws Exception {
+    UnpooledDataSource unpooled = createUnpooledDataSource(JPETSTORE_PROPERTIES);
+    ConcurrentPooledDataSource ds = new ConcurrentPooledDataSource(unpooled.getDriver(), unpooled.getUrl(),
+        unpooled.getUsername(), unpooled.getPassword());
+    try {
+      ds.setPoolMetricsEnabled(true);
+      ds.setPoolMaximumIdleConnections(1);
+      Connection c1 = ds.getConnection();
+      Connection c2 = ds.getConnection();
+      c1.close();
+      c2.close();
+      PoolMetricsSnapshot first = ds.getPoolMetrics().snapshot();
+      assertEquals(2, first.getCheckoutCount());
+      assertEquals(2, first.getCreatedConnections());
+      assertEquals(1, first.getClosedConnections());
+      assertEquals(1, first.getIdleConnections());
+      ds.getConnection().close();
+      PoolMetricsSnapshot second = ds.getPoolMetrics().snapshot();
+      assertEquals(1, second.getCheckoutCount());
+      assertEquals(1, second.getUsageCount());
+      assertEquals(0, second.getCreatedConnections());
+      assertEquals(0.0, second.getCreationRate(), 0.0);
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldExportSnapshotsFromTheMaintenanceThread() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    RecordingExporter exporter = new RecordingExporter();
+    try {
+      ds.setPoolMetricsExporter(exporter);
+      ds.setPoolMetricsExportInterval(20);
+      ds.getConnection().close();
+      for (int i = 0; i < 100 && exporter.getSnapshots().isEmpty(); i++) {
+        Thread.sleep(20);
+      }
+      assertFalse(exporter.getSnapshots().isEmpty());
+    } finally {
+      ds.setPoolMetricsExporter(null);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldCreateExporterFromClassName() throws Exception {
+    PooledDataSource ds = new PooledDataSource();
+    ds.setPoolMetricsExporterType(RecordingExporter.class.getName());
+    assertTrue(ds.getPoolMetricsExporter() instanceof RecordingExporter);
+  }
+
+  private void assertWithin(long expected, long actual) {
+    assertTrue(actual + " should be close to " + expected, actual >= expected && actual <= expected * 1.03);
+  }
+
+  public static class RecordingExporter implements PoolMetricsExporter {
+
+    private final List<PoolMetricsSnapshot> snapshots = new ArrayList<PoolMetricsSnapshot>();
+
+    @Override
+    public synchronized void export(PooledDataSource dataSource, PoolMetricsSnapshot snapshot) {
+      snapshots.add(snapshot);
+    }
+
+    public synchronized List<PoolMetricsSnapshot> getSnapshots() {
+      return new ArrayList<PoolMetricsSnapshot>(snapshots);
+    }
+  }
+
+}
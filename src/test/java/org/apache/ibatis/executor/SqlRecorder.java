@@ -0,0 +1,88 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+
+/**
+ * Records the SQL of the statements prepared by the sessions of a configuration, and fails them on demand.
+ */
+@Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }))
+public class SqlRecorder implements Interceptor {
+
+  private final List<String> sql = new ArrayList<String>();
+  private String failingSql;
+
+  /**
+   * Creates a configuration of the data source and the mappers whose statements are recorded.
+   */
+  public Configuration newConfiguration(DataSource dataSource, Class<?>... mappers) {
+    Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+    configuration.addInterceptor(this);
+    for (Class<?> mapper : mappers) {
+      configuration.addMapper(mapper);
+    }
+    return configuration;
+  }
+
+  public List<String> getSql() {
+    return sql;
+  }
+
+  /**
+   * Makes the next statement whose SQL contains the given text fail.
+   */
+  public void failNext(String sqlPart) {
+    failingSql = sqlPart;
+  }
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    String prepared = ((StatementHandler) invocation.getTarget()).getBoundSql().getSql();
+    sql.add(prepared);
+    if (failingSql != null && prepared.contains(failingSql)) {
+      failingSql = null;
+      throw new SQLException("Failed on purpose: " + prepared);
+    }
+    return invocation.proceed();
+  }
+
+  @Override
+  public Object plugin(Object target) {
+    return Plugin.wrap(target, this);
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+  }
+
+}
@@ -0,0 +1,227 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.Many;
+import org.apache.ibatis.annotations.One;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Post;
+import org.apache.ibatis.executor.SqlRecorder;
+import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BatchResultLoaderTest {
+
+  private static DataSource dataSource;
+
+  public interface BlogMapper {
+
+    @Select("select id, title, author_id from blog order by id")
+    @Results({
+        @Result(property = "id", column = "id", id = true),
+        @Result(property = "author", column = "author_id", one = @One(select = "selectAuthor")),
+        @Result(property = "posts", column = "id", many = @Many(select = "selectPostsOfBlog"))
+    })
+    List<Blog> selectBlogs();
+
+    @Select("select id, title, author_id from blog order by id")
+    @Results({
+        @Result(property = "id", column = "id", id = true),
+        @Result(property = "author", column = "author_id", one = @One(select = "selectAuthor")),
+        @Result(property = "posts", column = "id", many = @Many(select = "selectPostsOfBlogNewestFirst"))
+    })
+    List<Blog> selectBlogsWithNewestPostsFirst();
+
+    @Select("select id, title, author_id from blog order by id")
+    @Results({
+        @Result(property = "id", column = "id", id = true),
+        @Result(property = "author", column = "author_id", one = @One(select = "selectAuthor")),
+        @Result(property = "posts", column = "id", many = @Many(select = "selectJoinedPostsOfBlog"))
+    })
+    List<Blog> selectBlogsWithJoinedPosts();
+
+    @Select("select id, title, author_id from blog order by id")
+    @Results({
+        @Result(property = "id", column = "id", id = true),
+        @Result(property = "author", column = "author_id", one = @One(select = "selectAuthor")),
+        @Result(property = "posts", column = "id", many = @Many(select = "selectPostsOfBlogAfterTheFirst"))
+    })
+    List<Blog> selectBlogsWithPostsAfterTheFirst();
+
+    @Select("select id, subject, author_id from post order by id")
+    @Results({
+        @Result(property = "id", column = "id", id = true),
+        @Result(property = "author", column = "author_id", one = @One(select = "selectAuthor"))
+    })
+    List<Post> selectPosts();
+
+    @Select("select id, username from author where id = #{id}")
+    Author selectAuthor(int id);
+
+    @Select("select id, subject from post where blog_id = #{id}")
+    List<Post> selectPostsOfBlog(int id);
+
+    @Select("select id, subject from post where blog_id = #{id} order by id desc")
+    List<Post> selectPostsOfBlogNewestFirst(int id);
+
+    @Select("select p.id, p.subject, b.id from post p join blog b on b.id = p.blog_id where p.blog_id = #{id} order by p.id")
+    List<Post> selectJoinedPostsOfBlog(int id);
+
+    @Select("select id, subject from post where id > 1 and blog_id = #{id}")
+    List<Post> selectPostsOfBlogAfterTheFirst(int id);
+
+  }
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    dataSource = BaseDataTest.createBlogDataSource();
+  }
+
+  @Test
+  public void shouldLoadNestedSelectsOfAllRowsWithOneQueryPerStatement() {
+    SqlRecorder recorder = new SqlRecorder();
+    List<Blog> blogs = selectBlogs(10, recorder);
+    assertBlogs(blogs);
+    // the blogs, their authors and their posts
+    assertEquals(3, recorder.getSql().size());
+    assertTrue(recorder.getSql().get(1), recorder.getSql().get(1).contains(" IN ("));
+    assertTrue(recorder.getSql().get(2), recorder.getSql().get(2).contains(" IN ("));
+  }
+
+  @Test
+  public void shouldSplitNestedSelectsInBatches() {
+    SqlRecorder recorder = new SqlRecorder();
+    assertBlogs(selectBlogs(1, recorder));
+    assertEquals(5, recorder.getSql().size());
+    for (String sql : recorder.getSql()) {
+      assertFalse(sql, sql.contains(" IN ("));
+    }
+  }
+
+  @Test
+  public void shouldRunTheSameNestedSelectOnce() {
+    SqlRecorder recorder = new SqlRecorder();
+    Configuration configuration = newConfiguration(10, recorder);
+    configuration.setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior.FAILING);
+    SqlSession sqlSession = new SqlSessionFactoryBuilder().build(configuration).openSession();
+    try {
+      List<Post> posts = sqlSession.getMapper(BlogMapper.class).selectPosts();
+      assertEquals(5, posts.size());
+      assertEquals("jim", posts.get(0).getAuthor().getUsername());
+      assertEquals("sally", posts.get(2).getAuthor().getUsername());
+      assertEquals("jim", posts.get(4).getAuthor().getUsername());
+      assertSame(posts.get(0).getAuthor(), posts.get(1).getAuthor());
+      assertEquals(2, recorder.getSql().size());
+      assertTrue(recorder.getSql().get(1), recorder.getSql().get(1).contains(" IN (?, ?)"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldKeepTheOrderOfBatchedNestedSelects() {
+    SqlRecorder recorder = new SqlRecorder();
+    SqlSession sqlSession = new SqlSessionFactoryBuilder().build(newConfiguration(10, recorder)).openSession();
+    try {
+      List<Blog> blogs = sqlSession.getMapper(BlogMapper.class).selectBlogsWithNewestPostsFirst();
+      assertEquals(2, blogs.size());
+      assertEquals(2, blogs.get(0).getPosts().get(0).getId());
+      assertEquals(1, blogs.get(0).getPosts().get(1).getId());
+      assertEquals(4, blogs.get(1).getPosts().get(0).getId());
+      assertEquals(3, blogs.get(1).getPosts().get(1).getId());
+      assertEquals(3, recorder.getSql().size());
+      assertTrue(recorder.getSql().get(2), recorder.getSql().get(2).endsWith(" IN (?, ?) order by id desc"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldBatchNestedSelectsJoiningColumnsOfTheSameName() {
+    SqlRecorder recorder = new SqlRecorder();
+    SqlSession sqlSession = new SqlSessionFactoryBuilder().build(newConfiguration(10, recorder)).openSession();
+    try {
+      List<Blog> blogs = sqlSession.getMapper(BlogMapper.class).selectBlogsWithJoinedPosts();
+      assertBlogs(blogs);
+      assertEquals(3, recorder.getSql().size());
+      assertTrue(recorder.getSql().get(2), recorder.getSql().get(2).contains(" IN (?, ?)"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldRunNestedSelectsWithOtherConditionsOneByOne() {
+    SqlRecorder recorder = new SqlRecorder();
+    SqlSession sqlSession = new SqlSessionFactoryBuilder().build(newConfiguration(10, recorder)).openSession();
+    try {
+      List<Blog> blogs = sqlSession.getMapper(BlogMapper.class).selectBlogsWithPostsAfterTheFirst();
+      assertEquals(2, blogs.size());
+      assertEquals(1, blogs.get(0).getPosts().size());
+      assertEquals(2, blogs.get(0).getPosts().get(0).getId());
+      assertEquals(2, blogs.get(1).getPosts().size());
+      // the blogs, their authors and the posts of each blog
+      assertEquals(4, recorder.getSql().size());
+      assertFalse(recorder.getSql().get(2), recorder.getSql().get(2).contains(" IN ("));
+      assertFalse(recorder.getSql().get(3), recorder.getSql().get(3).contains(" IN ("));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private static List<Blog> selectBlogs(int batchSize, SqlRecorder recorder) {
+    SqlSession sqlSession = new SqlSessionFactoryBuilder().build(newConfiguration(batchSize, recorder)).openSession();
+    try {
+      return sqlSession.getMapper(BlogMapper.class).selectBlogs();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private static void assertBlogs(List<Blog> blogs) {
+    assertEquals(2, blogs.size());
+    assertEquals("jim", blogs.get(0).getAuthor().getUsername());
+    assertEquals(2, blogs.get(0).getPosts().size());
+    assertEquals(1, blogs.get(0).getPosts().get(0).getId());
+    assertEquals(2, blogs.get(0).getPosts().get(1).getId());
+    assertEquals("sally", blogs.get(1).getAuthor().getUsername());
+    assertEquals(2, blogs.get(1).getPosts().size());
+    assertEquals(3, blogs.get(1).getPosts().get(0).getId());
+    assertEquals("Tea Parties", blogs.get(1).getPosts().get(1).getSubject());
+  }
+
+  private static Configuration newConfiguration(int batchSize, SqlRecorder recorder) {
+    Configuration configuration = recorder.newConfiguration(dataSource, BlogMapper.class);
+    configuration.setNestedSelectBatchSize(batchSize);
+    return configuration;
+  }
+
+}
@@ -0,0 +1,167 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.Many;
+import org.apache.ibatis.annotations.One;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Post;
+import org.apache.ibatis.executor.SqlRecorder;
+import org.apache.ibatis.mapping.FetchType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class LazyLoadBatchTest {
+
+  private static DataSource dataSource;
+
+  public interface BlogMapper {
+
+    @Select("select id, title, author_id from blog order by id")
+    @Results({
+        @Result(property = "id", column = "id", id = true),
+        @Result(property = "author", column = "author_id", one = @One(select = "selectAuthor", fetchType = FetchType.BATCH)),
+        @Result(property = "posts", column = "id", many = @Many(select = "selectPostsOfBlog", fetchType = FetchType.LAZY))
+    })
+    List<Blog> selectBlogs();
+
+    @Select("select id, username from author where id = #{id}")
+    Author selectAuthor(int id);
+
+    @Select("select id, subject from post where blog_id = #{id}")
+    List<Post> selectPostsOfBlog(int id);
+
+  }
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    dataSource = BaseDataTest.createBlogDataSource();
+  }
+
+  @Test
+  public void shouldLoadThePropertyOfAllResultsOnFirstAccess() {
+    SqlRecorder recorder = new SqlRecorder();
+    SqlSession sqlSession = new SqlSessionFactoryBuilder().build(newConfiguration(0, recorder)).openSession();
+    try {
+      List<Blog> blogs = sqlSession.getMapper(BlogMapper.class).selectBlogs();
+      assertEquals(1, recorder.getSql().size());
+      assertEquals("sally", blogs.get(1).getAuthor().getUsername());
+      assertEquals(2, recorder.getSql().size());
+      assertTrue(recorder.getSql().get(1), recorder.getSql().get(1).contains(" IN ("));
+      assertEquals("jim", blogs.get(0).getAuthor().getUsername());
+      assertEquals(2, recorder.getSql().size());
+      // fetched lazily one result at a time
+      assertEquals(2, blogs.get(0).getPosts().size());
+      assertEquals(2, blogs.get(1).getPosts().size());
+      assertEquals(4, recorder.getSql().size());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldBatchAllLazyPropertiesWhenEnabledGlobally() {
+    SqlRecorder recorder = new SqlRecorder();
+    SqlSession sqlSession = new SqlSessionFactoryBuilder().build(newConfiguration(10, recorder)).openSession();
+    try {
+      List<Blog> blogs = sqlSession.getMapper(BlogMapper.class).selectBlogs();
+      assertEquals(3, blogs.get(1).getPosts().get(0).getId());
+      assertEquals(1, blogs.get(0).getPosts().get(0).getId());
+      assertEquals("jim", blogs.get(0).getAuthor().getUsername());
+      assertEquals("sally", blogs.get(1).getAuthor().getUsername());
+      assertEquals(3, recorder.getSql().size());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldKeepTheLoadersOfOtherResultsWhenTheBatchFails() {
+    SqlRecorder recorder = new SqlRecorder();
+    SqlSession sqlSession = new SqlSessionFactoryBuilder().build(newConfiguration(10, recorder)).openSession();
+    try {
+      List<Blog> blogs = sqlSession.getMapper(BlogMapper.class).selectBlogs();
+      recorder.failNext(" IN (");
+      try {
+        blogs.get(0).getPosts();
+        fail("Should have failed");
+      } catch (Exception e) {
+        assertEquals(2, recorder.getSql().size());
+      }
+      assertEquals(2, blogs.get(1).getPosts().size());
+      assertEquals(3, recorder.getSql().size());
+      assertFalse(recorder.getSql().get(2), recorder.getSql().get(2).contains(" IN ("));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldStartANewBatchWhenFull() {
+    SqlRecorder recorder = new SqlRecorder();
+    SqlSession sqlSession = new SqlSessionFactoryBuilder().build(newConfiguration(1, recorder)).openSession();
+    try {
+      List<Blog> blogs = sqlSession.getMapper(BlogMapper.class).selectBlogs();
+      assertEquals("jim", blogs.get(0).getAuthor().getUsername());
+      assertEquals("sally", blogs.get(1).getAuthor().getUsername());
+      assertEquals(3, recorder.getSql().size());
+      for (String sql : recorder.getSql()) {
+        assertFalse(sql, sql.contains(" IN ("));
+      }
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldNotReloadPropertiesSetMeanwhile() {
+    SqlRecorder recorder = new SqlRecorder();
+    SqlSession sqlSession = new SqlSessionFactoryBuilder().build(newConfiguration(0, recorder)).openSession();
+    try {
+      List<Blog> blogs = sqlSession.getMapper(BlogMapper.class).selectBlogs();
+      Author author = new Author(-1);
+      blogs.get(1).setAuthor(author);
+      assertEquals("jim", blogs.get(0).getAuthor().getUsername());
+      assertSame(author, blogs.get(1).getAuthor());
+      assertEquals(2, recorder.getSql().size());
+      assertFalse(recorder.getSql().get(1), recorder.getSql().get(1).contains(" IN ("));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private static Configuration newConfiguration(int lazyLoadBatchSize, SqlRecorder recorder) {
+    Configuration configuration = recorder.newConfiguration(dataSource, BlogMapper.class);
+    configuration.setLazyLoadBatchSize(lazyLoadBatchSize);
+    configuration.setAggressiveLazyLoading(false);
+    return configuration;
+  }
+
+}
@@ -0,0 +1,261 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.domain.blog.Post;
+import org.apache.ibatis.executor.SqlRecorder;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.KeysetRowBounds;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PaginationTest {
+
+  private static DataSource dataSource;
+
+  public interface PostMapper {
+
+    @Select({"<script>",
+        "select id, subject from post",
+        "<where><if test='ids != null'>id in <foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></if></where>",
+        "order by id",
+        "</script>"})
+    List<Post> selectPosts(@Param("ids") List<Integer> ids, RowBounds rowBounds);
+
+    @Select("select id, subject from post where author_id = #{authorId}")
+    List<Post> selectPostsOfAuthor(int authorId, RowBounds rowBounds);
+
+  }
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    dataSource = BaseDataTest.createBlogDataSource();
+  }
+
+  @Test
+  public void shouldWriteTheBoundsInTheDialectOfTheDatabase() {
+    assertEquals("select * from post LIMIT 10 OFFSET 20", new LimitOffsetDialect().getPageSql("select * from post", 20, 10));
+    assertEquals("select * from post LIMIT 10", new LimitOffsetDialect().getPageSql("select * from post", 0, 10));
+    assertEquals("select * from post OFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY", new OffsetFetchDialect().getPageSql("select * from post", 20, 10));
+    assertEquals("select * from post OFFSET 20 ROWS", new OffsetFetchDialect().getPageSql("select * from post", 20, RowBounds.NO_ROW_LIMIT));
+    assertEquals("SELECT * FROM (SELECT PAGE_.*, ROWNUM ROWNUM_ FROM (select * from post) PAGE_ WHERE ROWNUM <= 30) WHERE ROWNUM_ > 20",
+        new RownumDialect().getPageSql("select * from post", 20, 10));
+  }
+
+  @Test
+  public void shouldDetectTheDialectOfKnownDatabases() {
+    assertTrue(Pagination.getDialect("MySQL") instanceof LimitOffsetDialect);
+    assertTrue(Pagination.getDialect("PostgreSQL") instanceof LimitOffsetDialect);
+    assertTrue(Pagination.getDialect("Apache Derby") instanceof OffsetFetchDialect);
+    assertTrue(Pagination.getDialect("oracle") instanceof RownumDialect);
+    assertNull(Pagination.getDialect("Microsoft SQL Server"));
+    assertNull(Pagination.getDialect(null));
+  }
+
+  @Test
+  public void shouldDetectTheDialectOncePerEnvironmentWithTheGivenConnection() throws Exception {
+    Configuration configuration = newConfiguration();
+    assertNull(configuration.getPaginationDialect());
+    Connection connection = dataSource.getConnection();
+    try {
+      assertTrue(configuration.getPaginationDialect(connection) instanceof OffsetFetchDialect);
+      assertTrue(configuration.getPaginationDialect() instanceof OffsetFetchDialect);
+      configuration.setEnvironment(new Environment("other", new JdbcTransactionFactory(), dataSource));
+      assertNull(configuration.getPaginationDialect());
+    } finally {
+      connection.close();
+    }
+  }
+
+  @Test
+  public void shouldDetectTheDialectAgainWhenTheDatabaseWasUnreachable() throws Exception {
+    Connection connection = dataSource.getConnection();
+    try {
+      Connection unreachableOnce = mock(Connection.class);
+      when(unreachableOnce.getMetaData()).thenThrow(new SQLException("unreachable")).thenAnswer(invocation -> connection.getMetaData());
+      Configuration configuration = newConfiguration();
+      assertNull(configuration.getPaginationDialect(unreachableOnce));
+      assertTrue(configuration.getPaginationDialect(unreachableOnce) instanceof OffsetFetchDialect);
+    } finally {
+      connection.close();
+    }
+  }
+
+  @Test
+  public void shouldNotOpenAnotherConnectionToDetectTheDialect() throws Exception {
+    PooledDataSource pooledDataSource = BaseDataTest.createPooledDataSource(BaseDataTest.BLOG_PROPERTIES);
+    pooledDataSource.setPoolMaximumActiveConnections(1);
+    Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), pooledDataSource));
+    configuration.setPhysicalPagination(true);
+    configuration.addMapper(PostMapper.class);
+    SqlSession sqlSession = new SqlSessionFactoryBuilder().build(configuration).openSession();
+    try {
+      PostMapper mapper = sqlSession.getMapper(PostMapper.class);
+      assertEquals(3, mapper.selectPostsOfAuthor(101, RowBounds.DEFAULT).size());
+      List<Post> posts = mapper.selectPosts(null, new RowBounds(1, 2));
+      assertEquals(Arrays.asList(2, 3), ids(posts));
+      assertEquals(1, pooledDataSource.getPoolState().getRequestCount());
+    } finally {
+      sqlSession.close();
+      pooledDataSource.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldLetTheDatabaseSkipAndLimitRows() {
+    SqlRecorder recorder = new SqlRecorder();
+    Configuration configuration = recorder.newConfiguration(dataSource, PostMapper.class);
+    configuration.setPhysicalPagination(true);
+    SqlSession sqlSession = new SqlSessionFactoryBuilder().build(configuration).openSession();
+    try {
+      List<Post> posts = sqlSession.getMapper(PostMapper.class).selectPosts(Arrays.asList(1, 2, 3, 4), new RowBounds(1, 2));
+      assertEquals(2, posts.size());
+      assertEquals(2, posts.get(0).getId());
+      assertEquals(3, posts.get(1).getId());
+      assertTrue(recorder.getSql().get(0), recorder.getSql().get(0).endsWith(" OFFSET 1 ROWS FETCH NEXT 2 ROWS ONLY"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldSkipRowsInMemoryByDefault() {
+    SqlRecorder recorder = new SqlRecorder();
+    Configuration configuration = recorder.newConfiguration(dataSource, PostMapper.class);
+    SqlSession sqlSession = new SqlSessionFactoryBuilder().build(configuration).openSession();
+    try {
+      List<Post> posts = sqlSession.getMapper(PostMapper.class).selectPostsOfAuthor(101, new RowBounds(1, 1));
+      assertEquals(1, posts.size());
+      assertFalse(recorder.getSql().get(0).contains("FETCH"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldReadPagesAfterTheLastRowOfThePreviousOne() {
+    SqlSession sqlSession = newSqlSessionFactory().openSession();
+    try {
+      PostMapper mapper = sqlSession.getMapper(PostMapper.class);
+      KeysetRowBounds firstPage = new KeysetRowBounds(2, "id");
+      List<Post> posts = mapper.selectPosts(null, firstPage);
+      assertEquals(Arrays.asList(1, 2), ids(posts));
+      posts = mapper.selectPosts(null, firstPage.after(posts.get(1).getId()));
+      assertEquals(Arrays.asList(3, 4), ids(posts));
+      posts = mapper.selectPosts(Arrays.asList(1, 2, 3, 5), firstPage.after(posts.get(1).getId()));
+      assertEquals(Arrays.asList(5), ids(posts));
+      posts = mapper.selectPosts(null, new KeysetRowBounds(3, true, "id").after(3));
+      assertEquals(Arrays.asList(2, 1), ids(posts));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldSeekByCompoundKeys() {
+    SqlSession sqlSession = newSqlSessionFactory().openSession();
+    try {
+      KeysetRowBounds bounds = new KeysetRowBounds(RowBounds.NO_ROW_LIMIT, "subject", "id").after("Monster Trucks", 3);
+      List<Post> posts = sqlSession.getMapper(PostMapper.class).selectPosts(null, bounds);
+      assertEquals(Arrays.asList(2, 4), ids(posts));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectKeyColumnsThatAreNotLabels() {
+    new KeysetRowBounds(10, "id; drop table post");
+  }
+
+  @Test
+  public void shouldCountTheRowsOfSelectStatements() {
+    SqlSessionFactory sqlSessionFactory = newSqlSessionFactory();
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      String statement = PostMapper.class.getName() + ".selectPosts";
+      assertTrue(sqlSessionFactory.getConfiguration().hasStatement(statement + Pagination.COUNT_STATEMENT_SUFFIX));
+      assertFalse(sqlSessionFactory.getConfiguration().hasStatement(statement + "Missing" + Pagination.COUNT_STATEMENT_SUFFIX));
+      Long count = sqlSession.selectOne(statement + Pagination.COUNT_STATEMENT_SUFFIX, null);
+      assertEquals(Long.valueOf(5), count);
+      count = sqlSession.selectOne(statement + Pagination.COUNT_STATEMENT_SUFFIX, Collections.singletonMap("ids", Arrays.asList(1, 3, 5)));
+      assertEquals(Long.valueOf(3), count);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldRemoveOnlyAPlainTrailingOrderBy() {
+    assertEquals("select * from post", Pagination.removeTrailingOrderBy("select * from post order by subject desc, id"));
+    assertEquals("select * from post order by id fetch first 1 rows only",
+        Pagination.removeTrailingOrderBy("select * from post order by id fetch first 1 rows only"));
+    assertEquals("select * from (select * from post order by id) p",
+        Pagination.removeTrailingOrderBy("select * from (select * from post order by id) p"));
+    assertEquals("select * from post where subject = ' order by id'",
+        Pagination.removeTrailingOrderBy("select * from post where subject = ' order by id'"));
+  }
+
+  @Test
+  public void shouldFindAnyTrailingOrderBy() {
+    assertTrue(Pagination.hasTrailingOrderBy("select * from post order by id fetch first 1 rows only"));
+    assertTrue(Pagination.hasTrailingOrderBy("select * from post ORDER\nBY lower(subject)"));
+    assertFalse(Pagination.hasTrailingOrderBy("select * from (select * from post order by id) p"));
+    assertFalse(Pagination.hasTrailingOrderBy("select * from orders"));
+  }
+
+  private static List<Integer> ids(List<Post> posts) {
+    List<Integer> ids = new ArrayList<Integer>();
+    for (Post post : posts) {
+      ids.add(post.getId());
+    }
+    return ids;
+  }
+
+  private static SqlSessionFactory newSqlSessionFactory() {
+    return new SqlSessionFactoryBuilder().build(newConfiguration());
+  }
+
+  private static Configuration newConfiguration() {
+    Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+    configuration.addMapper(PostMapper.class);
+    return configuration;
+  }
+
+}
@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.Assert.*;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.ResultMap;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class AutoMappingPlanCacheTest {
+
+  private static DataSource dataSource;
+
+  public interface AuthorMapper {
+
+    @Select("select id, username, email from author where id = #{id}")
+    @Results(id = "author", value = @Result(property = "id", column = "id", id = true))
+    Author selectAuthor(int id);
+
+    @Select("select id, password, bio from author where id = #{id}")
+    @ResultMap("author")
+    Author selectAuthorSecrets(int id);
+
+    @Select("select id, username as nickname from author where id = #{id}")
+    Author selectAuthorWithUnknownColumn(int id);
+
+  }
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    dataSource = BaseDataTest.createBlogDataSource();
+  }
+
+  @Test
+  public void shouldReuseAutomaticMappingsAcrossExecutions() {
+    SqlSessionFactory sqlSessionFactory = sqlSessionFactory();
+    for (int i = 0; i < 3; i++) {
+      SqlSession sqlSession = sqlSessionFactory.openSession();
+      try {
+        assertEquals("jim", sqlSession.getMapper(AuthorMapper.class).selectAuthor(101).getUsername());
+      } finally {
+        sqlSession.close();
+      }
+    }
+    // the columns and the automatic mappings
+    assertEquals(2, sqlSessionFactory.getConfiguration().getMappingPlanCache().getSize());
+  }
+
+  @Test
+  public void shouldKeepPlansOfDifferentColumnsApart() {
+    SqlSessionFactory sqlSessionFactory = sqlSessionFactory();
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      AuthorMapper mapper = sqlSession.getMapper(AuthorMapper.class);
+      Author author = mapper.selectAuthor(101);
+      assertEquals("jim@ibatis.apache.org", author.getEmail());
+      assertNull(author.getPassword());
+      author = mapper.selectAuthorSecrets(101);
+      assertEquals("********", author.getPassword());
+      assertNull(author.getUsername());
+      assertEquals(4, sqlSessionFactory.getConfiguration().getMappingPlanCache().getSize());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldReportUnknownColumnsOnEveryExecution() {
+    SqlSessionFactory sqlSessionFactory = sqlSessionFactory();
+    sqlSessionFactory.getConfiguration().setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior.FAILING);
+    for (int i = 0; i < 2; i++) {
+      SqlSession sqlSession = sqlSessionFactory.openSession();
+      try {
+        sqlSession.getMapper(AuthorMapper.class).selectAuthorWithUnknownColumn(101);
+        fail("Should have reported the NICKNAME column");
+      } catch (PersistenceException e) {
+        assertTrue(e.getMessage().contains("columnName=NICKNAME"));
+      } finally {
+        sqlSession.close();
+      }
+    }
+    // only the columns
+    assertEquals(1, sqlSessionFactory.getConfiguration().getMappingPlanCache().getSize());
+  }
+
+  private SqlSessionFactory sqlSessionFactory() {
+    Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+    configuration.addMapper(AuthorMapper.class);
+    return new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+}
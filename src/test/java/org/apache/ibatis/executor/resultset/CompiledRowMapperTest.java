@@ -0,0 +1,217 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CompiledRowMapperTest {
+
+  private static DataSource dataSource;
+
+  public interface AuthorMapper {
+
+    @Select("select * from author order by id")
+    @Results({
+        @Result(property = "id", column = "id", id = true),
+        @Result(property = "favouriteSection", column = "favourite_section")
+    })
+    List<Author> selectAuthors();
+
+    @Select("select id, username as \"USERNAME\", bio from author where id = #{id}")
+    Author selectAuthorWithBio(int id);
+
+    @Select("select bio from author where id = #{id}")
+    Author selectEmptyAuthor(int id);
+
+    @Select("select * from author order by id")
+    List<Map<String, Object>> selectAuthorMaps();
+
+    @Select("select id, username, 1 as unknown_column from author where id = #{id}")
+    Author selectAuthorWithUnknownColumn(int id);
+
+    @Select("select id, username from author where id = #{id}")
+    CountedAuthor selectCountedAuthor(int id);
+
+  }
+
+  public static class CountedAuthor {
+
+    static final AtomicInteger instances = new AtomicInteger();
+
+    private int id;
+    private String username;
+
+    public CountedAuthor() {
+      instances.incrementAndGet();
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public String getUsername() {
+      return username;
+    }
+
+    public void setUsername(String username) {
+      this.username = username;
+    }
+
+  }
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    dataSource = BaseDataTest.createBlogDataSource();
+  }
+
+  @Test
+  public void shouldMapRowsAsTheInterpreterDoes() {
+    List<Author> interpreted = selectAuthors(false);
+    List<Author> compiled = selectAuthors(true);
+    assertEquals(2, compiled.size());
+    assertEquals(interpreted, compiled);
+    assertEquals(101, compiled.get(0).getId());
+    assertEquals("jim", compiled.get(0).getUsername());
+    assertEquals(Section.NEWS, compiled.get(0).getFavouriteSection());
+    assertNull(compiled.get(1).getBio());
+  }
+
+  @Test
+  public void shouldCompileEachResultMapOnce() {
+    SqlSessionFactory sqlSessionFactory = sqlSessionFactory(true);
+    for (int i = 0; i < 3; i++) {
+      SqlSession sqlSession = sqlSessionFactory.openSession();
+      try {
+        sqlSession.getMapper(AuthorMapper.class).selectAuthors();
+      } finally {
+        sqlSession.close();
+      }
+    }
+    // the columns, the row mapper and the automatic mappings it was built from
+    assertEquals(3, sqlSessionFactory.getConfiguration().getMappingPlanCache().getSize());
+  }
+
+  @Test
+  public void shouldNotCompileAgainWhenUnknownColumnsAreReported() {
+    SqlSessionFactory sqlSessionFactory = sqlSessionFactory(true);
+    sqlSessionFactory.getConfiguration().setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior.WARNING);
+    for (int i = 0; i < 2; i++) {
+      SqlSession sqlSession = sqlSessionFactory.openSession();
+      try {
+        assertEquals("jim", sqlSession.getMapper(AuthorMapper.class).selectAuthorWithUnknownColumn(101).getUsername());
+      } finally {
+        sqlSession.close();
+      }
+    }
+    // only the columns: the row mapper would skip the warning of the next executions
+    assertEquals(1, sqlSessionFactory.getConfiguration().getMappingPlanCache().getSize());
+  }
+
+  @Test
+  public void shouldNotCreateAResultObjectToCompile() {
+    SqlSession sqlSession = sqlSessionFactory(true).openSession();
+    try {
+      CountedAuthor.instances.set(0);
+      assertEquals("jim", sqlSession.getMapper(AuthorMapper.class).selectCountedAuthor(101).getUsername());
+      assertEquals(1, CountedAuthor.instances.get());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldCallSettersOnNulls() {
+    SqlSessionFactory sqlSessionFactory = sqlSessionFactory(true);
+    sqlSessionFactory.getConfiguration().setCallSettersOnNulls(true);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Author author = sqlSession.getMapper(AuthorMapper.class).selectAuthorWithBio(102);
+      assertEquals("sally", author.getUsername());
+      assertNull(author.getBio());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldReturnNullForEmptyRows() {
+    SqlSessionFactory sqlSessionFactory = sqlSessionFactory(true);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      assertNull(sqlSession.getMapper(AuthorMapper.class).selectEmptyAuthor(102));
+      sqlSessionFactory.getConfiguration().setReturnInstanceForEmptyRow(true);
+      sqlSession.clearCache();
+      assertNotNull(sqlSession.getMapper(AuthorMapper.class).selectEmptyAuthor(102));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldLeaveMapsToTheInterpreter() {
+    SqlSessionFactory sqlSessionFactory = sqlSessionFactory(true);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      List<Map<String, Object>> authors = sqlSession.getMapper(AuthorMapper.class).selectAuthorMaps();
+      assertEquals("jim", authors.get(0).get("USERNAME"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private List<Author> selectAuthors(boolean compileResultMaps) {
+    SqlSession sqlSession = sqlSessionFactory(compileResultMaps).openSession();
+    try {
+      return sqlSession.getMapper(AuthorMapper.class).selectAuthors();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private SqlSessionFactory sqlSessionFactory(boolean compileResultMaps) {
+    Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+    configuration.setCompileResultMaps(compileResultMaps);
+    configuration.addMapper(AuthorMapper.class);
+    return new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+}
@@ -0,0 +1,88 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.StringTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+import org.apache.ibatis.type.UnknownTypeHandler;
+import org.junit.Test;
+
+public class ResultSetWrapperTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  public void shouldFindColumnsIgnoringCase() throws Exception {
+    ResultSetWrapper rsw = new ResultSetWrapper(resultSet("id", "User_Name", "ID"), configuration);
+    assertEquals(1, rsw.getColumnIndex("ID"));
+    assertEquals(2, rsw.getColumnIndex("user_name"));
+    assertEquals(-1, rsw.getColumnIndex("email"));
+    assertEquals(JdbcType.VARCHAR, rsw.getJdbcType("USER_NAME"));
+    assertNull(rsw.getJdbcType("email"));
+  }
+
+  @Test
+  public void shouldShareWhatIsKnownOfTheSameColumns() throws Exception {
+    ResultSetWrapper first = new ResultSetWrapper(resultSet("id", "name"), configuration);
+    ResultSetWrapper second = new ResultSetWrapper(resultSet("id", "name"), configuration);
+    ResultSetWrapper other = new ResultSetWrapper(resultSet("id", "title"), configuration);
+    assertSame(first.getShapeKey(), second.getShapeKey());
+    assertNotEquals(first.getShapeKey(), other.getShapeKey());
+    assertSame(first.getColumnNames(), second.getColumnNames());
+    assertTrue(first.getTypeHandler(String.class, "name") instanceof StringTypeHandler);
+    assertSame(first.getTypeHandler(String.class, "name"), second.getTypeHandler(String.class, "name"));
+  }
+
+  @Test
+  public void shouldResolveUnknownTypeHandlersOncePerColumn() throws Exception {
+    ResultSetWrapper first = new ResultSetWrapper(resultSet("id", "name"), configuration);
+    ResultSetWrapper second = new ResultSetWrapper(resultSet("id", "name"), configuration);
+    TypeHandler<?> unknown = new UnknownTypeHandler(configuration.getTypeHandlerRegistry());
+    TypeHandler<?> name = first.resolveTypeHandler(unknown, 2);
+    assertTrue(name instanceof StringTypeHandler);
+    assertTrue(first.resolveTypeHandler(unknown, 1) instanceof IntegerTypeHandler);
+    assertSame(name, second.resolveTypeHandler(unknown, 2));
+    TypeHandler<?> declared = new StringTypeHandler();
+    assertSame(declared, first.resolveTypeHandler(declared, 1));
+    assertSame(unknown, first.resolveTypeHandler(unknown, -1));
+  }
+
+  private ResultSet resultSet(String... labels) throws SQLException {
+    ResultSet rs = mock(ResultSet.class);
+    ResultSetMetaData rsmd = mock(ResultSetMetaData.class);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rsmd.getColumnCount()).thenReturn(labels.length);
+    for (int i = 0; i < labels.length; i++) {
+      when(rsmd.getColumnLabel(i + 1)).thenReturn(labels[i]);
+      when(rsmd.getColumnType(i + 1)).thenReturn(i == 0 ? Types.INTEGER : Types.VARCHAR);
+      when(rsmd.getColumnClassName(i + 1)).thenReturn(i == 0 ? Integer.class.getName() : String.class.getName());
+    }
+    return rs;
+  }
+
+}
@@ -91,6 +91,73 @@ public class PooledDataSourceTest extends BaseDataTest {
     c.close();
   }
 
+  @Test
+  public void shouldPrefillMinimumIdleConnectionsInBackground() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMinimumIdleConnections(2);
+      ds.setPoolMaintenanceInterval(20);
+      ds.getConnection().close();
+      waitFor(ds, 2);
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    } finally {
+      ds.setPoolMaintenanceInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldRetireConnectionsPastMaximumLifetime() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumConnectionLifetime(50);
+      Connection c = ds.getConnection();
+      Thread.sleep(100);
+      c.close();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      ds.getConnection().close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      ds.setPoolMaintenanceInterval(20);
+      ds.getConnection().close();
+      Thread.sleep(100);
+      waitFor(ds, 0);
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.setPoolMaintenanceInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldDiscardBrokenIdleConnectionsInBackground() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolValidateIdleConnections(true);
+      ds.setPoolPingConnectionsNotUsedFor(0);
+      ds.setPoolMaintenanceInterval(20);
+      Connection c = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(c);
+      c.close();
+      realConnection.close();
+      // the connection leaves the idle list while it is validated
+      for (int i = 0; i < 100 && ds.getPoolState().getBadConnectionCount() == 0; i++) {
+        Thread.sleep(20);
+      }
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.setPoolMaintenanceInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  private void waitFor(PooledDataSource ds, int idleConnections) throws InterruptedException {
+    for (int i = 0; i < 100 && ds.getPoolState().getIdleConnectionCount() != idleConnections; i++) {
+      Thread.sleep(20);
+    }
+  }
+
   @Ignore("See the comments")
   @Test
   public void shouldReconnectWhenServerKilledLeakedConnection() throws Exception {
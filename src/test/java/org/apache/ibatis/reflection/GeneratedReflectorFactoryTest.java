@@ -0,0 +1,178 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.factory.GeneratedObjectFactory;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.AccessorInvoker;
+import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.junit.Test;
+
+public class GeneratedReflectorFactoryTest {
+
+  public static class Bean {
+    private String name;
+    private long count;
+    private boolean active;
+    private int[] codes;
+    public Section section;
+    public final String constant = "constant";
+    private String secret;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public void setCount(long count) {
+      this.count = count;
+    }
+
+    public boolean isActive() {
+      return active;
+    }
+
+    public void setActive(boolean active) {
+      this.active = active;
+    }
+
+    public int[] getCodes() {
+      return codes;
+    }
+
+    public void setCodes(int[] codes) {
+      this.codes = codes;
+    }
+
+    public String getBroken() {
+      throw new IllegalStateException("broken");
+    }
+
+    String getSecret() {
+      return secret;
+    }
+  }
+
+  static class HiddenBean {
+    private String name;
+
+    public String getName() {
+      return name;
+    }
+  }
+
+  @Test
+  public void shouldGenerateInvokersOfPublicMembers() throws Exception {
+    Reflector reflector = new GeneratedReflectorFactory().findForClass(Bean.class);
+    assertTrue(reflector.getGetInvoker("name") instanceof AccessorInvoker);
+    assertTrue(reflector.getSetInvoker("count") instanceof AccessorInvoker);
+    assertTrue(reflector.getGetInvoker("section") instanceof AccessorInvoker);
+    assertTrue(reflector.getSetInvoker("section") instanceof AccessorInvoker);
+    assertTrue(reflector.getGetInvoker("constant") instanceof AccessorInvoker);
+    assertEquals(long.class, reflector.getSetInvoker("count").getType());
+    // not public or final
+    assertTrue(reflector.getGetInvoker("secret") instanceof MethodInvoker);
+    assertFalse(reflector.getSetInvoker("constant") instanceof AccessorInvoker);
+    assertTrue(new GeneratedReflectorFactory().findForClass(HiddenBean.class).getGetInvoker("name") instanceof MethodInvoker);
+    assertTrue(new DefaultReflectorFactory().findForClass(Bean.class).getGetInvoker("section") instanceof GetFieldInvoker);
+  }
+
+  @Test
+  public void shouldReadAndWritePropertiesAsReflectionDoes() {
+    Bean bean = new Bean();
+    MetaObject metaObject = newMetaObject(bean);
+    metaObject.setValue("name", "bean");
+    metaObject.setValue("count", 3L);
+    metaObject.setValue("active", Boolean.TRUE);
+    metaObject.setValue("codes", new int[] { 1, 2 });
+    metaObject.setValue("section", Section.NEWS);
+    assertEquals("bean", metaObject.getValue("name"));
+    assertEquals(3L, metaObject.getValue("count"));
+    assertEquals(Boolean.TRUE, metaObject.getValue("active"));
+    assertArrayEquals(new int[] { 1, 2 }, (int[]) metaObject.getValue("codes"));
+    assertEquals(Section.NEWS, bean.section);
+    assertEquals("constant", metaObject.getValue("constant"));
+    // widened by reflection
+    metaObject.setValue("count", 4);
+    assertEquals(4L, bean.getCount());
+  }
+
+  @Test
+  public void shouldReportErrorsAsReflectionDoes() {
+    MetaObject metaObject = newMetaObject(new Bean());
+    try {
+      metaObject.getValue("broken");
+      fail("Should have failed");
+    } catch (IllegalStateException e) {
+      assertEquals("broken", e.getMessage());
+    }
+    try {
+      metaObject.setValue("count", null);
+      fail("Should have failed");
+    } catch (ReflectionException e) {
+      // expected
+    }
+    try {
+      metaObject.setValue("name", 1);
+      fail("Should have failed");
+    } catch (ReflectionException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void shouldCreateObjectsAsTheDefaultObjectFactoryDoes() {
+    ObjectFactory objectFactory = new GeneratedObjectFactory();
+    assertEquals(Bean.class, objectFactory.create(Bean.class).getClass());
+    assertEquals(ArrayList.class, objectFactory.create(List.class).getClass());
+    assertEquals(HiddenBean.class, objectFactory.create(HiddenBean.class).getClass());
+    Author author = objectFactory.create(Author.class,
+        Arrays.<Class<?>>asList(Integer.class, String.class, String.class, String.class, String.class, Section.class),
+        Arrays.<Object>asList(101, "jim", "secret", "jim@ibatis.apache.org", "bio", Section.NEWS));
+    assertEquals("jim", author.getUsername());
+    try {
+      objectFactory.create(Map.Entry.class);
+      fail("Should have failed");
+    } catch (ReflectionException e) {
+      // expected
+    }
+  }
+
+  private static MetaObject newMetaObject(Object object) {
+    return MetaObject.forObject(object, new DefaultObjectFactory(), new DefaultObjectWrapperFactory(),
+        new GeneratedReflectorFactory());
+  }
+
+}
@@ -20,6 +20,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -32,6 +33,7 @@ import org.apache.ibatis.domain.blog.Section;
 import org.apache.ibatis.domain.misc.CustomBeanWrapper;
 import org.apache.ibatis.domain.misc.CustomBeanWrapperFactory;
 import org.apache.ibatis.domain.misc.RichType;
+import org.apache.ibatis.reflection.property.PropertyPath;
 import org.junit.Test;
 
 public class MetaObjectTest {
@@ -302,4 +304,50 @@ public class MetaObjectTest {
     assertTrue(meta.hasGetter("filterParams[2]"));
   }
 
+  @Test
+  public void shouldGetAndSetValuesByPath() {
+    RichType rich = new RichType();
+    MetaObject meta = SystemMetaObject.forObject(rich);
+    PropertyPath nestedField = new PropertyPath("richType.richField");
+    PropertyPath nestedMapValue = new PropertyPath("richType.richMap.key");
+    PropertyPath listItem = new PropertyPath("richType.richList[0]");
+    assertNull(meta.getValue(nestedField));
+    meta.setValue(nestedField, "foo");
+    meta.setValue(nestedMapValue, "bar");
+    meta.setValue(new PropertyPath("richType.richType.richProperty"), "baz");
+    assertEquals("foo", meta.getValue(nestedField));
+    assertEquals("foo", meta.getValue("richType.richField"));
+    assertEquals("bar", meta.getValue(nestedMapValue));
+    assertEquals("bar", rich.getRichType().getRichMap().get("key"));
+    assertEquals("baz", rich.getRichType().getRichType().getRichProperty());
+    assertEquals("bar", meta.getValue(listItem));
+    meta.setValue(listItem, "other");
+    assertEquals("other", meta.getValue("richType.richList[0]"));
+  }
+
+  @Test
+  public void shouldNotInstantiateMissingObjectsToSetNullByPath() {
+    RichType rich = new RichType();
+    MetaObject meta = SystemMetaObject.forObject(rich);
+    meta.setValue(new PropertyPath("richType.richType.richField"), null);
+    assertNull(rich.getRichType());
+  }
+
+  @Test
+  public void shouldGetAndSetMapValuesByPath() {
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("author", new Author());
+    MetaObject meta = SystemMetaObject.forObject(map);
+    meta.setValue(new PropertyPath("author.username"), "jim");
+    meta.setValue(new PropertyPath("rich.richProperty"), "foo");
+    assertEquals("jim", meta.getValue(new PropertyPath("author.username")));
+    assertEquals("foo", ((Map<?, ?>) meta.getValue("rich")).get("richProperty"));
+    try {
+      meta.getValue(new PropertyPath("author.unknown"));
+      fail("Should have failed");
+    } catch (ReflectionException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("unknown"));
+    }
+  }
+
 }
@@ -23,6 +23,8 @@ import java.util.HashMap;
 import java.util.List;
 
 import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
 import org.apache.ibatis.mapping.*;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
@@ -36,6 +38,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -70,6 +73,59 @@ public class DefaultParameterHandlerTest {
 
   }
 
+  @Test
+  public void setParametersFromBeanPropertiesAndAdditionalParameters() throws SQLException {
+    final MappedStatement mappedStatement = getMappedStatement();
+    final Configuration config = mappedStatement.getConfiguration();
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>();
+    parameterMappings.add(new ParameterMapping.Builder(config, "id", registry.getTypeHandler(Integer.class)).build());
+    parameterMappings.add(new ParameterMapping.Builder(config, "username", registry.getTypeHandler(String.class)).build());
+    parameterMappings.add(new ParameterMapping.Builder(config, "favouriteSection.name", registry.getTypeHandler(String.class)).build());
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS);
+    StaticSqlSource sqlSource = new StaticSqlSource(config, "some select statement", parameterMappings);
+
+    // bound without a binder, then with the one compiled on second use
+    for (int i = 0; i < 2; i++) {
+      BoundSql boundSql = sqlSource.getBoundSql(author);
+      boundSql.setAdditionalParameter("username", "sally");
+      PreparedStatement ps = mock(PreparedStatement.class);
+      new DefaultParameterHandler(mappedStatement, author, boundSql).setParameters(ps);
+      verify(ps).setInt(1, 101);
+      verify(ps).setString(2, "sally");
+      verify(ps).setString(3, "NEWS");
+    }
+
+    ParameterBinders binders = sqlSource.getBoundSql(author).getParameterBinders();
+    Assert.assertSame(binders, sqlSource.getBoundSql(null).getParameterBinders());
+    Assert.assertSame(binders.get(Author.class), binders.get(Author.class));
+    Assert.assertNull(binders.get(HashMap.class));
+    Assert.assertNotSame(binders.get(Author.class), binders.get(HashMap.class));
+  }
+
+  @Test
+  public void setParametersFromMapAndSimpleType() throws SQLException {
+    final MappedStatement mappedStatement = getMappedStatement();
+    final Configuration config = mappedStatement.getConfiguration();
+    final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
+    List<ParameterMapping> parameterMappings = Collections.singletonList(new ParameterMapping.Builder(config, "id", registry.getTypeHandler(Integer.class)).build());
+
+    StaticSqlSource sqlSource = new StaticSqlSource(config, "some select statement", parameterMappings);
+
+    HashMap<String, Object> map = new HashMap<String, Object>();
+    map.put("id", 102);
+    for (int i = 0; i < 2; i++) {
+      PreparedStatement ps = mock(PreparedStatement.class);
+      new DefaultParameterHandler(mappedStatement, map, sqlSource.getBoundSql(map)).setParameters(ps);
+      verify(ps).setInt(1, 102);
+
+      ps = mock(PreparedStatement.class);
+      new DefaultParameterHandler(mappedStatement, 103, sqlSource.getBoundSql(103)).setParameters(ps);
+      verify(ps).setInt(1, 103);
+    }
+    Assert.assertNotNull(sqlSource.getBoundSql(map).getParameterBinders().get(HashMap.class));
+  }
+
   MappedStatement getMappedStatement() {
     final Configuration config = new Configuration();
     final TypeHandlerRegistry registry = config.getTypeHandlerRegistry();
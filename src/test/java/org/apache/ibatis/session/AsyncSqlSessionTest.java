@@ -0,0 +1,244 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.MapKey;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class AsyncSqlSessionTest {
+
+  private static final String SELECT_AUTHOR = AuthorMapper.class.getName() + ".selectAuthor";
+  private static final String UPDATE_BIO = AuthorMapper.class.getName() + ".updateBio";
+
+  private PooledDataSource dataSource;
+  private ExecutorService executorService;
+  private SqlSessionFactory sqlSessionFactory;
+
+  public interface AuthorMapper {
+
+    @Select("select id, username, bio from author where id = #{id}")
+    Author selectAuthor(int id);
+
+    @Select("select id, username, bio from author where id = #{id}")
+    Future<Author> selectAuthorAsync(int id);
+
+    @Select("select id, username, bio from author order by id")
+    Future<List<Author>> selectAuthorsAsync();
+
+    @Select("select id, username, bio from author order by id")
+    @MapKey("id")
+    Future<Map<Integer, Author>> selectAuthorMapAsync();
+
+    @Update("update author set bio = #{bio} where id = #{id}")
+    int updateBio(Author author);
+
+    @Update("update author set bio = #{bio} where id = #{id}")
+    Future<Integer> updateBioAsync(Author author);
+
+  }
+
+  public interface CursorMapper {
+
+    @Select("select id, username, bio from author order by id")
+    Future<Cursor<Author>> selectAuthorsAsync();
+
+  }
+
+  @BeforeClass
+  public static void setUpDatabase() throws Exception {
+    BaseDataTest.createBlogDataSource();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    dataSource = BaseDataTest.createPooledDataSource(BaseDataTest.BLOG_PROPERTIES);
+    executorService = Executors.newFixedThreadPool(2);
+    Configuration configuration = new Configuration(new Environment("test", new JdbcTransactionFactory(), dataSource));
+    configuration.setAsyncExecutor(executorService);
+    configuration.addMapper(AuthorMapper.class);
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+  @After
+  public void tearDown() {
+    executorService.shutdown();
+    dataSource.forceCloseAll();
+  }
+
+  @Test
+  public void shouldSelectInSessionsOfTheirOwn() throws Exception {
+    AsyncSqlSession asyncSqlSession = new AsyncSqlSession(sqlSessionFactory);
+    Future<Author> jim = asyncSqlSession.selectOne(SELECT_AUTHOR, 101);
+    Future<List<Author>> sally = asyncSqlSession.selectList(SELECT_AUTHOR, 102);
+    Future<Map<Integer, Author>> authors = asyncSqlSession.selectMap(SELECT_AUTHOR, 101, "id");
+    assertEquals("jim", jim.get().getUsername());
+    assertEquals("sally", sally.get().get(0).getUsername());
+    assertEquals("jim", authors.get().get(101).getUsername());
+    assertEquals(0, dataSource.getPoolState().getActiveConnectionCount());
+  }
+
+  @Test
+  public void shouldCommitUpdates() throws Exception {
+    AsyncSqlSession asyncSqlSession = new AsyncSqlSession(sqlSessionFactory);
+    String bio = selectAuthor(101).getBio();
+    try {
+      assertEquals(Integer.valueOf(1), asyncSqlSession.update(UPDATE_BIO, newAuthor(101, "async")).get());
+      assertEquals("async", selectAuthor(101).getBio());
+      assertEquals(0, dataSource.getPoolState().getActiveConnectionCount());
+    } finally {
+      asyncSqlSession.update(UPDATE_BIO, newAuthor(101, bio)).get();
+    }
+  }
+
+  @Test
+  public void shouldRollBackTheWorkOfACallbackThatFails() throws Exception {
+    AsyncSqlSession asyncSqlSession = new AsyncSqlSession(sqlSessionFactory);
+    final String bio = selectAuthor(102).getBio();
+    Future<Void> future = asyncSqlSession.execute(new SqlSessionCallback<Void>() {
+      @Override
+      public Void doInSession(SqlSession sqlSession) {
+        AuthorMapper mapper = sqlSession.getMapper(AuthorMapper.class);
+        mapper.updateBio(newAuthor(102, "lost"));
+        assertEquals("lost", mapper.selectAuthor(102).getBio());
+        throw new IllegalStateException("failed");
+      }
+    });
+    try {
+      future.get();
+      fail("Should have failed");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertEquals(bio, selectAuthor(102).getBio());
+    assertEquals(0, dataSource.getPoolState().getActiveConnectionCount());
+  }
+
+  @Test
+  public void shouldRunMapperMethodsReturningFuturesAsynchronously() throws Exception {
+    AuthorMapper mapper = new AsyncSqlSession(sqlSessionFactory).getMapper(AuthorMapper.class);
+    Future<Author> jim = mapper.selectAuthorAsync(101);
+    Future<List<Author>> authors = mapper.selectAuthorsAsync();
+    Future<Map<Integer, Author>> authorMap = mapper.selectAuthorMapAsync();
+    assertEquals("jim", jim.get().getUsername());
+    assertEquals(2, authors.get().size());
+    assertEquals("sally", authors.get().get(1).getUsername());
+    assertEquals("sally", authorMap.get().get(102).getUsername());
+
+    String bio = jim.get().getBio();
+    try {
+      assertEquals(Integer.valueOf(1), mapper.updateBioAsync(newAuthor(101, "async")).get());
+      // committed by its own session
+      assertEquals("async", selectAuthor(101).getBio());
+    } finally {
+      mapper.updateBioAsync(newAuthor(101, bio)).get();
+    }
+    assertEquals(0, dataSource.getPoolState().getActiveConnectionCount());
+  }
+
+  @Test
+  public void shouldNotRunMapperMethodsReturningFuturesOutsideTheTransactionOfTheSession() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.getMapper(AuthorMapper.class).selectAuthorAsync(101);
+      fail("Should have failed");
+    } catch (BindingException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("AsyncSqlSession"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test(expected = BindingException.class)
+  public void shouldOnlyRunMapperMethodsReturningFuturesInAnAsyncSession() {
+    new AsyncSqlSession(sqlSessionFactory).getMapper(AuthorMapper.class).selectAuthor(101);
+  }
+
+  @Test
+  public void shouldBoundTheDefaultExecutor() {
+    Configuration configuration = new Configuration();
+    configuration.setAsyncExecutorThreads(2);
+    ThreadPoolExecutor executor = (ThreadPoolExecutor) configuration.getAsyncExecutor();
+    try {
+      assertSame(executor, configuration.getAsyncExecutor());
+      assertEquals(2, executor.getMaximumPoolSize());
+      assertEquals(200, executor.getQueue().remainingCapacity());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldReportFailuresThroughTheFuture() throws Exception {
+    AsyncSqlSession asyncSqlSession = new AsyncSqlSession(sqlSessionFactory);
+    try {
+      asyncSqlSession.selectOne("unknownStatement").get();
+      fail("Should have failed");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof PersistenceException);
+    }
+  }
+
+  @Test(expected = BindingException.class)
+  public void shouldNotReturnCursorsInFutures() {
+    sqlSessionFactory.getConfiguration().addMapper(CursorMapper.class);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.getMapper(CursorMapper.class).selectAuthorsAsync();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private Author selectAuthor(int id) {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      return sqlSession.selectOne(SELECT_AUTHOR, id);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private static Author newAuthor(int id, String bio) {
+    Author author = new Author();
+    author.setId(id);
+    author.setBio(bio);
+    return author;
+  }
+
+}
@@ -23,6 +23,7 @@ import org.apache.ibatis.annotations.CacheNamespace;
 import org.apache.ibatis.annotations.Property;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
 import org.apache.ibatis.annotations.CacheNamespaceRef;
 import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.io.Resources;
@@ -369,6 +370,21 @@ public class CacheTest {
       .hasMessage("Should be specified either value() or name() attribute in the @CacheNamespaceRef");
   }
 
+  @Test
+  public void shouldApplyExpiryFromCacheNamespace() throws Exception {
+    sqlSessionFactory.getConfiguration().addMapper(ExpiringCacheMapper.class);
+    Cache cache = sqlSessionFactory.getConfiguration().getCache(ExpiringCacheMapper.class.getName());
+    while (!(cache instanceof ExpiringCache)) {
+      Field field = cache.getClass().getDeclaredField("delegate");
+      field.setAccessible(true);
+      cache = (Cache) field.get(cache);
+    }
+    ExpiringCache expiringCache = (ExpiringCache) cache;
+    Assert.assertEquals(60000, expiringCache.getExpireAfterWrite());
+    Assert.assertEquals(30000, expiringCache.getExpireAfterAccess());
+    Assert.assertEquals(5000, expiringCache.getRefreshAhead());
+  }
+
   private CustomCache unwrap(Cache cache){
     Field field;
     try {
@@ -392,6 +408,10 @@ public class CacheTest {
   private interface CustomCacheUnsupportedPropertyMapper {
   }
 
+  @CacheNamespace(expireAfterWrite = 60000, expireAfterAccess = 30000, refreshAhead = 5000)
+  private interface ExpiringCacheMapper {
+  }
+
   @CacheNamespaceRef(value = PersonMapper.class, name = "org.apache.ibatis.submitted.cache.PersonMapper")
   private interface InvalidCacheNamespaceRefBothMapper {
   }
@@ -18,6 +18,8 @@ package org.apache.ibatis.submitted.cursor_nested;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
@@ -28,7 +30,10 @@ import org.junit.Test;
 
 import java.io.Reader;
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
 public class CursorNestedTest {
 
@@ -95,6 +100,39 @@ public class CursorNestedTest {
         Assert.assertFalse(usersCursor.isOpen());
     }
 
+    @Test
+    public void shouldReturnCompleteUsersFromStatementsNotMarkedAsOrdered() {
+        SqlSession sqlSession = sqlSessionFactory.openSession();
+        try {
+            List<String> sizes = new ArrayList<String>();
+            for (User user : sqlSession.getMapper(Mapper.class).getAllUsersWithoutResultOrdered()) {
+                // read while iterating, later rows must not change returned users
+                sizes.add(user.getGroups().size() + "/" + user.getRoles().size());
+            }
+            Assert.assertEquals(Arrays.asList("2/3", "1/3", "3/1", "2/2"), sizes);
+        } finally {
+            sqlSession.close();
+        }
+    }
+
+    @Test
+    public void shouldHandOverEachUserOnceComplete() {
+        SqlSession sqlSession = sqlSessionFactory.openSession();
+        try {
+            final List<String> sizes = new ArrayList<String>();
+            sqlSession.getMapper(Mapper.class).getAllOrderedUsers(new ResultHandler<User>() {
+                @Override
+                public void handleResult(ResultContext<? extends User> resultContext) {
+                    User user = resultContext.getResultObject();
+                    sizes.add(user.getGroups().size() + "/" + user.getRoles().size());
+                }
+            });
+            Assert.assertEquals(Arrays.asList("2/3", "1/3", "3/1", "2/2"), sizes);
+        } finally {
+            sqlSession.close();
+        }
+    }
+
     @Test
     public void testCursorWithRowBound() {
         SqlSession sqlSession = sqlSessionFactory.openSession();